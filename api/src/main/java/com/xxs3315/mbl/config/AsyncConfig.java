@@ -1,8 +1,12 @@
 package com.xxs3315.mbl.config;
 
 import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
@@ -10,8 +14,23 @@ import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 @EnableAsync
 public class AsyncConfig {
 
+  private static final Logger logger = LoggerFactory.getLogger(AsyncConfig.class);
+
+  // 队列任务在虚拟线程上执行：等待远程数据时不占用平台线程，排版渲染由 pdf.file.render-permits 限流
+  @Value("${mbl.queue.virtual-threads:false}")
+  private boolean virtualThreads;
+
   @Bean(name = "taskExecutor")
   public Executor taskExecutor() {
+    if (virtualThreads) {
+      // 每个任务一个虚拟线程，并发数由队列处理器的最大并发数控制
+      SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("QueueTask-VT-");
+      executor.setVirtualThreads(true);
+      executor.setTaskTerminationTimeout(60000);
+      logger.info("队列任务执行器: 虚拟线程");
+      return executor;
+    }
+
     ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
     executor.setCorePoolSize(5); // 核心线程数
     executor.setMaxPoolSize(10); // 最大线程数
@@ -1,8 +1,15 @@
 package com.xxs3315.mbl.controller;
 
 import com.xxs3315.mbl.entity.QueueItem;
+import com.xxs3315.mbl.repository.QueueItemSummary;
 import com.xxs3315.mbl.service.QueueProcessor;
+import com.xxs3315.mbl.service.QueueRetentionService;
 import com.xxs3315.mbl.service.QueueService;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -13,10 +20,15 @@ import org.springframework.web.bind.annotation.*;
 @CrossOrigin(originPatterns = "*", allowCredentials = "true")
 public class QueueController {
 
+  // 任务列表每页最大数量
+  private static final int MAX_PAGE_SIZE = 500;
+
   @Autowired private QueueService queueService;
 
   @Autowired private QueueProcessor queueProcessor;
 
+  @Autowired private QueueRetentionService queueRetentionService;
+
   @PostMapping("/add")
   public ResponseEntity<?> addTask(@RequestParam String taskType, @RequestParam String data) {
     try {
@@ -69,9 +81,11 @@ public class QueueController {
   }
 
   @GetMapping("/pending")
-  public ResponseEntity<?> getPendingTasks() {
+  public ResponseEntity<?> getPendingTasks(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "50") int size) {
     try {
-      return ResponseEntity.ok(Map.of("success", true, "tasks", queueService.getPendingTasks()));
+      return ResponseEntity.ok(listTasks(QueueItem.TaskStatus.PENDING, cursor, size));
     } catch (Exception e) {
       return ResponseEntity.badRequest()
           .body(Map.of("success", false, "message", "获取待处理任务失败: " + e.getMessage()));
@@ -79,9 +93,11 @@ public class QueueController {
   }
 
   @GetMapping("/processing")
-  public ResponseEntity<?> getProcessingTasks() {
+  public ResponseEntity<?> getProcessingTasks(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "50") int size) {
     try {
-      return ResponseEntity.ok(Map.of("success", true, "tasks", queueService.getProcessingTasks()));
+      return ResponseEntity.ok(listTasks(QueueItem.TaskStatus.PROCESSING, cursor, size));
     } catch (Exception e) {
       return ResponseEntity.badRequest()
           .body(Map.of("success", false, "message", "获取处理中任务失败: " + e.getMessage()));
@@ -89,15 +105,56 @@ public class QueueController {
   }
 
   @GetMapping("/completed")
-  public ResponseEntity<?> getCompletedTasks() {
+  public ResponseEntity<?> getCompletedTasks(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "50") int size) {
     try {
-      return ResponseEntity.ok(Map.of("success", true, "tasks", queueService.getCompletedTasks()));
+      return ResponseEntity.ok(listTasks(QueueItem.TaskStatus.COMPLETED, cursor, size));
     } catch (Exception e) {
       return ResponseEntity.badRequest()
           .body(Map.of("success", false, "message", "获取已完成任务失败: " + e.getMessage()));
     }
   }
 
+  /**
+   * 键集分页查询任务摘要
+   *
+   * <p>游标编码了上一页最后一个任务的 (create_time, id)。本页已满时返回 nextCursor，
+   * 客户端原样传回获取下一页，为null表示没有更多数据。
+   */
+  private Map<String, Object> listTasks(QueueItem.TaskStatus status, String cursor, int size) {
+    int pageSize = Math.max(1, Math.min(MAX_PAGE_SIZE, size));
+    LocalDateTime afterCreateTime = null;
+    Long afterId = null;
+    if (cursor != null && !cursor.isBlank()) {
+      String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      int separator = decoded.lastIndexOf('_');
+      if (separator < 0) {
+        throw new IllegalArgumentException("无效的游标: " + cursor);
+      }
+      afterCreateTime = LocalDateTime.parse(decoded.substring(0, separator));
+      afterId = Long.parseLong(decoded.substring(separator + 1));
+    }
+
+    List<QueueItemSummary> tasks =
+        queueService.listTasks(status, afterCreateTime, afterId, pageSize);
+    String nextCursor = null;
+    if (tasks.size() == pageSize) {
+      QueueItemSummary last = tasks.get(tasks.size() - 1);
+      String position = last.getCreateTime() + "_" + last.getId();
+      nextCursor =
+          Base64.getUrlEncoder()
+              .withoutPadding()
+              .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("success", true);
+    body.put("tasks", tasks);
+    body.put("nextCursor", nextCursor);
+    return body;
+  }
+
   @PostMapping("/cancel/{taskId}")
   public ResponseEntity<?> cancelTask(@PathVariable String taskId) {
     try {
@@ -124,6 +181,20 @@ public class QueueController {
     }
   }
 
+  @PostMapping("/retention/purge")
+  public ResponseEntity<?> purgeExpiredTasks() {
+    try {
+      Map<String, Object> purged = queueRetentionService.purge();
+      if (purged.isEmpty()) {
+        return ResponseEntity.ok(Map.of("success", false, "message", "清理正在执行中"));
+      }
+      return ResponseEntity.ok(Map.of("success", true, "purged", purged));
+    } catch (Exception e) {
+      return ResponseEntity.badRequest()
+          .body(Map.of("success", false, "message", "清理过期任务失败: " + e.getMessage()));
+    }
+  }
+
   @PostMapping("/processor/start")
   public ResponseEntity<?> startProcessor() {
     try {
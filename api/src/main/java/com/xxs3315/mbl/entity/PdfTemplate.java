@@ -0,0 +1,77 @@
+package com.xxs3315.mbl.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "pdf_templates")
+public class PdfTemplate {
+
+  /** 模板ID，即版式内容的SHA-256 */
+  @Id
+  @Column(name = "template_id", length = 64)
+  private String templateId;
+
+  @Column(name = "name")
+  private String name;
+
+  @Column(name = "content", nullable = false, columnDefinition = "TEXT")
+  private String content;
+
+  @Column(name = "content_size", nullable = false)
+  private Long contentSize;
+
+  @Column(name = "create_time", nullable = false)
+  private LocalDateTime createTime;
+
+  public PdfTemplate() {}
+
+  public PdfTemplate(String templateId, String name, String content) {
+    this.templateId = templateId;
+    this.name = name;
+    this.content = content;
+    this.contentSize = (long) content.length();
+    this.createTime = LocalDateTime.now();
+  }
+
+  // Getters and Setters
+  public String getTemplateId() {
+    return templateId;
+  }
+
+  public void setTemplateId(String templateId) {
+    this.templateId = templateId;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public String getContent() {
+    return content;
+  }
+
+  public void setContent(String content) {
+    this.content = content;
+  }
+
+  public Long getContentSize() {
+    return contentSize;
+  }
+
+  public void setContentSize(Long contentSize) {
+    this.contentSize = contentSize;
+  }
+
+  public LocalDateTime getCreateTime() {
+    return createTime;
+  }
+
+  public void setCreateTime(LocalDateTime createTime) {
+    this.createTime = createTime;
+  }
+}
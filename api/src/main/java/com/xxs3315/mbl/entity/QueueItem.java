@@ -4,11 +4,35 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "queue_items")
+@Table(
+    name = "queue_items",
+    indexes = {
+      @Index(name = "idx_queue_items_status_create_time", columnList = "status, create_time"),
+      @Index(
+          name = "idx_queue_items_status_priority_create_time",
+          columnList = "status, priority, create_time"),
+      @Index(name = "idx_queue_items_status_end_time", columnList = "status, end_time")
+    })
 public class QueueItem {
 
+  /** 交互优先级：单页预览等小任务 */
+  public static final int PRIORITY_INTERACTIVE = 0;
+
+  /** 普通优先级 */
+  public static final int PRIORITY_NORMAL = 1;
+
+  /** 批量优先级：大批量任务及其分片 */
+  public static final int PRIORITY_BULK = 2;
+
+  /** 每次从序列分配的ID数量，需与数据库序列的步长一致，批量入队时插入语句可按JDBC批量执行 */
+  public static final int ID_ALLOCATION_SIZE = 50;
+
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "queue_items_seq")
+  @SequenceGenerator(
+      name = "queue_items_seq",
+      sequenceName = "queue_items_seq",
+      allocationSize = ID_ALLOCATION_SIZE)
   private Long id;
 
   @Column(name = "task_id", unique = true, nullable = false)
@@ -17,9 +41,18 @@ public class QueueItem {
   @Column(name = "task_type", nullable = false)
   private String taskType;
 
-  @Column(name = "data", nullable = false, columnDefinition = "TEXT")
+  /** 任务数据，超过内联上限时为null，完整数据由 {@link #dataRef} 引用 */
+  @Column(name = "data", columnDefinition = "TEXT")
   private String data;
 
+  /** 任务数据在数据存储中的引用（内容的SHA-256） */
+  @Column(name = "data_ref", length = 64)
+  private String dataRef;
+
+  /** 任务数据字节数 */
+  @Column(name = "data_size")
+  private Long dataSize;
+
   @Enumerated(EnumType.STRING)
   @Column(name = "status", nullable = false)
   private TaskStatus status;
@@ -36,9 +69,29 @@ public class QueueItem {
   @Column(name = "result", columnDefinition = "TEXT")
   private String result;
 
+  /** 任务结果在数据存储中的引用，结果超过内联上限时使用 */
+  @Column(name = "result_ref", length = 64)
+  private String resultRef;
+
   @Column(name = "error_message", length = 1000)
   private String errorMessage;
 
+  /** 优先级通道，数值越小越优先，各通道按权重公平调度 */
+  @Column(name = "priority", nullable = false)
+  private int priority = PRIORITY_NORMAL;
+
+  /** 提交时按页数和表格行数估算的处理成本 */
+  @Column(name = "estimated_cost", nullable = false)
+  private long estimatedCost;
+
+  /** 持有租约的节点，领取时写入；等待分片完成的父任务不持有租约 */
+  @Column(name = "lease_owner")
+  private String leaseOwner;
+
+  /** 租约到期时间，持有节点定期续约，过期后任务被回收为待处理 */
+  @Column(name = "lease_expires_at")
+  private LocalDateTime leaseExpiresAt;
+
   @Version
   @Column(name = "version")
   private Long version;
@@ -89,6 +142,22 @@ public class QueueItem {
     this.data = data;
   }
 
+  public String getDataRef() {
+    return dataRef;
+  }
+
+  public void setDataRef(String dataRef) {
+    this.dataRef = dataRef;
+  }
+
+  public Long getDataSize() {
+    return dataSize;
+  }
+
+  public void setDataSize(Long dataSize) {
+    this.dataSize = dataSize;
+  }
+
   public TaskStatus getStatus() {
     return status;
   }
@@ -129,6 +198,14 @@ public class QueueItem {
     this.result = result;
   }
 
+  public String getResultRef() {
+    return resultRef;
+  }
+
+  public void setResultRef(String resultRef) {
+    this.resultRef = resultRef;
+  }
+
   public String getErrorMessage() {
     return errorMessage;
   }
@@ -137,6 +214,38 @@ public class QueueItem {
     this.errorMessage = errorMessage;
   }
 
+  public int getPriority() {
+    return priority;
+  }
+
+  public void setPriority(int priority) {
+    this.priority = priority;
+  }
+
+  public long getEstimatedCost() {
+    return estimatedCost;
+  }
+
+  public void setEstimatedCost(long estimatedCost) {
+    this.estimatedCost = estimatedCost;
+  }
+
+  public String getLeaseOwner() {
+    return leaseOwner;
+  }
+
+  public void setLeaseOwner(String leaseOwner) {
+    this.leaseOwner = leaseOwner;
+  }
+
+  public LocalDateTime getLeaseExpiresAt() {
+    return leaseExpiresAt;
+  }
+
+  public void setLeaseExpiresAt(LocalDateTime leaseExpiresAt) {
+    this.leaseExpiresAt = leaseExpiresAt;
+  }
+
   public Long getVersion() {
     return version;
   }
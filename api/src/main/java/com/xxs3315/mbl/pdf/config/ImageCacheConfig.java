@@ -0,0 +1,42 @@
+package com.xxs3315.mbl.pdf.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "pdf.image")
+public class ImageCacheConfig {
+
+  /** 是否启用图片缓存 */
+  private boolean cacheEnabled = true;
+
+  /** 图片缓存最大字节数（按解码后像素估算，每像素4字节） */
+  private long cacheMaxBytes = 67108864;
+
+  /** URL图片缓存有效期（毫秒），过期后重新下载，以便URL背后的图片更新后生效 */
+  private long urlTtl = 300000;
+
+  public boolean isCacheEnabled() {
+    return cacheEnabled;
+  }
+
+  public void setCacheEnabled(boolean cacheEnabled) {
+    this.cacheEnabled = cacheEnabled;
+  }
+
+  public long getCacheMaxBytes() {
+    return cacheMaxBytes;
+  }
+
+  public void setCacheMaxBytes(long cacheMaxBytes) {
+    this.cacheMaxBytes = cacheMaxBytes;
+  }
+
+  public long getUrlTtl() {
+    return urlTtl;
+  }
+
+  public void setUrlTtl(long urlTtl) {
+    this.urlTtl = urlTtl;
+  }
+}
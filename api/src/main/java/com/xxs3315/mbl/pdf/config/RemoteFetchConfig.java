@@ -0,0 +1,130 @@
+package com.xxs3315.mbl.pdf.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "pdf.remote")
+public class RemoteFetchConfig {
+
+  /** 连接超时时间（毫秒） */
+  private long connectTimeout = 10000;
+
+  /** 读取超时时间（毫秒） */
+  private long readTimeout = 30000;
+
+  /** 单次请求总超时时间（毫秒），包含排队、连接、读取 */
+  private long callTimeout = 60000;
+
+  /** 连接池最大空闲连接数 */
+  private int maxIdleConnections = 20;
+
+  /** 空闲连接保活时间（毫秒） */
+  private long keepAlive = 300000;
+
+  /** 最大并发请求数 */
+  private int maxRequests = 64;
+
+  /** 每个主机的最大并发请求数 */
+  private int maxRequestsPerHost = 8;
+
+  /** 是否启用HTTP/2（仅HTTPS且服务端支持时生效） */
+  private boolean http2Enabled = true;
+
+  /** 是否启用远程JSON响应缓存 */
+  private boolean cacheEnabled = true;
+
+  /** 缓存有效期（毫秒），过期后按 ETag/Last-Modified 重新验证 */
+  private long cacheTtl = 30000;
+
+  /** 缓存最大字节数 */
+  private long cacheMaxBytes = 33554432;
+
+  public long getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  public void setConnectTimeout(long connectTimeout) {
+    this.connectTimeout = connectTimeout;
+  }
+
+  public long getReadTimeout() {
+    return readTimeout;
+  }
+
+  public void setReadTimeout(long readTimeout) {
+    this.readTimeout = readTimeout;
+  }
+
+  public long getCallTimeout() {
+    return callTimeout;
+  }
+
+  public void setCallTimeout(long callTimeout) {
+    this.callTimeout = callTimeout;
+  }
+
+  public int getMaxIdleConnections() {
+    return maxIdleConnections;
+  }
+
+  public void setMaxIdleConnections(int maxIdleConnections) {
+    this.maxIdleConnections = maxIdleConnections;
+  }
+
+  public long getKeepAlive() {
+    return keepAlive;
+  }
+
+  public void setKeepAlive(long keepAlive) {
+    this.keepAlive = keepAlive;
+  }
+
+  public int getMaxRequests() {
+    return maxRequests;
+  }
+
+  public void setMaxRequests(int maxRequests) {
+    this.maxRequests = maxRequests;
+  }
+
+  public int getMaxRequestsPerHost() {
+    return maxRequestsPerHost;
+  }
+
+  public void setMaxRequestsPerHost(int maxRequestsPerHost) {
+    this.maxRequestsPerHost = maxRequestsPerHost;
+  }
+
+  public boolean isHttp2Enabled() {
+    return http2Enabled;
+  }
+
+  public void setHttp2Enabled(boolean http2Enabled) {
+    this.http2Enabled = http2Enabled;
+  }
+
+  public boolean isCacheEnabled() {
+    return cacheEnabled;
+  }
+
+  public void setCacheEnabled(boolean cacheEnabled) {
+    this.cacheEnabled = cacheEnabled;
+  }
+
+  public long getCacheTtl() {
+    return cacheTtl;
+  }
+
+  public void setCacheTtl(long cacheTtl) {
+    this.cacheTtl = cacheTtl;
+  }
+
+  public long getCacheMaxBytes() {
+    return cacheMaxBytes;
+  }
+
+  public void setCacheMaxBytes(long cacheMaxBytes) {
+    this.cacheMaxBytes = cacheMaxBytes;
+  }
+}
@@ -0,0 +1,42 @@
+package com.xxs3315.mbl.pdf.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "pdf.shard")
+public class ShardConfig {
+
+  /** 是否将超大批量任务拆分为分片任务 */
+  private boolean enabled = true;
+
+  /** 批量任务页面数超过该值时拆分 */
+  private int pageThreshold = 1000;
+
+  /** 每个分片包含的页面数 */
+  private int pagesPerShard = 200;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getPageThreshold() {
+    return pageThreshold;
+  }
+
+  public void setPageThreshold(int pageThreshold) {
+    this.pageThreshold = pageThreshold;
+  }
+
+  public int getPagesPerShard() {
+    return pagesPerShard;
+  }
+
+  public void setPagesPerShard(int pagesPerShard) {
+    this.pagesPerShard = pagesPerShard;
+  }
+}
@@ -0,0 +1,20 @@
+package com.xxs3315.mbl.pdf.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "pdf.template")
+public class TemplateRegistryConfig {
+
+  /** 已解析模板缓存的最大数量 */
+  private int cacheSize = 100;
+
+  public int getCacheSize() {
+    return cacheSize;
+  }
+
+  public void setCacheSize(int cacheSize) {
+    this.cacheSize = cacheSize;
+  }
+}
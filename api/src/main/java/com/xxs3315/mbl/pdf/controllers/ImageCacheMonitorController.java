@@ -0,0 +1,32 @@
+package com.xxs3315.mbl.pdf.controllers;
+
+import com.xxs3315.mbl.pdf.services.ImageCacheService;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/pdf/image-cache")
+public class ImageCacheMonitorController {
+
+  private final ImageCacheService imageCacheService;
+
+  @Autowired
+  public ImageCacheMonitorController(ImageCacheService imageCacheService) {
+    this.imageCacheService = imageCacheService;
+  }
+
+  /** 获取图片缓存统计信息 */
+  @GetMapping("/stats")
+  public ResponseEntity<Map<String, Object>> getImageCacheStats() {
+    return ResponseEntity.ok(imageCacheService.getCacheStats());
+  }
+
+  /** 清理图片缓存 */
+  @DeleteMapping
+  public ResponseEntity<Map<String, Object>> clearImageCache() {
+    imageCacheService.clearCache();
+    return ResponseEntity.ok(imageCacheService.getCacheStats());
+  }
+}
@@ -1,16 +1,26 @@
 package com.xxs3315.mbl.pdf.controllers;
 
-import com.google.gson.Gson;
 import com.xxs3315.mbl.entity.QueueItem;
 import com.xxs3315.mbl.pdf.dtos.GenPdfProps;
 import com.xxs3315.mbl.pdf.dtos.PdfQueueResponse;
 import com.xxs3315.mbl.pdf.properties.PdfMakerProperties;
+import com.xxs3315.mbl.pdf.services.JobCostEstimator;
+import com.xxs3315.mbl.pdf.services.PdfMakerService;
+import com.xxs3315.mbl.pdf.services.TemplateRegistryService;
+import com.xxs3315.mbl.service.QueueLaneScheduler;
 import com.xxs3315.mbl.service.QueueService;
+import com.xxs3315.mbl.util.JsonUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import net.arnx.jsonic.JSON;
+import java.util.concurrent.Semaphore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,17 +39,28 @@ public class PdfController {
 
   @Autowired private QueueService queueService;
   @Autowired private PdfMakerProperties pdfMakerProperties;
+  @Autowired private PdfMakerService pdfMakerService;
+  @Autowired private TemplateRegistryService templateRegistryService;
+  @Autowired private JobCostEstimator jobCostEstimator;
+  @Autowired private QueueLaneScheduler queueLaneScheduler;
+
+  private Semaphore syncRenderPermits;
+
+  @PostConstruct
+  public void init() {
+    syncRenderPermits = new Semaphore(Math.max(1, pdfMakerProperties.getSyncMaxConcurrent()));
+  }
 
   @PostMapping("/generate")
   public ResponseEntity<?> submitTask(@RequestBody GenPdfProps props) {
     try {
-      String requestData = new Gson().toJson(props);
-      String strictRequestData = JSON.encode(JSON.decode(requestData));
-      QueueItem item = queueService.addToQueue(props.getType(), strictRequestData);
-      PdfQueueResponse response = new PdfQueueResponse();
-      response.setTaskId(item.getTaskId());
-      response.setStatus(item.getStatus().toString());
-      return ResponseEntity.ok(Map.of("success", true, "message", "任务已添加到队列", "data", response));
+      if (!templateExists(props)) {
+        return ResponseEntity.badRequest()
+            .body(Map.of("success", false, "message", "模板不存在: " + props.getTemplateId()));
+      }
+      QueueItem item = queueService.addToQueue(toQueueItem(props));
+      return ResponseEntity.ok(
+          Map.of("success", true, "message", "任务已添加到队列", "data", toResponse(item)));
     } catch (Exception e) {
       e.printStackTrace();
       return ResponseEntity.badRequest()
@@ -47,6 +68,152 @@ public class PdfController {
     }
   }
 
+  /**
+   * 批量提交生成任务，所有任务在一个事务中批量插入，全部成功或全部失败
+   *
+   * <p>单次最多提交 pdf.file.bulk-max-tasks 个任务，返回的任务列表与请求顺序一致。
+   *
+   * @param propsList 生成参数列表
+   */
+  @PostMapping("/generate/bulk")
+  public ResponseEntity<?> submitTasks(@RequestBody List<GenPdfProps> propsList) {
+    try {
+      if (propsList == null || propsList.isEmpty()) {
+        return ResponseEntity.badRequest().body(Map.of("success", false, "message", "任务列表为空"));
+      }
+      if (propsList.size() > pdfMakerProperties.getBulkMaxTasks()) {
+        return ResponseEntity.badRequest()
+            .body(
+                Map.of(
+                    "success",
+                    false,
+                    "message",
+                    "单次最多提交 " + pdfMakerProperties.getBulkMaxTasks() + " 个任务"));
+      }
+      List<QueueItem> items = new ArrayList<>(propsList.size());
+      for (int i = 0; i < propsList.size(); i++) {
+        GenPdfProps props = propsList.get(i);
+        if (!templateExists(props)) {
+          return ResponseEntity.badRequest()
+              .body(
+                  Map.of(
+                      "success",
+                      false,
+                      "message",
+                      "第 " + (i + 1) + " 个任务的模板不存在: " + props.getTemplateId()));
+        }
+        items.add(toQueueItem(props));
+      }
+      List<PdfQueueResponse> responses = new ArrayList<>(items.size());
+      for (QueueItem item : queueService.addAllToQueue(items)) {
+        responses.add(toResponse(item));
+      }
+      return ResponseEntity.ok(
+          Map.of(
+              "success", true, "message", responses.size() + " 个任务已添加到队列", "data", responses));
+    } catch (Exception e) {
+      logger.error("批量添加任务失败", e);
+      return ResponseEntity.badRequest()
+          .body(Map.of("success", false, "message", "批量添加任务失败: " + e.getMessage()));
+    }
+  }
+
+  private boolean templateExists(GenPdfProps props) {
+    return props.getTemplateId() == null
+        || props.getTemplateId().isBlank()
+        || templateRegistryService.exists(props.getTemplateId());
+  }
+
+  /** 将生成参数封装为队列任务 */
+  private QueueItem toQueueItem(GenPdfProps props) {
+    // data 在提交时宽松解析一次，以嵌套JSON对象入队，处理时直接读取，不再逐层转换
+    Map<String, Object> envelope = new LinkedHashMap<>();
+    envelope.put("type", props.getType());
+    boolean templated = props.getTemplateId() != null && !props.getTemplateId().isBlank();
+    if (templated) {
+      envelope.put("templateId", props.getTemplateId());
+    }
+    if (props.getParallelism() != null) {
+      envelope.put("parallelism", props.getParallelism());
+    }
+    Object data = JsonUtil.parse(props.getData());
+    if (!templated && !(data instanceof Map)) {
+      throw new IllegalArgumentException("请求数据不是JSON对象");
+    }
+    envelope.put("data", data);
+
+    // 按页数和表格行数估算成本，交互小任务进入高优先级通道，不被大批量任务阻塞。
+    // 引用模板时直接读取缓存的版式估算，不为估算复制版式和填充数据
+    long estimatedCost =
+        templated
+            ? templateRegistryService.estimateCost(props.getType(), props.getTemplateId(), data)
+            : jobCostEstimator.estimate(props.getType(), (Map) data);
+    QueueItem item = new QueueItem(props.getType(), JsonUtil.write(envelope));
+    item.setEstimatedCost(estimatedCost);
+    // 客户端指定的优先级只能降低通道，不能让大任务进入交互通道
+    int priority = queueLaneScheduler.priorityOf(estimatedCost);
+    if (props.getPriority() != null) {
+      priority = Math.max(priority, QueueLaneScheduler.normalize(props.getPriority()));
+    }
+    item.setPriority(priority);
+    return item;
+  }
+
+  private static PdfQueueResponse toResponse(QueueItem item) {
+    PdfQueueResponse response = new PdfQueueResponse();
+    response.setTaskId(item.getTaskId());
+    response.setStatus(item.getStatus().toString());
+    return response;
+  }
+
+  /**
+   * 同步生成PDF并直接写入响应流，不经过队列、不落盘，适用于单页预览等小任务
+   *
+   * <p>并发数由 pdf.file.sync-max-concurrent 限制，超出时返回429，调用方可改用 /generate 队列接口。
+   *
+   * @param props 生成参数
+   * @param response HTTP响应
+   */
+  @PostMapping("/render")
+  public void renderPdf(@RequestBody GenPdfProps props, HttpServletResponse response)
+      throws IOException {
+    if (!syncRenderPermits.tryAcquire()) {
+      logger.warn("同步生成PDF并发已满: {}", pdfMakerProperties.getSyncMaxConcurrent());
+      response.setHeader(HttpHeaders.WARNING, "同步生成并发已满，请稍后重试或使用队列接口");
+      response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+      return;
+    }
+
+    String filename = "preview_" + System.currentTimeMillis();
+    try {
+      TemplateRegistryService.ResolvedRequest request = templateRegistryService.resolve(props);
+
+      response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+      response.setHeader(
+          HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + ".pdf\"");
+
+      if ("single".equalsIgnoreCase(props.getType())) {
+        pdfMakerService.renderTo(
+            filename, request.page(request.getCurrentPageIndex()), response.getOutputStream());
+      } else if ("batch".equalsIgnoreCase(props.getType())) {
+        pdfMakerService.renderTo(filename, request, response.getOutputStream());
+      } else {
+        response.reset();
+        response.setHeader(HttpHeaders.WARNING, "不支持的生成类型: " + props.getType());
+        response.setStatus(HttpStatus.BAD_REQUEST.value());
+      }
+    } catch (Exception e) {
+      logger.error("同步生成PDF时发生错误: {}", filename, e);
+      if (!response.isCommitted()) {
+        response.reset();
+        response.setHeader(HttpHeaders.WARNING, "生成PDF时发生错误: " + e.getMessage());
+        response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+      }
+    } finally {
+      syncRenderPermits.release();
+    }
+  }
+
   /**
    * 通过任务ID下载PDF文件 只有COMPLETED状态的任务才允许下载
    *
@@ -0,0 +1,42 @@
+package com.xxs3315.mbl.pdf.controllers;
+
+import com.xxs3315.mbl.pdf.services.RemoteFetchService;
+import com.xxs3315.mbl.pdf.services.RemoteJsonCacheService;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/pdf/remote")
+public class RemoteFetchMonitorController {
+
+  private final RemoteFetchService remoteFetchService;
+  private final RemoteJsonCacheService remoteJsonCacheService;
+
+  @Autowired
+  public RemoteFetchMonitorController(
+      RemoteFetchService remoteFetchService, RemoteJsonCacheService remoteJsonCacheService) {
+    this.remoteFetchService = remoteFetchService;
+    this.remoteJsonCacheService = remoteJsonCacheService;
+  }
+
+  /** 获取远程请求和连接池统计信息 */
+  @GetMapping("/stats")
+  public ResponseEntity<Map<String, Object>> getRemoteFetchStats() {
+    return ResponseEntity.ok(remoteFetchService.getStats());
+  }
+
+  /** 获取远程JSON缓存统计信息 */
+  @GetMapping("/cache/stats")
+  public ResponseEntity<Map<String, Object>> getCacheStats() {
+    return ResponseEntity.ok(remoteJsonCacheService.getCacheStats());
+  }
+
+  /** 清理远程JSON缓存 */
+  @DeleteMapping("/cache")
+  public ResponseEntity<Map<String, Object>> clearCache() {
+    remoteJsonCacheService.clearCache();
+    return ResponseEntity.ok(remoteJsonCacheService.getCacheStats());
+  }
+}
@@ -0,0 +1,80 @@
+package com.xxs3315.mbl.pdf.controllers;
+
+import com.xxs3315.mbl.entity.PdfTemplate;
+import com.xxs3315.mbl.pdf.dtos.TemplateUploadProps;
+import com.xxs3315.mbl.pdf.services.TemplateRegistryService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/pdf/templates")
+public class TemplateController {
+  private static final Logger logger = LoggerFactory.getLogger(TemplateController.class);
+
+  @Autowired private TemplateRegistryService templateRegistryService;
+
+  /**
+   * 上传模板版式，相同内容重复上传返回同一个模板ID
+   *
+   * <p>之后 /api/pdf/generate 和 /api/pdf/render 可传入 templateId，data 只需携带以数据源ID为键的数据。
+   */
+  @PostMapping
+  public ResponseEntity<?> registerTemplate(@RequestBody TemplateUploadProps props) {
+    try {
+      PdfTemplate template = templateRegistryService.register(props.getData(), props.getName());
+      return ResponseEntity.ok(
+          Map.of("success", true, "message", "模板已注册", "data", toSummary(template)));
+    } catch (Exception e) {
+      logger.error("注册模板失败", e);
+      return ResponseEntity.badRequest()
+          .body(Map.of("success", false, "message", "注册模板失败: " + e.getMessage()));
+    }
+  }
+
+  /** 获取模板信息（不含版式内容） */
+  @GetMapping("/{templateId}")
+  public ResponseEntity<?> getTemplate(@PathVariable String templateId) {
+    Optional<PdfTemplate> template = templateRegistryService.getTemplate(templateId);
+    if (template.isEmpty()) {
+      return ResponseEntity.notFound().build();
+    }
+    return ResponseEntity.ok(Map.of("success", true, "data", toSummary(template.get())));
+  }
+
+  /** 删除模板 */
+  @DeleteMapping("/{templateId}")
+  public ResponseEntity<?> deleteTemplate(@PathVariable String templateId) {
+    if (!templateRegistryService.delete(templateId)) {
+      return ResponseEntity.notFound().build();
+    }
+    return ResponseEntity.ok(Map.of("success", true, "message", "模板已删除"));
+  }
+
+  /** 获取模板缓存统计信息 */
+  @GetMapping("/cache/stats")
+  public ResponseEntity<Map<String, Object>> getCacheStats() {
+    return ResponseEntity.ok(templateRegistryService.getCacheStats());
+  }
+
+  /** 清理模板缓存 */
+  @DeleteMapping("/cache")
+  public ResponseEntity<Map<String, Object>> clearCache() {
+    templateRegistryService.clearCache();
+    return ResponseEntity.ok(templateRegistryService.getCacheStats());
+  }
+
+  private Map<String, Object> toSummary(PdfTemplate template) {
+    Map<String, Object> summary = new HashMap<>();
+    summary.put("templateId", template.getTemplateId());
+    summary.put("name", template.getName());
+    summary.put("contentSize", template.getContentSize());
+    summary.put("createTime", template.getCreateTime().toString());
+    return summary;
+  }
+}
@@ -12,4 +12,13 @@ public class GenPdfProps {
 
   @NotBlank(message = "not blank")
   private String type;
+
+  /** 引用已注册模板时的模板ID，此时 data 只包含以数据源ID为键的数据 */
+  private String templateId;
+
+  /** 批量生成时本任务并行构建页面集的线程数，为空时使用 pdf.file.batch-parallelism */
+  private Integer parallelism;
+
+  /** 优先级通道（0 交互、1 普通、2 批量），只能低于按预估成本分配的通道，为空时按预估成本分配 */
+  private Integer priority;
 }
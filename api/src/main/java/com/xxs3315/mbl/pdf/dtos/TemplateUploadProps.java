@@ -0,0 +1,15 @@
+package com.xxs3315.mbl.pdf.dtos;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class TemplateUploadProps {
+  /** 版式JSON，与 GenPdfProps.data 格式相同（包含 pages、config 等） */
+  @NotBlank(message = "not blank")
+  private String data;
+
+  private String name;
+}
@@ -7,8 +7,30 @@ import org.springframework.stereotype.Component;
 @ConfigurationProperties(prefix = "pdf.file")
 public class PdfMakerProperties {
   private String outputDir = "C:\\Windows\\Temp\\";
+  /** 表格最多生成的行数，生成的行由表格保留到渲染完成，内存随行数增长，需按堆大小设置 */
   private int tableMaxRecords = 100;
 
+  /** 表格数据流式生成时每批处理的行数，解析后的行数据最多保留一批（不含已生成的单元格） */
+  private int tableChunkSize = 500;
+
+  /** 单遍布局：直接根据表头列宽配置计算表格主体列宽，每个页面集只构建一次 */
+  private boolean singlePassLayout = false;
+
+  /** 同步生成接口的最大并发数，超出时直接拒绝；同步生成逐个构建页面集，不占用队列任务的渲染许可 */
+  private int syncMaxConcurrent = 2;
+
+  /** 批量生成时并行构建页面集的线程数上限，0 表示CPU核数，1 表示逐个构建 */
+  private int batchParallelism = 0;
+
+  /**
+   * 排版渲染（CPU密集）许可总数，0 表示CPU核数；任务按并行构建的工作线程数占用许可，渲染时只占一个，
+   * 等待远程数据不占用名额
+   */
+  private int renderPermits = 0;
+
+  /** 批量提交接口单次最多提交的任务数 */
+  private int bulkMaxTasks = 1000;
+
   public String getOutputDir() {
     return outputDir;
   }
@@ -24,4 +46,52 @@ public class PdfMakerProperties {
   public void setTableMaxRecords(int tableMaxRecords) {
     this.tableMaxRecords = tableMaxRecords;
   }
+
+  public int getTableChunkSize() {
+    return tableChunkSize;
+  }
+
+  public void setTableChunkSize(int tableChunkSize) {
+    this.tableChunkSize = tableChunkSize;
+  }
+
+  public boolean isSinglePassLayout() {
+    return singlePassLayout;
+  }
+
+  public void setSinglePassLayout(boolean singlePassLayout) {
+    this.singlePassLayout = singlePassLayout;
+  }
+
+  public int getSyncMaxConcurrent() {
+    return syncMaxConcurrent;
+  }
+
+  public void setSyncMaxConcurrent(int syncMaxConcurrent) {
+    this.syncMaxConcurrent = syncMaxConcurrent;
+  }
+
+  public int getBatchParallelism() {
+    return batchParallelism;
+  }
+
+  public void setBatchParallelism(int batchParallelism) {
+    this.batchParallelism = batchParallelism;
+  }
+
+  public int getRenderPermits() {
+    return renderPermits;
+  }
+
+  public void setRenderPermits(int renderPermits) {
+    this.renderPermits = renderPermits;
+  }
+
+  public int getBulkMaxTasks() {
+    return bulkMaxTasks;
+  }
+
+  public void setBulkMaxTasks(int bulkMaxTasks) {
+    this.bulkMaxTasks = bulkMaxTasks;
+  }
 }
@@ -0,0 +1,247 @@
+package com.xxs3315.mbl.pdf.services;
+
+import com.xxs3315.mbl.pdf.config.ImageCacheConfig;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * 图片缓存服务
+ *
+ * <p>以图片来源（URL、base64内容哈希或本地文件）加目标尺寸为键，缓存解码并缩放后的最终图片，
+ * 同一图标在表格每一行重复出现时只解码、缩放一次。缓存按像素内存估算限制大小，超出时按最近最少使用淘汰。
+ * URL图片的内容可能在同一URL下更新，超过 pdf.image.url-ttl 后视为未命中并重新下载；
+ * base64和本地文件的键已包含内容哈希或修改时间，不会过期。缓存的图片只读共享，调用方不得修改。
+ */
+@Service
+public class ImageCacheService {
+
+  private static final Logger logger = LoggerFactory.getLogger(ImageCacheService.class);
+
+  private final ImageCacheConfig config;
+
+  // URL图片来源键的前缀
+  private static final String URL_PREFIX = "url:";
+
+  // 访问顺序的LinkedHashMap实现LRU，所有访问都在cache锁内进行
+  private final LinkedHashMap<String, CacheEntry> cache = new LinkedHashMap<>(16, 0.75f, true);
+  private long currentBytes = 0;
+
+  // 缓存统计
+  private final AtomicLong hits = new AtomicLong(0);
+  private final AtomicLong misses = new AtomicLong(0);
+  private final AtomicLong evictions = new AtomicLong(0);
+  private final AtomicLong expirations = new AtomicLong(0);
+
+  @Autowired
+  public ImageCacheService(ImageCacheConfig config) {
+    this.config = config;
+  }
+
+  /** 缓存条目 */
+  private static class CacheEntry {
+    private final BufferedImage image;
+    private final long loadedAt;
+    private final long size;
+
+    CacheEntry(BufferedImage image, long loadedAt) {
+      this.image = image;
+      this.loadedAt = loadedAt;
+      this.size = (long) image.getWidth() * image.getHeight() * 4;
+    }
+  }
+
+  /** 加载并解码原始图片 */
+  @FunctionalInterface
+  public interface ImageLoader {
+    /**
+     * @return 解码后的图片，无法识别的格式返回null
+     */
+    BufferedImage load() throws IOException;
+  }
+
+  /** URL图片的来源键 */
+  public static String urlKey(String url) {
+    return URL_PREFIX + url;
+  }
+
+  /** base64图片的来源键，使用内容哈希避免以整段数据为键 */
+  public static String base64Key(String base64) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      byte[] hash = digest.digest(base64.getBytes(StandardCharsets.US_ASCII));
+      return "base64:" + HexFormat.of().formatHex(hash);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 不可用", e);
+    }
+  }
+
+  /** 本地文件图片的来源键，包含修改时间以便文件替换后失效 */
+  public static String fileKey(String path, long lastModified) {
+    return "file:" + path + "@" + lastModified;
+  }
+
+  /**
+   * 获取解码后的原始尺寸图片
+   *
+   * @param sourceKey 来源键
+   * @param loader 缓存未命中时的加载方法
+   * @return 图片，无法解码时返回null
+   */
+  public BufferedImage getImage(String sourceKey, ImageLoader loader) throws IOException {
+    return getOrLoad(sourceKey + "#original", loader);
+  }
+
+  /**
+   * 获取按目标高度等比例缩放后的图片
+   *
+   * @param sourceKey 来源键
+   * @param targetHeight 目标高度
+   * @param loader 缓存未命中时的加载方法
+   * @return 缩放后的图片，无法解码时返回null
+   */
+  public BufferedImage getScaledToHeight(String sourceKey, int targetHeight, ImageLoader loader)
+      throws IOException {
+    return getOrLoad(
+        sourceKey + "#h" + targetHeight,
+        () -> {
+          BufferedImage original = loader.load();
+          return original == null ? null : scaleToHeight(original, targetHeight);
+        });
+  }
+
+  /**
+   * 获取指定尺寸的空白图片
+   *
+   * @param width 宽度
+   * @param height 高度
+   * @return 空白图片
+   */
+  public BufferedImage getBlankImage(int width, int height) {
+    try {
+      return getOrLoad(
+          "blank:" + width + "x" + height,
+          () -> new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
+    } catch (IOException e) {
+      // 空白图片不会抛出IO异常
+      return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+  }
+
+  private BufferedImage scaleToHeight(BufferedImage original, int targetHeight) {
+    // 根据目标高度计算缩放比例
+    float scale = (float) targetHeight / original.getHeight();
+    int newWidth = Math.max(1, (int) (original.getWidth() * scale));
+    int newHeight = Math.max(1, targetHeight);
+
+    BufferedImage scaled = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g2d = scaled.createGraphics();
+    g2d.drawImage(original, 0, 0, newWidth, newHeight, null);
+    g2d.dispose();
+    return scaled;
+  }
+
+  private BufferedImage getOrLoad(String key, ImageLoader loader) throws IOException {
+    if (!config.isCacheEnabled()) {
+      return loader.load();
+    }
+
+    synchronized (cache) {
+      CacheEntry cached = cache.get(key);
+      if (cached != null && !isExpired(key, cached, System.currentTimeMillis())) {
+        hits.incrementAndGet();
+        return cached.image;
+      }
+    }
+
+    // 在锁外解码，避免阻塞其他图片的读取；并发加载同一图片时以先写入者为准
+    misses.incrementAndGet();
+    BufferedImage image = loader.load();
+    if (image == null) {
+      return null;
+    }
+    return put(key, image);
+  }
+
+  /** URL图片超过有效期后过期，其他来源的键随内容变化，不会过期 */
+  private boolean isExpired(String key, CacheEntry entry, long now) {
+    return key.startsWith(URL_PREFIX) && now - entry.loadedAt >= config.getUrlTtl();
+  }
+
+  private BufferedImage put(String key, BufferedImage image) {
+    long now = System.currentTimeMillis();
+    CacheEntry entry = new CacheEntry(image, now);
+    long maxBytes = config.getCacheMaxBytes();
+    if (entry.size > maxBytes) {
+      logger.debug("图片过大，不缓存: {} ({} bytes)", key, entry.size);
+      return image;
+    }
+    synchronized (cache) {
+      CacheEntry existing = cache.get(key);
+      if (existing != null) {
+        if (!isExpired(key, existing, now)) {
+          return existing.image;
+        }
+        // 过期条目由新下载的图片替换
+        cache.remove(key);
+        currentBytes -= existing.size;
+        expirations.incrementAndGet();
+      }
+      cache.put(key, entry);
+      currentBytes += entry.size;
+
+      // 超出容量时淘汰最近最少使用的条目
+      Iterator<Map.Entry<String, CacheEntry>> it = cache.entrySet().iterator();
+      while (currentBytes > maxBytes && it.hasNext()) {
+        Map.Entry<String, CacheEntry> eldest = it.next();
+        currentBytes -= eldest.getValue().size;
+        it.remove();
+        evictions.incrementAndGet();
+      }
+    }
+    return image;
+  }
+
+  /** 清空缓存 */
+  public void clearCache() {
+    synchronized (cache) {
+      cache.clear();
+      currentBytes = 0;
+    }
+    logger.info("图片缓存已清空");
+  }
+
+  /** 获取缓存统计信息 */
+  public Map<String, Object> getCacheStats() {
+    Map<String, Object> stats = new ConcurrentHashMap<>();
+    synchronized (cache) {
+      stats.put("cachedImages", cache.size());
+      stats.put("cachedBytes", currentBytes);
+    }
+    long hitCount = hits.get();
+    long missCount = misses.get();
+    stats.put("enabled", config.isCacheEnabled());
+    stats.put("maxBytes", config.getCacheMaxBytes());
+    stats.put("urlTtlMs", config.getUrlTtl());
+    stats.put("expirations", expirations.get());
+    stats.put("hits", hitCount);
+    stats.put("misses", missCount);
+    stats.put("evictions", evictions.get());
+    stats.put(
+        "hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+    return stats;
+  }
+}
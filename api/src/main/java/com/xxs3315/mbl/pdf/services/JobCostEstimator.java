@@ -0,0 +1,144 @@
+package com.xxs3315.mbl.pdf.services;
+
+import com.xxs3315.mbl.pdf.properties.PdfMakerProperties;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * 任务成本估算
+ *
+ * <p>提交时按页面数和表格行数估算处理成本，单位约等于生成一行表格的耗时：每页计 {@link #PAGE_COST}，
+ * 本地数据表格按实际行数，远程数据表格按行数上限计算。队列据此分配优先级通道。
+ */
+@Service
+public class JobCostEstimator {
+
+  /** 每页的固定成本（页面布局、页眉页脚等） */
+  public static final long PAGE_COST = 20;
+
+  @Autowired private PdfMakerProperties pdfMakerProperties;
+
+  /**
+   * 估算生成请求的成本
+   *
+   * @param type 生成类型（single 只生成当前页）
+   * @param requestData 请求数据，包含 pages
+   * @return 预估成本
+   */
+  public long estimate(String type, Map<?, ?> requestData) {
+    if (requestData == null || !(requestData.get("pages") instanceof List)) {
+      return PAGE_COST;
+    }
+    List<?> pages = (List<?>) requestData.get("pages");
+    if ("single".equalsIgnoreCase(type)) {
+      Object index = requestData.get("currentPageIndex");
+      int currentPageIndex = index instanceof Number ? ((Number) index).intValue() : 0;
+      if (currentPageIndex >= 0 && currentPageIndex < pages.size()) {
+        return estimatePages(List.of(pages.get(currentPageIndex)));
+      }
+    }
+    return estimatePages(pages);
+  }
+
+  /**
+   * 估算引用模板的生成请求的成本
+   *
+   * <p>直接读取模板版式，不复制版式、不填充数据；提交的数据中每个数组按元素数计入表格行数。
+   *
+   * @param type 生成类型（single 只生成当前页）
+   * @param layout 模板版式，只读
+   * @param data 按绑定ID组织的数据，可为null
+   * @return 预估成本
+   */
+  public long estimate(String type, Map<?, ?> layout, Object data) {
+    long cost = estimate(type, layout);
+    if (data instanceof Map) {
+      int maxRecords = pdfMakerProperties.getTableMaxRecords();
+      for (Object value : ((Map<?, ?>) data).values()) {
+        if (value instanceof List) {
+          cost += Math.min(((List<?>) value).size(), maxRecords);
+        } else if (value instanceof String) {
+          cost += countArrayElements((String) value, maxRecords);
+        }
+      }
+    }
+    return cost;
+  }
+
+  /**
+   * 估算页面列表的成本
+   *
+   * @param pages 页面列表
+   * @return 预估成本
+   */
+  public long estimatePages(List<?> pages) {
+    long cost = 0;
+    for (Object page : pages) {
+      cost += PAGE_COST + countTableRows(page);
+    }
+    return cost;
+  }
+
+  /** 统计页面中表格数据绑定的行数，每个表格不超过行数上限 */
+  private long countTableRows(Object node) {
+    long rows = 0;
+    if (node instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) node;
+      if ("list".equals(map.get("shape")) && map.get("value") instanceof String) {
+        int maxRecords = pdfMakerProperties.getTableMaxRecords();
+        if ("data".equals(map.get("request"))) {
+          rows += countArrayElements((String) map.get("value"), maxRecords);
+        } else if ("url".equals(map.get("request"))) {
+          rows += maxRecords;
+        }
+      }
+      for (Object child : map.values()) {
+        rows += countTableRows(child);
+      }
+    } else if (node instanceof List) {
+      for (Object child : (List<?>) node) {
+        rows += countTableRows(child);
+      }
+    }
+    return rows;
+  }
+
+  /** 不解析元素内容，只扫描字符统计JSON数组的顶层元素数，达到上限后停止 */
+  private static int countArrayElements(String json, int limit) {
+    int depth = 0;
+    int count = 0;
+    boolean inString = false;
+    boolean pending = false;
+    for (int i = 0; i < json.length() && count < limit; i++) {
+      char c = json.charAt(i);
+      if (inString) {
+        if (c == '\\') {
+          i++;
+        } else if (c == '"') {
+          inString = false;
+        }
+        continue;
+      }
+      if (c == '"') {
+        inString = true;
+        pending |= depth == 1;
+      } else if (c == '[' || c == '{') {
+        pending |= depth == 1;
+        depth++;
+      } else if (c == ']' || c == '}') {
+        depth--;
+      } else if (c == ',' && depth == 1) {
+        count += pending ? 1 : 0;
+        pending = false;
+      } else if (depth == 1 && !Character.isWhitespace(c)) {
+        pending = true;
+      }
+    }
+    if (pending && count < limit) {
+      count++;
+    }
+    return count;
+  }
+}
@@ -1,5 +1,6 @@
 package com.xxs3315.mbl.pdf.services;
 
+import com.helger.pdflayout.base.PLColor;
 import com.helger.pdflayout.base.PLPageSet;
 import com.helger.pdflayout.spec.PreloadFont;
 import java.util.Map;
@@ -12,56 +13,58 @@ public class PageConfigService {
 
   @Autowired private FontService fontService;
 
+  @Autowired private StyleService styleService;
+
   /** 解析页面配置 */
   public PageConfig parsePageConfig(Map<String, Object> propsMap) {
     // 解析页面尺寸和方向
-    String orientation = String.valueOf(propsMap.get("orientation"));
-    String rectangleStr = String.valueOf(propsMap.get("rectangle"));
-    PDRectangle rectangle = getPDRectangle(rectangleStr);
+    PDRectangle rectangle = getPDRectangle(getString(propsMap, "rectangle"));
 
     float width = rectangle.getWidth();
     float height = rectangle.getHeight();
 
-    if ("landscape".equals(orientation)) {
+    if ("landscape".equals(getString(propsMap, "orientation"))) {
       width = rectangle.getHeight();
       height = rectangle.getWidth();
     }
 
     // 解析边距
-    float marginTop = Float.parseFloat(String.valueOf(propsMap.get("mTop")));
-    float marginRight = Float.parseFloat(String.valueOf(propsMap.get("mRight")));
-    float marginBottom = Float.parseFloat(String.valueOf(propsMap.get("mBottom")));
-    float marginLeft = Float.parseFloat(String.valueOf(propsMap.get("mLeft")));
+    float marginTop = getFloat(propsMap, "mTop");
+    float marginRight = getFloat(propsMap, "mRight");
+    float marginBottom = getFloat(propsMap, "mBottom");
+    float marginLeft = getFloat(propsMap, "mLeft");
 
     // 解析内边距
-    float paddingTop = Float.parseFloat(String.valueOf(propsMap.get("mTopBody")));
-    float paddingRight = Float.parseFloat(String.valueOf(propsMap.get("mRightBody")));
-    float paddingBottom = Float.parseFloat(String.valueOf(propsMap.get("mBottomBody")));
-    float paddingLeft = Float.parseFloat(String.valueOf(propsMap.get("mLeftBody")));
+    float paddingTop = getFloat(propsMap, "mTopBody");
+    float paddingRight = getFloat(propsMap, "mRightBody");
+    float paddingBottom = getFloat(propsMap, "mBottomBody");
+    float paddingLeft = getFloat(propsMap, "mLeftBody");
 
     // 解析页眉边距
-    float marginTopHeader = Float.parseFloat(String.valueOf(propsMap.get("mTopHeader")));
-    float marginRightHeader = Float.parseFloat(String.valueOf(propsMap.get("mRightHeader")));
-    float marginBottomHeader = Float.parseFloat(String.valueOf(propsMap.get("mBottomHeader")));
-    float marginLeftHeader = Float.parseFloat(String.valueOf(propsMap.get("mLeftHeader")));
+    float marginTopHeader = getFloat(propsMap, "mTopHeader");
+    float marginRightHeader = getFloat(propsMap, "mRightHeader");
+    float marginBottomHeader = getFloat(propsMap, "mBottomHeader");
+    float marginLeftHeader = getFloat(propsMap, "mLeftHeader");
 
     // 解析页脚边距
-    float marginTopFooter = Float.parseFloat(String.valueOf(propsMap.get("mTopFooter")));
-    float marginRightFooter = Float.parseFloat(String.valueOf(propsMap.get("mRightFooter")));
-    float marginBottomFooter = Float.parseFloat(String.valueOf(propsMap.get("mBottomFooter")));
-    float marginLeftFooter = Float.parseFloat(String.valueOf(propsMap.get("mLeftFooter")));
+    float marginTopFooter = getFloat(propsMap, "mTopFooter");
+    float marginRightFooter = getFloat(propsMap, "mRightFooter");
+    float marginBottomFooter = getFloat(propsMap, "mBottomFooter");
+    float marginLeftFooter = getFloat(propsMap, "mLeftFooter");
 
     // 解析其他配置
-    boolean hideHeaderOnFirstPage =
-        Boolean.parseBoolean(String.valueOf(propsMap.get("hideHeaderOnFirstPage")));
-    boolean hideFooterOnFirstPage =
-        Boolean.parseBoolean(String.valueOf(propsMap.get("hideFooterOnFirstPage")));
-
-    String defaultFontName = String.valueOf(propsMap.get("defaultPageRootFont"));
-    PreloadFont defaultFont = fontService.getFont(defaultFontName);
-    String defaultFontSize = String.valueOf(propsMap.get("defaultPageRootFontSize"));
-    String defaultFontColor = String.valueOf(propsMap.get("defaultPageRootFontColor"));
-    String defaultBackground = String.valueOf(propsMap.get("defaultPageRootBackgroundColor"));
+    boolean hideHeaderOnFirstPage = getBoolean(propsMap, "hideHeaderOnFirstPage");
+    boolean hideFooterOnFirstPage = getBoolean(propsMap, "hideFooterOnFirstPage");
+
+    PreloadFont defaultFont = fontService.getFont(getString(propsMap, "defaultPageRootFont"));
+    float defaultFontSize = getFloat(propsMap, "defaultPageRootFontSize");
+    PLColor defaultFontColor =
+        styleService.createColorFromHex(getString(propsMap, "defaultPageRootFontColor"));
+    if (defaultFontColor == null) {
+      defaultFontColor = PLColor.BLACK;
+    }
+    PLColor defaultBackground =
+        styleService.createColorFromHex(getString(propsMap, "defaultPageRootBackgroundColor"));
 
     return new PageConfig(
         rectangle,
@@ -106,8 +109,34 @@ public class PageConfigService {
             config.getPaddingLeft());
   }
 
+  /** 读取数值配置，兼容数字和数字字符串 */
+  private float getFloat(Map<String, Object> propsMap, String key) {
+    Object value = propsMap.get(key);
+    if (value instanceof Number number) {
+      return number.floatValue();
+    }
+    if (value instanceof String text && !text.isBlank()) {
+      return Float.parseFloat(text.trim());
+    }
+    throw new IllegalArgumentException("页面配置缺少数值: " + key);
+  }
+
+  /** 读取布尔配置，兼容布尔值和 "true"/"false" 字符串 */
+  private boolean getBoolean(Map<String, Object> propsMap, String key) {
+    Object value = propsMap.get(key);
+    return value instanceof Boolean flag ? flag : Boolean.parseBoolean(getString(propsMap, key));
+  }
+
+  private String getString(Map<String, Object> propsMap, String key) {
+    Object value = propsMap.get(key);
+    return value == null ? null : String.valueOf(value);
+  }
+
   /** 根据字符串获取PDRectangle */
   private PDRectangle getPDRectangle(String rectangleStr) {
+    if (rectangleStr == null) {
+      return PDRectangle.A4;
+    }
     return switch (rectangleStr) {
       case "LETTER" -> PDRectangle.LETTER;
       case "TABLOID" -> PDRectangle.TABLOID;
@@ -146,9 +175,9 @@ public class PageConfigService {
     private final boolean hideHeaderOnFirstPage;
     private final boolean hideFooterOnFirstPage;
     private final PreloadFont defaultFont;
-    private final String defaultFontSize;
-    private final String defaultFontColor;
-    private final String defaultBackground;
+    private final float defaultFontSize;
+    private final PLColor defaultFontColor;
+    private final PLColor defaultBackground;
 
     public PageConfig(
         PDRectangle rectangle,
@@ -173,9 +202,9 @@ public class PageConfigService {
         boolean hideHeaderOnFirstPage,
         boolean hideFooterOnFirstPage,
         PreloadFont defaultFont,
-        String defaultFontSize,
-        String defaultFontColor,
-        String defaultBackground) {
+        float defaultFontSize,
+        PLColor defaultFontColor,
+        PLColor defaultBackground) {
       this.rectangle = rectangle;
       this.width = width;
       this.height = height;
@@ -292,15 +321,16 @@ public class PageConfigService {
       return defaultFont;
     }
 
-    public String getDefaultFontSize() {
+    public float getDefaultFontSize() {
       return defaultFontSize;
     }
 
-    public String getDefaultFontColor() {
+    public PLColor getDefaultFontColor() {
       return defaultFontColor;
     }
 
-    public String getDefaultBackground() {
+    /** 默认背景色，未设置或透明时为null */
+    public PLColor getDefaultBackground() {
       return defaultBackground;
     }
   }
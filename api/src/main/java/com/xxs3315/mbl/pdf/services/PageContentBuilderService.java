@@ -1,8 +1,5 @@
 package com.xxs3315.mbl.pdf.services;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
 import com.helger.pdflayout.base.IPLRenderableObject;
 import com.helger.pdflayout.base.PLColor;
 import com.helger.pdflayout.element.box.PLBox;
@@ -15,22 +12,22 @@ import com.helger.pdflayout.element.text.PLText;
 import com.helger.pdflayout.element.vbox.PLVBox;
 import com.helger.pdflayout.spec.*;
 import com.xxs3315.mbl.pdf.properties.PdfMakerProperties;
+import com.xxs3315.mbl.pdf.template.CellValue;
+import com.xxs3315.mbl.pdf.template.ElementWidth;
+import com.xxs3315.mbl.pdf.template.TableSpec;
+import com.xxs3315.mbl.pdf.template.TemplateNode;
+import com.xxs3315.mbl.pdf.template.TemplateSection;
+import com.xxs3315.mbl.pdf.template.TextStyle;
+import com.xxs3315.mbl.util.JsonUtil;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.lang.reflect.Type;
+import java.io.StringReader;
 import java.util.*;
 import java.util.Base64;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 import javax.imageio.ImageIO;
-import net.arnx.jsonic.JSON;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -49,58 +46,52 @@ public class PageContentBuilderService {
 
   @Autowired private PdfMakerProperties pdfMakerProperties;
 
+  @Autowired private RemotePrefetchService remotePrefetchService;
+  @Autowired private ImageCacheService imageCacheService;
+
   /** 构建页面头部 */
   public PLVBox buildPageHeader(
-      List<Object> pageHeaderContent,
+      TemplateSection pageHeaderSection,
       PageConfigService.PageConfig config,
       Map<String, IPLRenderableObject<?>> generatedObjects,
       boolean isGenerated)
       throws IOException {
     PLVBox pageHeader = new PLVBox().setID("pageheader");
 
-    Map<String, Map<String, Object>> pageHeaderMap = convertListToMap(pageHeaderContent);
-    String key = "page-header-root";
-    Map<String, Object> value = pageHeaderMap.get(key);
-
-    if (value != null
-        && value.containsKey("children")
-        && !((List<?>) value.get("children")).isEmpty()) {
-      List<String> children = (List<String>) value.get("children");
-      if (!children.isEmpty()) {
-        List<IPLRenderableObject<?>> rows =
-            buildContentRows(
-                children,
-                pageHeaderMap,
-                config,
-                false,
-                null,
-                null,
-                null,
-                generatedObjects,
-                null,
-                null,
-                isGenerated);
-
-        for (IPLRenderableObject<?> row : rows) {
-          pageHeader.addRow(row);
-        }
+    if (!pageHeaderSection.isEmpty()) {
+      List<TemplateNode> children = pageHeaderSection.getRootChildren();
+      List<IPLRenderableObject<?>> rows =
+          buildContentRows(
+              children,
+              config,
+              false,
+              null,
+              null,
+              0f,
+              generatedObjects,
+              null,
+              null,
+              isGenerated);
 
-        // 设置边距
-        if (pageHeader.getFirstRowElement() != null) {
-          ((PLTable) pageHeader.getFirstRowElement()).setMarginTop(config.getMarginTopHeader());
-        }
-        if (pageHeader.getLastRowElement() != null) {
-          ((PLTable) pageHeader.getLastRowElement())
-              .setMarginBottom(config.getMarginBottomHeader());
-        }
+      for (IPLRenderableObject<?> row : rows) {
+        pageHeader.addRow(row);
+      }
 
-        // 添加分隔线
-        PLTable dividerLine = new PLTable(WidthSpec.star());
-        dividerLine.addRow(
-            new PLTableCell(new PLText("", new FontSpec(PreloadFont.REGULAR, 1)))
-                .setBorderBottom(new BorderStyleSpec(PLColor.BLACK, 1f)));
-        pageHeader.addRow(dividerLine);
+      // 设置边距
+      if (pageHeader.getFirstRowElement() != null) {
+        ((PLTable) pageHeader.getFirstRowElement()).setMarginTop(config.getMarginTopHeader());
+      }
+      if (pageHeader.getLastRowElement() != null) {
+        ((PLTable) pageHeader.getLastRowElement())
+            .setMarginBottom(config.getMarginBottomHeader());
       }
+
+      // 添加分隔线
+      PLTable dividerLine = new PLTable(WidthSpec.star());
+      dividerLine.addRow(
+          new PLTableCell(new PLText("", new FontSpec(PreloadFont.REGULAR, 1)))
+              .setBorderBottom(new BorderStyleSpec(PLColor.BLACK, 1f)));
+      pageHeader.addRow(dividerLine);
     }
 
     return pageHeader;
@@ -108,55 +99,46 @@ public class PageContentBuilderService {
 
   /** 构建页面底部 */
   public PLVBox buildPageFooter(
-      List<Object> pageFooterContent,
+      TemplateSection pageFooterSection,
       PageConfigService.PageConfig config,
       Map<String, IPLRenderableObject<?>> generatedObjects,
       boolean isGenerated)
       throws IOException {
     PLVBox pageFooter = new PLVBox().setID("pagefooter");
 
-    Map<String, Map<String, Object>> pageFooterMap = convertListToMap(pageFooterContent);
-    String key = "page-footer-root";
-    Map<String, Object> value = pageFooterMap.get(key);
-
-    if (value != null
-        && value.containsKey("children")
-        && !((List<?>) value.get("children")).isEmpty()) {
-      List<String> children = (List<String>) value.get("children");
-      if (!children.isEmpty()) {
-        // 添加分隔线
-        PLTable dividerLine = new PLTable(WidthSpec.star());
-        dividerLine.addRow(
-            new PLTableCell(new PLText("", new FontSpec(PreloadFont.REGULAR, 1)))
-                .setBorderTop(new BorderStyleSpec(PLColor.BLACK, 1f)));
-        pageFooter.addRow(dividerLine);
-
-        List<IPLRenderableObject<?>> rows =
-            buildContentRows(
-                children,
-                pageFooterMap,
-                config,
-                false,
-                null,
-                null,
-                null,
-                generatedObjects,
-                null,
-                null,
-                isGenerated);
-
-        for (IPLRenderableObject<?> row : rows) {
-          pageFooter.addRow(row);
-        }
+    if (!pageFooterSection.isEmpty()) {
+      List<TemplateNode> children = pageFooterSection.getRootChildren();
+      // 添加分隔线
+      PLTable dividerLine = new PLTable(WidthSpec.star());
+      dividerLine.addRow(
+          new PLTableCell(new PLText("", new FontSpec(PreloadFont.REGULAR, 1)))
+              .setBorderTop(new BorderStyleSpec(PLColor.BLACK, 1f)));
+      pageFooter.addRow(dividerLine);
 
-        // 设置边距
-        if (pageFooter.getFirstRowElement() != null) {
-          ((PLTable) pageFooter.getFirstRowElement()).setMarginTop(config.getMarginTopFooter());
-        }
-        if (pageFooter.getLastRowElement() != null) {
-          ((PLTable) pageFooter.getLastRowElement())
-              .setMarginBottom(config.getMarginBottomFooter());
-        }
+      List<IPLRenderableObject<?>> rows =
+          buildContentRows(
+              children,
+              config,
+              false,
+              null,
+              null,
+              0f,
+              generatedObjects,
+              null,
+              null,
+              isGenerated);
+
+      for (IPLRenderableObject<?> row : rows) {
+        pageFooter.addRow(row);
+      }
+
+      // 设置边距
+      if (pageFooter.getFirstRowElement() != null) {
+        ((PLTable) pageFooter.getFirstRowElement()).setMarginTop(config.getMarginTopFooter());
+      }
+      if (pageFooter.getLastRowElement() != null) {
+        ((PLTable) pageFooter.getLastRowElement())
+            .setMarginBottom(config.getMarginBottomFooter());
       }
     }
 
@@ -165,33 +147,24 @@ public class PageContentBuilderService {
 
   /** 构建页面主体 */
   public List<IPLRenderableObject<?>> buildPageBody(
-      List<Object> pageBodyContent,
+      TemplateSection pageBodySection,
       PageConfigService.PageConfig config,
       Map<String, IPLRenderableObject<?>> generatedObjects,
       boolean isGenerated)
       throws IOException {
-    Map<String, Map<String, Object>> pageBodyMap = convertListToMap(pageBodyContent);
-    String key = "page-body-root";
-    Map<String, Object> value = pageBodyMap.get(key);
-
-    if (value != null
-        && value.containsKey("children")
-        && !((List<?>) value.get("children")).isEmpty()) {
-      List<String> children = (List<String>) value.get("children");
-      if (!children.isEmpty()) {
-        return buildContentRows(
-            children,
-            pageBodyMap,
-            config,
-            false,
-            null,
-            null,
-            null,
-            generatedObjects,
-            null,
-            null,
-            isGenerated);
-      }
+    if (!pageBodySection.isEmpty()) {
+      List<TemplateNode> children = pageBodySection.getRootChildren();
+      return buildContentRows(
+          children,
+          config,
+          false,
+          null,
+          null,
+          0f,
+          generatedObjects,
+          null,
+          null,
+          isGenerated);
     }
 
     return new ArrayList<>();
@@ -199,13 +172,12 @@ public class PageContentBuilderService {
 
   /** 构建内容行 */
   private List<IPLRenderableObject<?>> buildContentRows(
-      List<String> keys,
-      Map<String, Map<String, Object>> contentMap,
+      List<TemplateNode> nodes,
       PageConfigService.PageConfig config,
       boolean isTable,
       EPLTableGridType gridType,
       BorderStyleSpec borderStyleSpec,
-      String gap,
+      float gap,
       Map<String, IPLRenderableObject<?>> generatedObjects,
       String parentContainerType, // 新增
       String tableId, // 新增
@@ -213,16 +185,14 @@ public class PageContentBuilderService {
       throws IOException {
     List<IPLRenderableObject<?>> rows = new LinkedList<>();
 
-    for (String key : keys) {
-      Map<String, Object> elementMap = contentMap.get(key);
-      String category = (String) elementMap.get("cat");
+    for (TemplateNode node : nodes) {
+      String id = node.getId();
 
-      switch (category) {
-        case "container":
+      switch (node.getType()) {
+        case CONTAINER:
           rows.addAll(
               buildContainerElement(
-                  elementMap,
-                  contentMap,
+                  node,
                   config,
                   isTable,
                   gridType,
@@ -233,68 +203,69 @@ public class PageContentBuilderService {
                   tableId,
                   isGenerated));
           break;
-        case "text":
+        case TEXT:
           if (isTable) {
-            IPLRenderableObject<?> tableTextElement =
-                buildTableTextElement(elementMap, config, gap);
+            IPLRenderableObject<?> tableTextElement = buildTableTextElement(node, gap);
             rows.add(tableTextElement);
             if (generatedObjects != null
                 && !isGenerated
-                && elementMap.containsKey("id")
+                && id != null
                 && "horizontal".equals(parentContainerType)) {
-              generatedObjects.put(tableId + "-" + elementMap.get("id"), tableTextElement);
-              generatedObjects.put(tableId + "-full-" + elementMap.get("id"), tableTextElement);
+              generatedObjects.put(tableId + "-" + id, tableTextElement);
+              generatedObjects.put(tableId + "-full-" + id, tableTextElement);
             }
             if (generatedObjects != null
                 && !isGenerated
-                && elementMap.containsKey("id")
+                && id != null
                 && "vertical".equals(parentContainerType)) {
-              generatedObjects.put(tableId + "-full-" + elementMap.get("id"), tableTextElement);
+              generatedObjects.put(tableId + "-full-" + id, tableTextElement);
             }
           } else {
-            IPLRenderableObject<?> textElement = buildTextElement(elementMap, config);
+            IPLRenderableObject<?> textElement = buildTextElement(node);
             rows.add(textElement);
             //            if (generatedObjects != null && elementMap.containsKey("id")) {
             //              generatedObjects.put((String) elementMap.get("id"), textElement);
             //            }
           }
           break;
-        case "image":
-          IPLRenderableObject<?> imageElement = buildImageElement(elementMap, config);
+        case IMAGE:
+          IPLRenderableObject<?> imageElement = buildImageElement(node);
           rows.add(imageElement);
           //          if (generatedObjects != null && elementMap.containsKey("id")) {
           //            generatedObjects.put((String) elementMap.get("id"), imageElement);
           //          }
           break;
-        case "placeholder":
-          IPLRenderableObject<?> placeholderElement = buildPlaceholderElement(elementMap, config);
+        case PLACEHOLDER:
+          IPLRenderableObject<?> placeholderElement = buildPlaceholderElement(node);
           rows.add(placeholderElement);
           //          if (generatedObjects != null && elementMap.containsKey("id")) {
           //            generatedObjects.put((String) elementMap.get("id"), placeholderElement);
           //          }
           break;
-        case "page-break":
+        case PAGE_BREAK:
           IPLRenderableObject<?> pageBreakElement = elementBuilderService.buildPageBreak();
           rows.add(pageBreakElement);
           //          if (generatedObjects != null && elementMap.containsKey("id")) {
           //            generatedObjects.put((String) elementMap.get("id"), pageBreakElement);
           //          }
           break;
-        case "page-number":
-          IPLRenderableObject<?> pageNumberElement = buildPageNumberElement(elementMap, config);
+        case PAGE_NUMBER:
+          IPLRenderableObject<?> pageNumberElement = buildPageNumberElement(node);
           rows.add(pageNumberElement);
           //          if (generatedObjects != null && elementMap.containsKey("id")) {
           //            generatedObjects.put((String) elementMap.get("id"), pageNumberElement);
           //          }
           break;
-        case "plugin-table":
+        case TABLE:
           IPLRenderableObject<?> tableElement =
-              buildTableElement(elementMap, contentMap, config, generatedObjects, isGenerated);
+              buildTableElement(node, config, generatedObjects, isGenerated);
           rows.add(tableElement);
-          if (generatedObjects != null && !isGenerated && elementMap.containsKey("id")) {
-            generatedObjects.put("table-" + elementMap.get("id"), tableElement);
+          if (generatedObjects != null && !isGenerated && id != null) {
+            generatedObjects.put("table-" + id, tableElement);
           }
           break;
+        default:
+          break;
       }
     }
 
@@ -303,20 +274,19 @@ public class PageContentBuilderService {
 
   /** 构建容器元素 */
   private List<IPLRenderableObject<?>> buildContainerElement(
-      Map<String, Object> elementMap,
-      Map<String, Map<String, Object>> contentMap,
+      TemplateNode node,
       PageConfigService.PageConfig config,
       boolean isTable,
       EPLTableGridType gridType,
       BorderStyleSpec borderStyleSpec,
-      String gap,
+      float gap,
       Map<String, IPLRenderableObject<?>> generatedObjects,
       String parentContainerType, // 新增
       String tableId, // 新增
       boolean isGenerated)
       throws IOException {
-    List<String> children = (List<String>) elementMap.get("children");
-    String direction = (String) elementMap.get("direction");
+    List<TemplateNode> children = node.getChildren();
+    String direction = node.getDirection();
 
     if (children.isEmpty()) {
       return new ArrayList<>();
@@ -325,7 +295,6 @@ public class PageContentBuilderService {
     if ("vertical".equals(direction)) {
       return buildVerticalContainer(
           children,
-          contentMap,
           config,
           isTable,
           gridType,
@@ -338,9 +307,8 @@ public class PageContentBuilderService {
     } else if ("horizontal".equals(direction)) {
       return buildHorizontalContainer(
           children,
-          contentMap,
           config,
-          elementMap,
+          node,
           isTable,
           gridType,
           borderStyleSpec,
@@ -356,13 +324,12 @@ public class PageContentBuilderService {
 
   /** 构建垂直容器 */
   private List<IPLRenderableObject<?>> buildVerticalContainer(
-      List<String> children,
-      Map<String, Map<String, Object>> contentMap,
+      List<TemplateNode> children,
       PageConfigService.PageConfig config,
       boolean isTable,
       EPLTableGridType gridType,
       BorderStyleSpec borderStyleSpec,
-      String gap,
+      float gap,
       Map<String, IPLRenderableObject<?>> generatedObjects,
       String parentContainerType, // 新增
       String tableId, // 新增
@@ -371,7 +338,6 @@ public class PageContentBuilderService {
     List<IPLRenderableObject<?>> subRows =
         buildContentRows(
             children,
-            contentMap,
             config,
             isTable,
             gridType,
@@ -396,14 +362,13 @@ public class PageContentBuilderService {
 
   /** 构建水平容器 */
   private List<IPLRenderableObject<?>> buildHorizontalContainer(
-      List<String> children,
-      Map<String, Map<String, Object>> contentMap,
+      List<TemplateNode> children,
       PageConfigService.PageConfig config,
-      Map<String, Object> elementMap,
+      TemplateNode node,
       boolean isTable,
       EPLTableGridType gridType,
       BorderStyleSpec borderStyleSpec,
-      String gap,
+      float gap,
       Map<String, IPLRenderableObject<?>> generatedObjects,
       String parentContainerType, // 新增
       String tableId, // 新增
@@ -412,24 +377,15 @@ public class PageContentBuilderService {
     WidthSpec[] widthSpecs = new WidthSpec[children.size()];
 
     for (int i = 0; i < children.size(); i++) {
-      Map<String, Object> childMap = contentMap.get(children.get(i));
-      boolean wildStar = (Boolean) childMap.get("wildStar");
-      float flexValue = ((Double) childMap.get("flexValue")).floatValue();
-      String flexUnit = (String) childMap.get("flexUnit");
-
-      widthSpecs[i] =
-          wildStar
-              ? WidthSpec.star()
-              : ("%".equals(flexUnit) ? WidthSpec.perc(flexValue) : WidthSpec.abs(flexValue));
+      widthSpecs[i] = children.get(i).getWidthSpec();
     }
 
     PLTable rowTable = new PLTable(widthSpecs);
-    EVertAlignment alignmentVertical = styleService.getVerticalAlignment(elementMap);
+    EVertAlignment alignmentVertical = node.getVertAlign();
 
     List<IPLRenderableObject<?>> subCols =
         buildContentRows(
             children,
-            contentMap,
             config,
             isTable,
             gridType,
@@ -443,13 +399,9 @@ public class PageContentBuilderService {
 
     for (int i = 0; i < subCols.size(); i++) {
       cells[i] = new PLTableCell(subCols.get(i)).setVertAlign(alignmentVertical);
-      if (contentMap.get(children.get(i)).containsKey("background")) {
-        PLColor bgColor =
-            styleService.createColorFromHex(
-                (String) contentMap.get(children.get(i)).get("background"));
-        if (bgColor != null) {
-          cells[i].setFillColor(bgColor);
-        }
+      PLColor bgColor = children.get(i).getBackground();
+      if (bgColor != null) {
+        cells[i].setFillColor(bgColor);
       }
     }
 
@@ -461,42 +413,24 @@ public class PageContentBuilderService {
   }
 
   /** 构建文本元素 */
-  private PLTable buildTextElement(
-      Map<String, Object> elementMap, PageConfigService.PageConfig config) {
+  private PLTable buildTextElement(TemplateNode node) {
     PLTable rowTable = new PLTable(WidthSpec.star());
-    EHorzAlignment alignment = styleService.getHorizontalAlignment(elementMap);
-
-    if (elementMap.containsKey("isHyperlink")
-        && elementMap.get("isHyperlink") instanceof Boolean
-        && (Boolean) elementMap.get("isHyperlink")) {}
-
-    PLText text =
-        elementBuilderService.buildTextElement(
-            alignment,
-            elementMap,
-            config.getDefaultFont(),
-            config.getDefaultFontSize(),
-            config.getDefaultFontColor(),
-            config.getDefaultBackground());
-
-    if (elementMap.containsKey("isHyperlink")
-        && elementMap.get("isHyperlink") instanceof Boolean
-        && (Boolean) elementMap.get("isHyperlink")) {
+    EHorzAlignment alignment = node.getHorzAlign();
+
+    PLText text = elementBuilderService.buildTextElement(node);
+
+    float[] padding = node.getPadding();
+    if (node.isHyperlink()) {
       PLExternalLink hyperlink =
           new PLExternalLink(text)
-              .setURI(
-                  elementMap.containsKey("hyperlinkUri")
-                      ? (String) elementMap.get("hyperlinkUri")
-                      : null)
+              .setURI(node.getHyperlinkUri())
               .setBorderBottom(new BorderStyleSpec(PLColor.BLUE));
-      float[] padding = elementBuilderService.getElementPadding(elementMap);
       PLTableCell cell =
           elementBuilderService.buildTableCell(
               hyperlink, alignment, padding[0], padding[1], padding[2], padding[3]);
 
       rowTable.addRow(cell);
     } else {
-      float[] padding = elementBuilderService.getElementPadding(elementMap);
       PLTableCell cell =
           elementBuilderService.buildTableCell(
               text, alignment, padding[0], padding[1], padding[2], padding[3]);
@@ -508,30 +442,23 @@ public class PageContentBuilderService {
   }
 
   /** 构建图片元素 */
-  private PLTable buildImageElement(
-      Map<String, Object> elementMap, PageConfigService.PageConfig config) throws IOException {
+  private PLTable buildImageElement(TemplateNode node) throws IOException {
     PLTable rowTable = new PLTable(WidthSpec.star());
-    EHorzAlignment alignment = styleService.getHorizontalAlignment(elementMap);
+    EHorzAlignment alignment = node.getHorzAlign();
 
-    PLImage image = elementBuilderService.buildImageElement(elementMap);
+    PLImage image = elementBuilderService.buildImageElement(node);
     if (image != null) {
-      if (elementMap.containsKey("isHyperlink")
-          && elementMap.get("isHyperlink") instanceof Boolean
-          && (Boolean) elementMap.get("isHyperlink")) {
+      float[] padding = node.getPadding();
+      if (node.isHyperlink()) {
         PLExternalLink hyperlink =
             new PLExternalLink(image)
-                .setURI(
-                    elementMap.containsKey("hyperlinkUri")
-                        ? (String) elementMap.get("hyperlinkUri")
-                        : null)
+                .setURI(node.getHyperlinkUri())
                 .setBorderBottom(new BorderStyleSpec(PLColor.BLUE));
-        float[] padding = elementBuilderService.getElementPadding(elementMap);
         PLTableCell cell =
             elementBuilderService.buildTableCell(
                 hyperlink, alignment, padding[0], padding[1], padding[2], padding[3]);
         rowTable.addRow(cell);
       } else {
-        float[] padding = elementBuilderService.getElementPadding(elementMap);
         PLTableCell cell =
             elementBuilderService.buildTableCell(
                 image, alignment, padding[0], padding[1], padding[2], padding[3]);
@@ -543,21 +470,13 @@ public class PageContentBuilderService {
   }
 
   /** 构建占位符元素 */
-  private PLTable buildPlaceholderElement(
-      Map<String, Object> elementMap, PageConfigService.PageConfig config) {
-    float width = 100f;
-    if (elementMap.containsKey("width") && elementMap.get("width") != null) {
-      width = ((Double) elementMap.get("width")).floatValue();
-    }
+  private PLTable buildPlaceholderElement(TemplateNode node) {
+    float width = node.getBoxWidth();
 
     PLTable rowTable = new PLTable(WidthSpec.abs(width));
-    EHorzAlignment alignment = styleService.getHorizontalAlignment(elementMap);
-
-    float[] padding = elementBuilderService.getElementPadding(elementMap);
+    EHorzAlignment alignment = node.getHorzAlign();
 
-    PLBox placeholderBox =
-        elementBuilderService.buildPlaceholderElement(
-            elementMap, padding[0], padding[1], padding[2], padding[3]);
+    PLBox placeholderBox = elementBuilderService.buildPlaceholderElement(node);
     rowTable.addRow(new PLTableCell(placeholderBox).setExactWidth(width));
 
     PLTable pRowTable = new PLTable(WidthSpec.star());
@@ -567,20 +486,13 @@ public class PageContentBuilderService {
   }
 
   /** 构建页码元素 */
-  private PLTable buildPageNumberElement(
-      Map<String, Object> elementMap, PageConfigService.PageConfig config) {
+  private PLTable buildPageNumberElement(TemplateNode node) {
     PLTable rowTable = new PLTable(WidthSpec.star());
-    EHorzAlignment alignment = styleService.getHorizontalAlignment(elementMap);
+    EHorzAlignment alignment = node.getHorzAlign();
 
-    PLText text =
-        elementBuilderService.buildPageNumberElement(
-            elementMap,
-            config.getDefaultFont(),
-            config.getDefaultFontSize(),
-            config.getDefaultFontColor(),
-            config.getDefaultBackground());
+    PLText text = elementBuilderService.buildPageNumberElement(node);
 
-    float[] padding = elementBuilderService.getElementPadding(elementMap);
+    float[] padding = node.getPadding();
     PLTableCell cell =
         elementBuilderService.buildTableCell(
             text, alignment, padding[0], padding[1], padding[2], padding[3]);
@@ -591,8 +503,7 @@ public class PageContentBuilderService {
 
   /** 构建表格元素 */
   private PLTable buildTableElement(
-      Map<String, Object> elementMap,
-      Map<String, Map<String, Object>> contentMap,
+      TemplateNode node,
       PageConfigService.PageConfig config,
       Map<String, IPLRenderableObject<?>> generatedObjects,
       boolean isGenerated)
@@ -600,64 +511,18 @@ public class PageContentBuilderService {
     PLTable rowTable = new PLTable(WidthSpec.star());
     rowTable.setHeaderRowCount(1);
 
-    if (!elementMap.containsKey("columns") || elementMap.get("columns") == null) {
+    // bindingColumns 中的列属性已在模板编译时合并到列绑定中
+    TableSpec table = node.getTable();
+    if (table == null) {
       return rowTable;
     }
 
-    List<?> columns = (List<?>) elementMap.get("columns");
-    List<?> bindingColumns = (List<?>) elementMap.get("bindingColumns");
-    Map<?, ?> bindings = (Map<?, ?>) elementMap.get("bindings");
-
-    // 将 bindingColumns 中的属性复制到 bindings 中
-    if (bindings != null) {
-      for (Object entry : bindings.entrySet()) {
-        Map.Entry<?, ?> bindingEntry = (Map.Entry<?, ?>) entry;
-        String key = (String) bindingEntry.getKey();
-
-        // 跳过 table-root，只处理列绑定
-        if (!"table-root".equals(key)) {
-          String bindingColumnKey = key + "-column-binding";
-
-          // 在 bindingColumns 中查找对应的列
-          for (Object column : bindingColumns) {
-            List<?> row = (List<?>) column;
-            String columnKey = (String) row.get(0);
-
-            if (bindingColumnKey.equals(columnKey)) {
-              Map<String, Object> columnData = (Map<String, Object>) row.get(1);
-              Map<String, Object> bindingData = (Map<String, Object>) bindingEntry.getValue();
-
-              // 复制属性（除了 value）
-              for (Map.Entry<String, Object> attr : columnData.entrySet()) {
-                if (!"value".equals(attr.getKey())) {
-                  bindingData.put(attr.getKey(), attr.getValue());
-                }
-              }
-              break;
-            }
-          }
-        }
-      }
-    }
-
-    float[] padding = elementBuilderService.getElementPadding(elementMap);
-
-    // 转换列配置为Map
-    Map<String, Map<String, Object>> columnMap = new LinkedHashMap<>();
-    for (Object column : columns) {
-      List<?> row = (List<?>) column;
-      columnMap.put((String) row.get(0), (Map<String, Object>) row.get(1));
-    }
-
-    String root = "table-root";
-    Map<String, Object> rootMap = columnMap.get(root);
+    float[] padding = node.getPadding();
+    TemplateSection columns = table.getColumns();
 
-    if (rootMap != null
-        && rootMap.containsKey("children")
-        && !((List<?>) rootMap.get("children")).isEmpty()) {
+    if (!columns.isEmpty()) {
       // 构建表格头部
-      PLTable tableHeader =
-          buildTableHeader(columnMap, config, elementMap, generatedObjects, isGenerated);
+      PLTable tableHeader = buildTableHeader(node, config, generatedObjects, isGenerated);
       System.out.println("tableHeader.getRenderSize()");
       System.out.println(tableHeader.getRenderSize());
       System.out.println(tableHeader.getPreparedSize());
@@ -666,7 +531,7 @@ public class PageContentBuilderService {
 
       // 构建表格主体
       List<IPLRenderableObject<?>> tableBody =
-          buildTableBody(columnMap, bindings, config, elementMap, generatedObjects, isGenerated);
+          buildTableBody(node, config, generatedObjects, isGenerated);
       for (IPLRenderableObject<?> renderableObject : tableBody) {
         rowTable.addRow(new PLTableCell(renderableObject));
       }
@@ -680,26 +545,24 @@ public class PageContentBuilderService {
 
   /** 构建表格头部 */
   private PLTable buildTableHeader(
-      Map<String, Map<String, Object>> columnMap,
+      TemplateNode node,
       PageConfigService.PageConfig config,
-      Map<String, Object> elementMap,
       Map<String, IPLRenderableObject<?>> generatedObjects,
       boolean isGenerated)
       throws IOException {
-    String root = "table-root";
-    Map<String, Object> rootMap = columnMap.get(root);
-    List<String> children = (List<String>) rootMap.get("children");
+    TableSpec table = node.getTable();
+    TemplateNode root = table.getColumns().getRoot();
+    List<TemplateNode> children = root.getChildren();
 
-    PLTable tableHeader = new PLTable(WidthSpec.star()).setID(String.valueOf(rootMap.get("id")));
-    String tableId = String.valueOf(elementMap.get("id"));
+    PLTable tableHeader = new PLTable(WidthSpec.star()).setID(String.valueOf(root.getId()));
+    String tableId = String.valueOf(node.getId());
 
     if (!children.isEmpty()) {
       List<IPLRenderableObject<?>> headerRows =
           buildTableHeaderRows(
               children,
-              columnMap,
               config,
-              elementMap,
+              table.getHeaderGap(),
               generatedObjects,
               null,
               tableId,
@@ -719,10 +582,9 @@ public class PageContentBuilderService {
 
   /** 构建表格头部行 */
   private List<IPLRenderableObject<?>> buildTableHeaderRows(
-      List<String> keys,
-      Map<String, Map<String, Object>> columnMap,
+      List<TemplateNode> nodes,
       PageConfigService.PageConfig config,
-      Map<String, Object> elementMap,
+      float gap,
       Map<String, IPLRenderableObject<?>> generatedObjects,
       String parentContainerType, // 新增
       String tableId, // 新增
@@ -730,48 +592,43 @@ public class PageContentBuilderService {
       throws IOException {
     List<IPLRenderableObject<?>> rows = new LinkedList<>();
 
-    for (String key : keys) {
-      Map<String, Object> map = columnMap.get(key);
-      String category = (String) map.get("cat");
+    for (TemplateNode node : nodes) {
+      String id = node.getId();
 
-      if ("container".equals(category)) {
-        String direction = (String) map.get("direction");
-        List<String> children = (List<String>) map.get("children");
-        if (children != null && !children.isEmpty()) {
+      if (node.getType() == TemplateNode.NodeType.CONTAINER) {
+        if (!node.getChildren().isEmpty()) {
           rows.addAll(
               buildContainerElement(
-                  map,
-                  columnMap,
+                  node,
                   config,
                   true,
                   EPLTableGridType.FULL_NO_BORDER,
                   new BorderStyleSpec(PLColor.BLACK, 1),
-                  (String) elementMap.get("gap"),
+                  gap,
                   generatedObjects,
-                  direction,
+                  node.getDirection(),
                   tableId,
                   isGenerated));
         }
-      } else if ("text".equals(category)) {
-        IPLRenderableObject<?> textObj =
-            buildTableTextElement(map, config, (String) elementMap.get("gap"));
+      } else if (node.getType() == TemplateNode.NodeType.TEXT) {
+        IPLRenderableObject<?> textObj = buildTableTextElement(node, gap);
         rows.add(textObj);
         if (generatedObjects != null
             && !isGenerated
             && "horizontal".equals(parentContainerType)
-            && map.containsKey("id")
+            && id != null
             && tableId != null) {
-          String keyStr = tableId + "-" + map.get("id");
-          String keyFullStr = tableId + "-full-" + map.get("id");
+          String keyStr = tableId + "-" + id;
+          String keyFullStr = tableId + "-full-" + id;
           generatedObjects.put(keyStr, textObj);
           generatedObjects.put(keyFullStr, textObj);
         }
         if (generatedObjects != null
             && !isGenerated
             && "vertical".equals(parentContainerType)
-            && map.containsKey("id")
+            && id != null
             && tableId != null) {
-          String keyFullStr = tableId + "-full-" + map.get("id");
+          String keyFullStr = tableId + "-full-" + id;
           generatedObjects.put(keyFullStr, textObj);
         }
       }
@@ -781,29 +638,17 @@ public class PageContentBuilderService {
   }
 
   /** 构建表格文本元素 */
-  private PLTable buildTableTextElement(
-      Map<String, Object> elementMap, PageConfigService.PageConfig config, String gap) {
+  private PLTable buildTableTextElement(TemplateNode node, float gap) {
     PLTable rowTable = new PLTable(WidthSpec.star());
-    EHorzAlignment alignment = styleService.getHorizontalAlignment(elementMap);
-
-    PLText text =
-        elementBuilderService.buildTextElement(
-            alignment,
-            elementMap,
-            config.getDefaultFont(),
-            config.getDefaultFontSize(),
-            config.getDefaultFontColor(),
-            config.getDefaultBackground());
-
-    float gapSize = styleService.getTableGap(gap);
-    PLTableCell cell =
-        elementBuilderService.buildTableCell(text, alignment, gapSize, gapSize, gapSize, gapSize);
+    EHorzAlignment alignment = node.getHorzAlign();
 
-    if (elementMap.containsKey("background")) {
-      PLColor bgColor = styleService.createColorFromHex((String) elementMap.get("background"));
-      if (bgColor != null) {
-        cell.setFillColor(bgColor);
-      }
+    PLText text = elementBuilderService.buildTextElement(node);
+
+    PLTableCell cell = elementBuilderService.buildTableCell(text, alignment, gap, gap, gap, gap);
+
+    PLColor bgColor = node.getBackground();
+    if (bgColor != null) {
+      cell.setFillColor(bgColor);
     }
 
     rowTable.addRow(cell.setVertAlign(EVertAlignment.MIDDLE));
@@ -812,8 +657,7 @@ public class PageContentBuilderService {
 
   /** 创建表格主体上下文 */
   private TableBodyContext createTableBodyContext(
-      Map<String, Object> elementMap, Map<String, IPLRenderableObject<?>> generatedObjects) {
-    String tableId = String.valueOf(elementMap.get("id"));
+      String tableId, Map<String, IPLRenderableObject<?>> generatedObjects) {
     float tableFullWidth = generatedObjects.get("table-" + tableId).getRenderWidth();
     logger.info("table width: " + tableFullWidth);
 
@@ -833,13 +677,116 @@ public class PageContentBuilderService {
 
     logger.info("table width 2: " + totalWidth);
 
-    float[] widthPercentages = new float[widthPercs.size()];
+    return new TableBodyContext(cols, toWidthPercentages(widthPercs, tableFullWidth), tableId);
+  }
+
+  /**
+   * 将列内容宽度换算为表格主体列宽百分比
+   *
+   * <p>除第一列外每列左侧有1个单位的网格线，表格左右边框各占1个单位。
+   */
+  private float[] toWidthPercentages(List<Float> widths, float tableFullWidth) {
+    float[] widthPercentages = new float[widths.size()];
     for (int i = 0; i < widthPercentages.length; i++) {
-      widthPercentages[i] =
-          ((widthPercs.get(i) + (i == 0 ? 0 : 1)) * 100 / (tableFullWidth - 1 - 1));
+      widthPercentages[i] = ((widths.get(i) + (i == 0 ? 0 : 1)) * 100 / (tableFullWidth - 1 - 1));
+    }
+    return widthPercentages;
+  }
+
+  /**
+   * 直接根据表头列宽配置计算表格主体上下文（单遍布局模式）
+   *
+   * <p>与 createTableBodyContext 收集的列一致：只有直接位于水平容器中的表头文本才作为主体列，
+   * 列宽按照 wildStar/flexValue/flexUnit 在表格内容宽度上分配，无需先预排版表头。
+   * 列宽百分比与两遍排版使用同一换算公式。
+   */
+  private TableBodyContext measureTableBodyContext(
+      TemplateNode node, PageConfigService.PageConfig config) {
+    String tableId = String.valueOf(node.getId());
+    float[] padding = node.getPadding();
+    // 页面内容宽度减去表格外边距和左右边框
+    float tableInnerWidth =
+        config.getWidth()
+            - config.getMarginLeft()
+            - config.getMarginRight()
+            - config.getPaddingLeft()
+            - config.getPaddingRight()
+            - padding[1]
+            - padding[3]
+            - 2;
+
+    List<String> cols = new ArrayList<>();
+    List<Float> widths = new ArrayList<>();
+    for (TemplateNode child : node.getTable().getColumns().getRootChildren()) {
+      if (child.getType() == TemplateNode.NodeType.CONTAINER) {
+        measureHeaderContainer(child, tableInnerWidth, cols, widths);
+      }
+    }
+    logger.debug("table {} measured inner width: {}", tableId, tableInnerWidth);
+
+    return new TableBodyContext(cols, toWidthPercentages(widths, tableInnerWidth + 2), tableId);
+  }
+
+  /** 递归计算表头容器中各列的内容宽度 */
+  private void measureHeaderContainer(
+      TemplateNode container, float availableWidth, List<String> cols, List<Float> widths) {
+    List<TemplateNode> children = container.getChildren();
+    if (children.isEmpty()) {
+      return;
+    }
+
+    if ("horizontal".equals(container.getDirection())) {
+      float[] childWidths = resolveColumnWidths(children, availableWidth);
+      for (int i = 0; i < children.size(); i++) {
+        TemplateNode child = children.get(i);
+        if (child.getType() == TemplateNode.NodeType.CONTAINER) {
+          measureHeaderContainer(child, childWidths[i], cols, widths);
+        } else if (child.getType() == TemplateNode.NodeType.TEXT && child.getId() != null) {
+          cols.add(child.getId());
+          widths.add(childWidths[i]);
+        }
+      }
+    } else if ("vertical".equals(container.getDirection())) {
+      // 垂直容器中的子元素占满整行，其中的文本只是跨列标题，不作为主体列
+      for (TemplateNode child : children) {
+        if (child.getType() == TemplateNode.NodeType.CONTAINER) {
+          measureHeaderContainer(child, availableWidth, cols, widths);
+        }
+      }
+    }
+  }
+
+  /**
+   * 按照水平容器的宽度规则（绝对值、百分比、剩余平分）计算各子元素的内容宽度
+   *
+   * <p>相邻子元素之间各有1个单位的网格线，不计入内容宽度；未设置 flexValue 的子元素按剩余平分处理。
+   */
+  private float[] resolveColumnWidths(List<TemplateNode> children, float availableWidth) {
+    float[] result = new float[children.size()];
+    float contentWidth = Math.max(0f, availableWidth - (children.size() - 1));
+    float usedWidth = 0f;
+    int starCount = 0;
+
+    for (int i = 0; i < children.size(); i++) {
+      ElementWidth width = children.get(i).getWidth();
+      if (width.isStar()) {
+        result[i] = -1f;
+        starCount++;
+        continue;
+      }
+      result[i] = width.resolve(contentWidth);
+      usedWidth += result[i];
     }
 
-    return new TableBodyContext(cols, widthPercentages, tableId);
+    if (starCount > 0) {
+      float starWidth = Math.max(0f, contentWidth - usedWidth) / starCount;
+      for (int i = 0; i < result.length; i++) {
+        if (result[i] < 0) {
+          result[i] = starWidth;
+        }
+      }
+    }
+    return result;
   }
 
   /** 创建百分比表格 */
@@ -848,95 +795,135 @@ public class PageContentBuilderService {
   }
 
   /** 处理表格数据 */
-  private void processTableData(
-      PLTable table,
-      Map<String, Map<String, Object>> columnMap,
-      Map<?, ?> bindings,
-      PageConfigService.PageConfig config,
-      Map<String, Object> elementMap,
-      TableBodyContext context)
+  private void processTableData(PLTable table, TableSpec spec, TableBodyContext context)
       throws IOException {
-
-    String root = "table-root";
-    Map<String, Object> rootMap = columnMap.get(root);
-    Map<String, Object> tableBinding = (Map<String, Object>) bindings.get(root);
-
-    String shape = (String) tableBinding.get("shape");
-    String request = (String) tableBinding.get("request");
-    String value = (String) tableBinding.get("value");
-
-    if ("list".equals(shape)) {
-      if ("data".equals(request)) {
-        processLocalData(table, value, columnMap, bindings, config, elementMap, context);
-      } else if ("url".equals(request)) {
-        processRemoteData(table, value, columnMap, bindings, config, elementMap, context);
+    // 请求按绑定ID提供了数据时使用本地数据
+    TableSpec.DataBinding dataBinding =
+        spec.getDataBinding().bind(remotePrefetchService.currentBindingData());
+
+    if ("list".equals(dataBinding.getShape())) {
+      if ("data".equals(dataBinding.getRequest())) {
+        processLocalData(table, dataBinding.getValue(), spec, context);
+      } else if ("url".equals(dataBinding.getRequest())) {
+        processRemoteData(table, dataBinding, spec, context);
       }
     }
   }
 
   /** 处理本地数据 */
   private void processLocalData(
-      PLTable table,
-      String value,
-      Map<String, Map<String, Object>> columnMap,
-      Map<?, ?> bindings,
-      PageConfigService.PageConfig config,
-      Map<String, Object> elementMap,
-      TableBodyContext context)
+      PLTable table, String value, TableSpec spec, TableBodyContext context) throws IOException {
+    if (value == null) {
+      return;
+    }
+    try (JsonUtil.ArrayReader rows = JsonUtil.openArray(new StringReader(value))) {
+      appendRows(table, rows, pdfMakerProperties.getTableMaxRecords(), spec, context);
+    }
+  }
+
+  /**
+   * 处理远程数据
+   *
+   * <p>普通绑定读取（预取或缓存的）完整响应；流式绑定（stream 为 true）逐行读取预取时下载的临时文件；
+   * 指定 pageSize 时按 pageParam（默认 page，从0开始）和 sizeParam（默认 size）逐页读取，
+   * 直到某页不足 pageSize 行或达到行数上限。
+   * 请求或解析失败时抛出异常，任务失败，不会生成只有部分数据的表格。
+   *
+   * @throws IOException 请求失败、非2xx状态或数据格式错误
+   */
+  private void processRemoteData(
+      PLTable table, TableSpec.DataBinding dataBinding, TableSpec spec, TableBodyContext context)
       throws IOException {
+    String url = dataBinding.getValue();
+    int dataLimit = pdfMakerProperties.getTableMaxRecords();
+    if (!dataBinding.isStreaming()) {
+      String json = remotePrefetchService.getJson(url);
+      try (JsonUtil.ArrayReader rows = JsonUtil.openArray(new StringReader(json))) {
+        appendRows(table, rows, dataLimit, spec, context);
+      }
+      return;
+    }
 
-    Gson gson = new GsonBuilder().setLenient().create();
-    Type listType = new TypeToken<List<Map>>() {}.getType();
-    String strictValue = JSON.encode(JSON.decode(value));
-    List<Map> dataList = gson.fromJson(strictValue, listType);
+    // 流式和分页数据已在预取时下载到临时文件，这里从文件逐行读取
+    if (dataBinding.getPageSize() == null) {
+      remotePrefetchService.readStream(
+          url,
+          reader -> {
+            try (JsonUtil.ArrayReader rows = JsonUtil.openArray(reader)) {
+              return appendRows(table, rows, dataLimit, spec, context);
+            }
+          });
+      return;
+    }
 
-    int dataCount = 1;
-    int dataLimit = pdfMakerProperties.getTableMaxRecords();
-    for (Map data : dataList) {
-      if (dataCount > dataLimit) {
+    int pageSize = dataBinding.getPageSize();
+    int total = 0;
+    for (int page = 0; total < dataLimit; page++) {
+      String pageUrl =
+          RemotePrefetchService.buildPageUrl(
+              url, dataBinding.getPageParam(), page, dataBinding.getSizeParam(), pageSize);
+      int remaining = dataLimit - total;
+      int count =
+          remotePrefetchService.readStream(
+              pageUrl,
+              reader -> {
+                try (JsonUtil.ArrayReader rows = JsonUtil.openArray(reader)) {
+                  return appendRows(table, rows, remaining, spec, context);
+                }
+              });
+      total += count;
+      if (count < pageSize) {
         break;
       }
-      List<PLTableCell> cells =
-          buildTableRow(data, columnMap, bindings, config, elementMap, context);
-      table.addRow(cells);
-      dataCount++;
     }
+    logger.debug("分页读取表格数据完成: {}, 共 {} 行", url, total);
   }
 
-  /** 处理远程数据 */
-  private void processRemoteData(
+  /**
+   * 逐行读取数据并按批生成表格行，内存中最多保留一批已解析的行数据
+   *
+   * <p>分批只限制解析后的行数据：生成的单元格加入表格后由页面集保留到渲染完成
+   * （ph-pdf-layout 在渲染前对整个页面集排版分页），这部分内存仍与行数成正比，
+   * 总行数由 pdf.file.table-max-records 限制。
+   *
+   * @return 读取的行数
+   */
+  private int appendRows(
       PLTable table,
-      String url,
-      Map<String, Map<String, Object>> columnMap,
-      Map<?, ?> bindings,
-      PageConfigService.PageConfig config,
-      Map<String, Object> elementMap,
+      JsonUtil.ArrayReader rows,
+      int limit,
+      TableSpec spec,
       TableBodyContext context)
       throws IOException {
-
-    List<Map> dataList = getJsonList(url);
-    int dataCount = 1;
-    int dataLimit = pdfMakerProperties.getTableMaxRecords();
-    for (Map data : dataList) {
-      if (dataCount > dataLimit) {
-        break;
+    int chunkSize = Math.max(1, pdfMakerProperties.getTableChunkSize());
+    List<Map> chunk = new ArrayList<>();
+    int count = 0;
+    Map data;
+    while (count < limit && (data = rows.next()) != null) {
+      chunk.add(data);
+      count++;
+      if (chunk.size() >= chunkSize) {
+        appendChunk(table, chunk, spec, context);
       }
-      List<PLTableCell> cells =
-          buildTableRow(data, columnMap, bindings, config, elementMap, context);
+    }
+    appendChunk(table, chunk, spec, context);
+    return count;
+  }
+
+  /** 生成一批表格行，完成后清空批次 */
+  private void appendChunk(
+      PLTable table, List<Map> chunk, TableSpec spec, TableBodyContext context)
+      throws IOException {
+    for (Map data : chunk) {
+      List<PLTableCell> cells = buildTableRow(data, spec, context);
       table.addRow(cells);
-      dataCount++;
     }
+    chunk.clear();
   }
 
   /** 构建表格行 */
   private List<PLTableCell> buildTableRow(
-      Map<String, Object> data,
-      Map<String, Map<String, Object>> columnMap,
-      Map<?, ?> bindings,
-      PageConfigService.PageConfig config,
-      Map<String, Object> elementMap,
-      TableBodyContext context)
-      throws IOException {
+      Map<String, Object> data, TableSpec spec, TableBodyContext context) throws IOException {
 
     List<PLTableCell> cells = new ArrayList<>();
     int colspans = 0;
@@ -950,26 +937,19 @@ public class PageContentBuilderService {
 
       if (colspans > context.getColumns().size()) break;
 
-      Map<String, Object> binding = (Map<String, Object>) bindings.get(col);
-      PLTableCell cell =
-          buildTableCell(data, col, binding, columnMap, config, elementMap, context, colspans);
+      TableSpec.ColumnBinding binding = spec.getColumnBinding(col);
+      // 每个单元格只解析一次，构建单元格和计算跨列共用同一结果
+      CellValue cellValue = null;
+      if (binding != null) {
+        cellValue = context.getCellValue();
+        binding.getPath().resolveCell(data, cellValue);
+      }
+      PLTableCell cell = buildTableCell(cellValue, col, binding, spec, context, colspans);
       cells.add(cell);
 
       // 更新colspans
-      if (binding != null) {
-        String bindPath = String.valueOf(binding.get("value"));
-        Map<String, Object> cellData = getDataValueByBindingExt(data, bindPath);
-        if ("colspanText".equals(cellData.get("type"))
-            || "colspanList".equals(cellData.get("type"))
-            || "colspanImage".equals(cellData.get("type"))) {
-          int colspan = (int) cellData.get("colspan");
-          if (colspans + colspan >= context.getColumns().size()) {
-            colspan = context.getColumns().size() - colspans;
-          }
-          colspans += colspan;
-        } else {
-          colspans += 1;
-        }
+      if (cellValue != null && cellValue.getType().isColspan()) {
+        colspans += clampColspan(cellValue.getColspan(), colspans, context);
       } else {
         colspans += 1;
       }
@@ -979,35 +959,33 @@ public class PageContentBuilderService {
     return cells;
   }
 
-  /** 构建表格单元格 */
+  /** 跨列数不超过剩余列数 */
+  private int clampColspan(int colspan, int colspans, TableBodyContext context) {
+    if (colspans + colspan >= context.getColumns().size()) {
+      return context.getColumns().size() - colspans;
+    }
+    return colspan;
+  }
+
+  /** 构建表格单元格，cellValue 为已解析的单元格数据，无绑定时为null */
   private PLTableCell buildTableCell(
-      Map<String, Object> data,
+      CellValue cellValue,
       String col,
-      Map<String, Object> binding,
-      Map<String, Map<String, Object>> columnMap,
-      PageConfigService.PageConfig config,
-      Map<String, Object> elementMap,
+      TableSpec.ColumnBinding binding,
+      TableSpec spec,
       TableBodyContext context,
       int colspans)
       throws IOException {
+    TemplateSection columns = spec.getColumns();
+    float gap = spec.getBodyGap();
 
-    if (binding != null) {
-      String bindPath = String.valueOf(binding.get("value"));
-      Map<String, Object> cellData = getDataValueByBindingExt(data, bindPath);
-
-      PLColor bgColor = null;
-      if (binding.containsKey("background")) {
-        String bgColorHex = (String) binding.get("background");
-        if (!"#00000000".equals(bgColorHex)) {
-          bgColor = parseColor(bgColorHex);
-        }
-      }
+    if (cellValue != null) {
+      CellValue.CellType cellType = cellValue.getType();
+      TextStyle style = binding.getStyle();
+      PLColor bgColor = binding.getCellBackground();
 
-      if ("image".equals(cellData.get("type"))) {
-        PLBox imageBox =
-            buildTableBodyImageElement(
-                cellData,
-                elementMap.containsKey("gap") ? String.valueOf(elementMap.get("gap")) : "compact");
+      if (cellType == CellValue.CellType.IMAGE) {
+        PLBox imageBox = buildTableBodyImageElement(cellValue, gap);
         PLTableCell cell =
             new PLTableCell(imageBox)
                 .setVertAlign(EVertAlignment.MIDDLE)
@@ -1016,15 +994,9 @@ public class PageContentBuilderService {
           cell.setFillColor(bgColor);
         }
         return cell;
-      } else if ("colspanImage".equals(cellData.get("type"))) {
-        PLBox imageBox =
-            buildTableBodyImageElement(
-                cellData,
-                elementMap.containsKey("gap") ? String.valueOf(elementMap.get("gap")) : "compact");
-        int colspan = (int) cellData.get("colspan");
-        if (colspans + colspan >= context.getColumns().size()) {
-          colspan = context.getColumns().size() - colspans;
-        }
+      } else if (cellType == CellValue.CellType.COLSPAN_IMAGE) {
+        PLBox imageBox = buildTableBodyImageElement(cellValue, gap);
+        int colspan = clampColspan(cellValue.getColspan(), colspans, context);
         PLTableCell cell =
             new PLTableCell(imageBox, colspan)
                 .setVertAlign(EVertAlignment.MIDDLE)
@@ -1033,22 +1005,10 @@ public class PageContentBuilderService {
           cell.setFillColor(bgColor);
         }
         return cell;
-      } else if ("colspanText".equals(cellData.get("type"))) {
+      } else if (cellType == CellValue.CellType.COLSPAN_TEXT) {
         PLBox textBox =
-            buildTableBodyTextElement(
-                col,
-                (String) cellData.get("value"),
-                columnMap,
-                binding,
-                config.getDefaultFont(),
-                config.getDefaultFontColor(),
-                config.getDefaultBackground(),
-                config.getDefaultFontSize(),
-                elementMap.containsKey("gap") ? String.valueOf(elementMap.get("gap")) : "compact");
-        int colspan = (int) cellData.get("colspan");
-        if (colspans + colspan >= context.getColumns().size()) {
-          colspan = context.getColumns().size() - colspans;
-        }
+            buildTableBodyTextElement(col, (String) cellValue.getValue(), columns, style, gap);
+        int colspan = clampColspan(cellValue.getColspan(), colspans, context);
         PLTableCell cell =
             new PLTableCell(textBox, colspan)
                 .setVertAlign(EVertAlignment.MIDDLE)
@@ -1057,22 +1017,10 @@ public class PageContentBuilderService {
           cell.setFillColor(bgColor);
         }
         return cell;
-      } else if ("colspanList".equals(cellData.get("type"))) {
+      } else if (cellType == CellValue.CellType.COLSPAN_LIST) {
         PLBox innerTableBox =
-            buildTableBodyInnerTableElement(
-                col,
-                (List) cellData.get("value"),
-                columnMap,
-                binding,
-                config.getDefaultFont(),
-                config.getDefaultFontColor(),
-                config.getDefaultBackground(),
-                config.getDefaultFontSize(),
-                elementMap.containsKey("gap") ? String.valueOf(elementMap.get("gap")) : "compact");
-        int colspan = (int) cellData.get("colspan");
-        if (colspans + colspan >= context.getColumns().size()) {
-          colspan = context.getColumns().size() - colspans;
-        }
+            buildTableBodyInnerTableElement(col, (List) cellValue.getValue(), columns, style, gap);
+        int colspan = clampColspan(cellValue.getColspan(), colspans, context);
         PLTableCell cell =
             new PLTableCell(innerTableBox, colspan)
                 .setVertAlign(EVertAlignment.MIDDLE)
@@ -1081,18 +1029,9 @@ public class PageContentBuilderService {
           cell.setFillColor(bgColor);
         }
         return cell;
-      } else if ("list".equals(cellData.get("type"))) {
+      } else if (cellType == CellValue.CellType.LIST) {
         PLBox innerTableBox =
-            buildTableBodyInnerTableElement(
-                col,
-                (List) cellData.get("value"),
-                columnMap,
-                binding,
-                config.getDefaultFont(),
-                config.getDefaultFontColor(),
-                config.getDefaultBackground(),
-                config.getDefaultFontSize(),
-                elementMap.containsKey("gap") ? String.valueOf(elementMap.get("gap")) : "compact");
+            buildTableBodyInnerTableElement(col, (List) cellValue.getValue(), columns, style, gap);
         PLTableCell cell =
             new PLTableCell(innerTableBox)
                 .setVertAlign(EVertAlignment.MIDDLE)
@@ -1103,16 +1042,7 @@ public class PageContentBuilderService {
         return cell;
       } else {
         PLBox textBox =
-            buildTableBodyTextElement(
-                col,
-                (String) cellData.get("value"),
-                columnMap,
-                binding,
-                config.getDefaultFont(),
-                config.getDefaultFontColor(),
-                config.getDefaultBackground(),
-                config.getDefaultFontSize(),
-                elementMap.containsKey("gap") ? String.valueOf(elementMap.get("gap")) : "compact");
+            buildTableBodyTextElement(col, (String) cellValue.getValue(), columns, style, gap);
         PLTableCell cell =
             new PLTableCell(textBox)
                 .setVertAlign(EVertAlignment.MIDDLE)
@@ -1123,17 +1053,8 @@ public class PageContentBuilderService {
         return cell;
       }
     } else {
-      PLBox textBox =
-          buildTableBodyTextElement(
-              col,
-              "",
-              columnMap,
-              binding,
-              config.getDefaultFont(),
-              config.getDefaultFontColor(),
-              config.getDefaultBackground(),
-              config.getDefaultFontSize(),
-              elementMap.containsKey("gap") ? String.valueOf(elementMap.get("gap")) : "compact");
+      TextStyle style = binding != null ? binding.getStyle() : spec.getDefaultCellStyle();
+      PLBox textBox = buildTableBodyTextElement(col, "", columns, style, gap);
 
       return new PLTableCell(textBox)
           .setVertAlign(EVertAlignment.MIDDLE)
@@ -1141,190 +1062,64 @@ public class PageContentBuilderService {
     }
   }
 
-  private PLBox buildTableBodyImageElement(Map<String, Object> cellData, String defaultGap)
+  private PLBox buildTableBodyImageElement(CellValue cellValue, float gap)
       throws IOException {
-    String imageType = (String) cellData.get("imageType"); // "base64" or "url"
-    String value = (String) cellData.get("value");
-    float imageHeight = (Float) cellData.get("height");
-    float imageWidth = imageHeight;
-    // 先创建一个空白图片
-    BufferedImage blankImage =
-        new BufferedImage((int) imageWidth, (int) imageHeight, BufferedImage.TYPE_INT_RGB);
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    ImageIO.write(blankImage, "PNG", baos);
-    InputStream is = new ByteArrayInputStream(baos.toByteArray());
-
-    if (imageType.equalsIgnoreCase("url")) {
-      // 使用OkHttp从URL读取图片
-      OkHttpClient client =
-          new OkHttpClient.Builder()
-              .connectTimeout(30, TimeUnit.SECONDS)
-              .readTimeout(30, TimeUnit.SECONDS)
-              .build();
-
-      Request request = new Request.Builder().url(value).build();
-
-      try (Response response = client.newCall(request).execute()) {
-        if (response.isSuccessful() && response.body() != null) {
-          // 读取图片数据
-          byte[] imageBytes = response.body().bytes();
-          BufferedImage originalImage = ImageIO.read(new ByteArrayInputStream(imageBytes));
-
-          if (originalImage != null) {
-            // 计算等比例缩放
-            int originalHeight = originalImage.getHeight();
-            int originalWidth = originalImage.getWidth();
-
-            // 根据imageHeight计算缩放比例
-            float scale = imageHeight / originalHeight;
-            int newWidth = (int) (originalWidth * scale);
-            int newHeight = (int) imageHeight;
-
-            // 创建缩放后的图片
-            BufferedImage scaledImage =
-                new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
-            Graphics2D g2d = scaledImage.createGraphics();
-            g2d.drawImage(originalImage, 0, 0, newWidth, newHeight, null);
-            g2d.dispose();
-
-            // 转换为InputStream
-            ByteArrayOutputStream baos1 = new ByteArrayOutputStream();
-            ImageIO.write(scaledImage, "PNG", baos1);
-            is = new ByteArrayInputStream(baos1.toByteArray());
-
-            // 更新imageWidth为缩放后的宽度
-            imageWidth = newWidth;
-          }
-        }
+    String value = (String) cellValue.getValue();
+    float imageHeight = cellValue.getImageHeight();
+    // 解码和缩放后的图片按来源和目标高度缓存，同一图片在多行中只处理一次
+    BufferedImage scaledImage = null;
+
+    if (cellValue.isUrlImage()) {
+      try {
+        // 读取图片，优先使用排版前预取的结果
+        scaledImage =
+            imageCacheService.getScaledToHeight(
+                ImageCacheService.urlKey(value),
+                (int) imageHeight,
+                () -> {
+                  byte[] imageBytes = remotePrefetchService.getBytes(value);
+                  return ImageIO.read(new ByteArrayInputStream(imageBytes));
+                });
       } catch (Exception e) {
         logger.error("从URL读取图片失败: " + value, e);
       }
 
-    } else if (imageType.equalsIgnoreCase("base64")) {
+    } else {
       try {
         // 解码base64图片数据
-        byte[] imageBytes = Base64.getDecoder().decode(value);
-        BufferedImage originalImage = ImageIO.read(new ByteArrayInputStream(imageBytes));
-
-        if (originalImage != null) {
-          // 计算等比例缩放
-          int originalHeight = originalImage.getHeight();
-          int originalWidth = originalImage.getWidth();
-
-          // 根据imageHeight计算缩放比例
-          float scale = imageHeight / originalHeight;
-          int newWidth = (int) (originalWidth * scale);
-          int newHeight = (int) imageHeight;
-
-          // 创建缩放后的图片
-          BufferedImage scaledImage =
-              new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
-          Graphics2D g2d = scaledImage.createGraphics();
-          g2d.drawImage(originalImage, 0, 0, newWidth, newHeight, null);
-          g2d.dispose();
-
-          // 转换为InputStream
-          ByteArrayOutputStream baos1 = new ByteArrayOutputStream();
-          ImageIO.write(scaledImage, "PNG", baos1);
-          is = new ByteArrayInputStream(baos1.toByteArray());
-
-          // 更新imageWidth为缩放后的宽度
-          imageWidth = newWidth;
-        }
+        scaledImage =
+            imageCacheService.getScaledToHeight(
+                ImageCacheService.base64Key(value),
+                (int) imageHeight,
+                () -> ImageIO.read(new ByteArrayInputStream(Base64.getDecoder().decode(value))));
       } catch (Exception e) {
         logger.error("解码base64图片失败", e);
       }
     }
-    // 使用is变量创建PLImage
-    PLImage image = new PLImage(ImageIO.read(is), imageWidth, imageHeight);
+
+    // 读取失败时使用空白图片
+    if (scaledImage == null) {
+      scaledImage = imageCacheService.getBlankImage((int) imageHeight, (int) imageHeight);
+    }
+    PLImage image = new PLImage(scaledImage, scaledImage.getWidth(), imageHeight);
 
     EHorzAlignment horzAlignment = EHorzAlignment.CENTER;
     // 外部wrapper
     PLBox target = new PLBox(image).setHorzAlign(horzAlignment).setVertSplittable(false);
 
     // 内边距
-    target.setPadding(getTableGap(defaultGap));
+    target.setPadding(gap);
 
     return target;
   }
 
-  private PLColor parseColor(String colorStr) {
-    Color rgb = Color.decode(colorStr);
-    return new PLColor(rgb.getRed(), rgb.getGreen(), rgb.getBlue());
-  }
-
-  private float getTableGap(Object gap) {
-    if (gap == null) {
-      return 6;
-    } else {
-      if (String.valueOf(gap).equals("compact")) {
-        return 2;
-      }
-      if (String.valueOf(gap).equals("loose")) {
-        return 10;
-      }
-    }
-    return 6;
-  }
-
   private PLBox buildTableBodyTextElement(
-      String id,
-      String value,
-      Map<String, Map<String, Object>> pageBodyMap,
-      Map<String, Object> binding,
-      PreloadFont scDefaultFont,
-      String defaultFontColor,
-      String defaultBgColor,
-      String defaultFontSize,
-      String defaultGap) {
-    Map map = pageBodyMap.get(id);
-    if (map != null) {
-      // 首行缩进
-      boolean indent = map.containsKey("indent") && (Boolean) map.get("indent");
-      // 字体颜色
-      PLColor fc = parseColor(defaultFontColor);
-      if (binding != null && binding.containsKey("fontColor")) {
-        fc = parseColor((String) binding.get("fontColor"));
-      }
-      //
-      String gap = defaultGap;
-      // 字体大小
-      float fs = Float.parseFloat(defaultFontSize);
-      if (binding != null && binding.containsKey("fontSize")) {
-        fs = ((Double) binding.get("fontSize")).floatValue();
-      }
-      // 字体类型
-      PreloadFont ff = scDefaultFont;
-      if (binding != null && binding.containsKey("font")) {
-        String bold = binding.containsKey("bold") && (Boolean) binding.get("bold") ? "-bd" : "";
-        ff = fontService.getFont(binding.get("font") + bold);
-      }
-      // 背景颜色
-      PLColor bgColor = !"#00000000".equals(defaultBgColor) ? parseColor(defaultBgColor) : null;
-      if (binding != null && binding.containsKey("background")) {
-        String bgColorHex = (String) binding.get("background");
-        if (!"#00000000".equals(bgColorHex)) {
-          bgColor = parseColor(bgColorHex);
-        }
-      }
-      // 水平对齐方式
-      EHorzAlignment horzAlignment = EHorzAlignment.CENTER;
-      if (binding != null && binding.containsKey("horizontal")) {
-        if ("left".equals(binding.get("horizontal"))) {
-          horzAlignment = EHorzAlignment.LEFT;
-        } else if ("right".equals(binding.get("horizontal"))) {
-          horzAlignment = EHorzAlignment.RIGHT;
-        }
-      }
-
-      //      if (indent) {
-      //        String fontKey = pageBodyMap.containsKey("font") ? ((String) (map.get("font"))) :
-      // "";
-      //        value = fontService.getLineIndention(fontKey) + value;
-      //      }
+      String id, String value, TemplateSection columns, TextStyle style, float gap) {
+    if (columns.getNode(id) != null) {
+      EHorzAlignment horzAlignment = style.getHorzAlign();
 
       // 创建文本元素
-      PLText text = new PLText(value, new FontSpec(ff, fs).getCloneWithDifferentColor(fc));
+      PLText text = new PLText(value, style.getFontSpec());
 
       // 外部wrapper
       PLBox target =
@@ -1333,12 +1128,12 @@ public class PageContentBuilderService {
               .setVertSplittable(false);
 
       // 填充背景
-      if (bgColor != null) {
-        target.setFillColor(bgColor);
+      if (style.getBackground() != null) {
+        target.setFillColor(style.getBackground());
       }
 
       // 内边距
-      target.setPadding(getTableGap(gap));
+      target.setPadding(gap);
 
       return target;
     }
@@ -1347,70 +1142,22 @@ public class PageContentBuilderService {
   }
 
   private PLBox buildTableBodyInnerTableElement(
-      String id,
-      List values,
-      Map<String, Map<String, Object>> pageBodyMap,
-      Map<String, Object> binding,
-      PreloadFont scDefaultFont,
-      String defaultFontColor,
-      String defaultBgColor,
-      String defaultFontSize,
-      String defaultGap) {
-    Map map = pageBodyMap.get(id);
-    if (map != null) {
-      // 字体颜色
-      PLColor fc = parseColor(defaultFontColor);
-      if (binding != null && binding.containsKey("fontColor")) {
-        fc = parseColor((String) binding.get("fontColor"));
-      }
-      //
-      String gap = defaultGap;
-      // 字体大小
-      float fs = Float.parseFloat(defaultFontSize);
-      if (binding != null && binding.containsKey("fontSize")) {
-        fs = ((Double) binding.get("fontSize")).floatValue();
-      }
-      // 字体类型
-      PreloadFont ff = scDefaultFont;
-      if (binding != null && binding.containsKey("font")) {
-        String bold = binding.containsKey("bold") && (Boolean) binding.get("bold") ? "-bd" : "";
-        ff = fontService.getFont(binding.get("font") + bold);
-      }
-      // 背景颜色
-      PLColor bgColor = !"#00000000".equals(defaultBgColor) ? parseColor(defaultBgColor) : null;
-      if (binding != null && binding.containsKey("background")) {
-        String bgColorHex = (String) binding.get("background");
-        if (!"#00000000".equals(bgColorHex)) {
-          bgColor = parseColor(bgColorHex);
-        }
-      }
-      // 水平对齐方式
-      EHorzAlignment horzAlignment = EHorzAlignment.CENTER;
-      if (binding != null && binding.containsKey("horizontal")) {
-        if ("left".equals(binding.get("horizontal"))) {
-          horzAlignment = EHorzAlignment.LEFT;
-        } else if ("right".equals(binding.get("horizontal"))) {
-          horzAlignment = EHorzAlignment.RIGHT;
-        }
-      }
+      String id, List values, TemplateSection columns, TextStyle style, float gap) {
+    if (columns.getNode(id) != null) {
+      EHorzAlignment horzAlignment = style.getHorzAlign();
 
       PLTable aTable = PLTable.createWithEvenlySizedColumns(1);
 
-      //      // 创建文本元素
-      //      PLText text = new PLText(value, new FontSpec(ff, fs).getCloneWithDifferentColor(fc));
-
       for (Object value : values) {
         aTable.addAndReturnRow(
             new PLTableCell(
                     new PLBox(
-                            new PLText(
-                                    String.valueOf(value),
-                                    new FontSpec(ff, fs).getCloneWithDifferentColor(fc))
+                            new PLText(String.valueOf(value), style.getFontSpec())
                                 .setHorzAlign(horzAlignment))
                         .setHorzAlign(horzAlignment)
                         .setVertSplittable(false))
                 .setHorzAlign(horzAlignment)
-                .setPadding(getTableGap(gap)));
+                .setPadding(gap));
       }
 
       EPLTableGridType.HORZ_NO_BORDER.applyGridToTable(
@@ -1420,13 +1167,10 @@ public class PageContentBuilderService {
       PLBox target = new PLBox(aTable).setHorzAlign(horzAlignment).setVertSplittable(false);
 
       // 填充背景
-      if (bgColor != null) {
-        target.setFillColor(bgColor);
+      if (style.getBackground() != null) {
+        target.setFillColor(style.getBackground());
       }
 
-      // 内边距
-      //      target.setPadding(getTableGap(gap));
-
       return target;
     }
 
@@ -1435,10 +1179,8 @@ public class PageContentBuilderService {
 
   /** 构建表格主体 */
   private List<IPLRenderableObject<?>> buildTableBody(
-      Map<String, Map<String, Object>> columnMap,
-      Map<?, ?> bindings,
+      TemplateNode node,
       PageConfigService.PageConfig config,
-      Map<String, Object> elementMap,
       Map<String, IPLRenderableObject<?>> generatedObjects,
       boolean isGenerated)
       throws IOException {
@@ -1448,15 +1190,15 @@ public class PageContentBuilderService {
 
     logger.info("isGenerated");
 
-    TableBodyContext context = createTableBodyContext(elementMap, generatedObjects);
+    TableBodyContext context =
+        pdfMakerProperties.isSinglePassLayout()
+            ? measureTableBodyContext(node, config)
+            : createTableBodyContext(String.valueOf(node.getId()), generatedObjects);
     PLTable table = createTableWithPercentage(context.getWidthPercentages());
 
-    String root = "table-root";
-    Map<String, Object> rootMap = columnMap.get(root);
-    Map<String, Object> tableBinding = (Map<String, Object>) bindings.get(root);
-
-    if (rootMap.containsKey("children") && tableBinding != null) {
-      processTableData(table, columnMap, bindings, config, elementMap, context);
+    TableSpec spec = node.getTable();
+    if (spec.getDataBinding() != null) {
+      processTableData(table, spec, context);
       EPLTableGridType.FULL_NO_BORDER.applyGridToTable(
           table, new BorderStyleSpec(PLColor.BLACK, 1f));
       return List.of(table);
@@ -1485,142 +1227,13 @@ public class PageContentBuilderService {
     return String.valueOf(current);
   }
 
-  private Map<String, Object> getDataValueByBindingExt(Map<String, Object> data, String bindPath) {
-    HashMap<String, Object> result = new HashMap<>();
-    result.put("value", "");
-    result.put("type", "text");
-    // 这里持多层级嵌套寻找，用来满足bindPath是a.b.c.d这种复杂情况
-    if (data == null || bindPath == null || bindPath.isEmpty()) {
-      return result;
-    }
-    String[] keys = bindPath.split("\\.");
-    Object current = data;
-    for (String key : keys) {
-      if (!(current instanceof Map)) {
-        return result;
-      }
-      current = ((Map<?, ?>) current).get(key);
-      if (current == null) {
-        return result;
-      }
-    }
-    // TODO image 可以分为远程url或者base64
-    if (current instanceof Map) {
-      if (((Map<?, ?>) current).containsKey("type")
-          && ((String) ((Map<?, ?>) current).get("type")).equalsIgnoreCase("image")) {
-        float imageHeight = 16f;
-        if (((Map<?, ?>) current).containsKey("height")) {
-          imageHeight =
-              (Double.valueOf(String.valueOf(((Map<?, ?>) current).get("height")))).floatValue();
-          if (imageHeight <= 0) {
-            imageHeight = 16f;
-          }
-        }
-        String imageType = "base64";
-        if (((Map<?, ?>) current).containsKey("imageType")
-            && ((String) ((Map<?, ?>) current).get("imageType")).equalsIgnoreCase("url")) {
-          imageType = "url";
-        }
-        // image 支持
-        if (((Map<?, ?>) current).containsKey("colspan")) {
-          // colspan image 支持
-          result.put("value", ((Map<?, ?>) current).get("value"));
-          result.put(
-              "colspan",
-              Double.valueOf(String.valueOf(((Map<?, ?>) current).get("colspan"))).intValue());
-          result.put("type", "colspanImage");
-          result.put("height", imageHeight);
-          result.put("imageType", imageType);
-        } else {
-          // 普通 image 支持
-          result.put("value", ((Map<?, ?>) current).get("value"));
-          result.put("type", "image");
-          result.put("height", imageHeight);
-          result.put("imageType", imageType);
-        }
-      } else if (((Map<?, ?>) current).containsKey("colspan")
-          && ((Map<?, ?>) current).containsKey("value")) {
-        // colspan text 支持
-        if (((Map<?, ?>) current).get("value") instanceof String
-            || ((Map<?, ?>) current).get("value") instanceof Integer
-            || ((Map<?, ?>) current).get("value") instanceof Long
-            || ((Map<?, ?>) current).get("value") instanceof Float
-            || ((Map<?, ?>) current).get("value") instanceof Double) {
-          result.put("value", String.valueOf(((Map<?, ?>) current).get("value")));
-          result.put(
-              "colspan",
-              Double.valueOf(String.valueOf(((Map<?, ?>) current).get("colspan"))).intValue());
-          result.put("type", "colspanText");
-        }
-        // colspan List 支持
-        if (((Map<?, ?>) current).get("value") instanceof List) {
-          result.put("value", ((Map<?, ?>) current).get("value"));
-          result.put(
-              "colspan",
-              Double.valueOf(String.valueOf(((Map<?, ?>) current).get("colspan"))).intValue());
-          result.put("type", "colspanList");
-        }
-      }
-    }
-    // 普通 text 支持
-    if (current instanceof String
-        || current instanceof Integer
-        || current instanceof Long
-        || current instanceof Float
-        || current instanceof Double) {
-      result.put("value", String.valueOf(current));
-      result.put("type", "text");
-    }
-    // List 支持
-    if (current instanceof List) {
-      result.put("value", current);
-      result.put("type", "list");
-    }
-    return result;
-  }
-
-  private List<Map> getJsonList(String url) throws IOException {
-    OkHttpClient client =
-        new OkHttpClient.Builder()
-            .connectTimeout(10, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .build();
-    Gson gson = new GsonBuilder().setLenient().create();
-    Request request = new Request.Builder().url(url).get().build();
-
-    try (Response response = client.newCall(request).execute()) {
-      if (!response.isSuccessful()) {
-        logger.error("请求失败: {}, {}", url, response);
-        return Collections.emptyList();
-      }
-
-      // 获取 JSON 字符串
-      String json = response.body().string();
-
-      // 解析为 List<Map> 类型
-      String strictJson = JSON.encode(JSON.decode(json));
-      return gson.fromJson(strictJson, new TypeToken<List<Map>>() {}.getType());
-    } catch (Exception e) {
-      logger.error("请求异常: {}", e.getMessage(), e);
-      return Collections.emptyList();
-    }
-  }
-
-  /** 将List转换为Map */
-  private Map<String, Map<String, Object>> convertListToMap(List<Object> list) {
-    Map<String, Map<String, Object>> map = new LinkedHashMap<>();
-    for (Object item : list) {
-      List<?> row = (List<?>) item;
-      map.put((String) row.get(0), (Map<String, Object>) row.get(1));
-    }
-    return map;
-  }
-
   /** 表格主体上下文类 */
   private static class TableBodyContext {
     private final List<String> columns;
     private final float[] widthPercentages;
     private final String tableId;
+    // 逐个单元格复用的解析结果
+    private final CellValue cellValue = new CellValue();
 
     public TableBodyContext(List<String> columns, float[] widthPercentages, String tableId) {
       this.columns = columns;
@@ -1628,6 +1241,10 @@ public class PageContentBuilderService {
       this.tableId = tableId;
     }
 
+    public CellValue getCellValue() {
+      return cellValue;
+    }
+
     public List<String> getColumns() {
       return columns;
     }
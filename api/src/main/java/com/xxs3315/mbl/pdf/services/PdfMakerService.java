@@ -5,12 +5,32 @@ import com.helger.pdflayout.PageLayoutPDF;
 import com.helger.pdflayout.base.IPLRenderableObject;
 import com.helger.pdflayout.base.PLPageSet;
 import com.xxs3315.mbl.pdf.properties.PdfMakerProperties;
+import com.xxs3315.mbl.pdf.template.BindingData;
+import com.xxs3315.mbl.pdf.template.CompiledTemplate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import org.apache.pdfbox.pdmodel.PDDocument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,59 +48,328 @@ public class PdfMakerService {
 
   @Autowired private PageContentBuilderService pageContentBuilderService;
 
+  @Autowired private TemplateCompiler templateCompiler;
+
+  @Autowired private RemotePrefetchService remotePrefetchService;
+
+  // 批量生成时并行构建页面集的线程池，所有任务共用，大小由 pdf.file.batch-parallelism 限制
+  private ForkJoinPool buildPool;
+
+  // 排版渲染许可，队列任务运行在虚拟线程上时由它限制同时占用的CPU数，并行构建按工作线程数占用
+  private Semaphore renderPermits;
+
+  private int renderPermitCount;
+
+  @PostConstruct
+  public void init() {
+    int permits = pdfMakerProperties.getRenderPermits();
+    if (permits <= 0) {
+      permits = Runtime.getRuntime().availableProcessors();
+    }
+    renderPermitCount = permits;
+    // 公平模式：按工作线程数获取多个许可的批量任务不会被单页任务持续插队
+    renderPermits = new Semaphore(permits, true);
+
+    int size = pdfMakerProperties.getBatchParallelism();
+    if (size <= 0) {
+      size = Runtime.getRuntime().availableProcessors();
+    }
+    buildPool =
+        new ForkJoinPool(
+            size,
+            pool -> {
+              ForkJoinWorkerThread thread =
+                  ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+              thread.setName("pdf-build-" + thread.getPoolIndex());
+              return thread;
+            },
+            null,
+            false);
+    logger.info("页面集构建线程池初始化完成，并行度: {}, 渲染许可数: {}", size, permits);
+  }
+
+  @PreDestroy
+  public void destroy() {
+    buildPool.shutdownNow();
+  }
+
   /**
    * 创建PDF文档
    *
    * @param filename 文件名
-   * @param propsMap 配置属性映射
+   * @param request 只包含一个页面的生成请求
    * @return PageLayoutPDF对象
    * @throws IOException 如果发生IO错误
    * @throws PDFCreationException 如果PDF创建失败
    */
-  public PageLayoutPDF create(
-      String filename, Map<String, Object> propsMap, Map<String, Object> configMap)
+  public PageLayoutPDF create(String filename, TemplateRegistryService.ResolvedRequest request)
       throws IOException, PDFCreationException {
     logger.info("开始创建PDF文档: {}", filename);
-    
-    // 创建存储所有生成对象的Map
-    Map<String, IPLRenderableObject<?>> generatedObjects = new LinkedHashMap<>();
 
-    PLPageSet ps = createWithObjects(filename, propsMap, generatedObjects, false);
+    String outputPath = pdfMakerProperties.getOutputDir() + filename + ".pdf";
+    PageLayoutPDF pdf =
+        layoutAndRender(
+            filename,
+            request.getPages(),
+            request.getTemplates(),
+            request.getBindingData(),
+            1,
+            renderPermits,
+            realPageLayout -> {
+              applyPageNumberConfig(realPageLayout, request.getConfig());
+              logger.info("准备渲染PDF到路径: {}", outputPath);
+              return realPageLayout.renderTo(new File(outputPath));
+            });
+
+    logger.info("PDF文档创建完成: {}", filename);
 
-    PageLayoutPDF pageLayout = new PageLayoutPDF();
-    pageLayout.addPageSet(ps);
+    return pdf;
+  }
+
+  /**
+   * 创建PDF文档并直接写入输出流，不落盘
+   *
+   * <p>供同步接口使用：逐个构建页面集，不占用队列任务的渲染许可，并发数由同步接口自己的上限控制，
+   * 同步请求不会阻塞在渲染许可上，也不会挤占队列任务。
+   *
+   * @param filename 文件名（仅用于日志）
+   * @param request 生成请求，单页生成时只包含当前页面
+   * @param outputStream 输出流，渲染完成后关闭
+   * @throws IOException 如果发生IO错误
+   * @throws PDFCreationException 如果PDF创建失败
+   */
+  public void renderTo(
+      String filename, TemplateRegistryService.ResolvedRequest request, OutputStream outputStream)
+      throws IOException, PDFCreationException {
+    logger.info("开始同步创建PDF文档: {}, 文档数量: {}", filename, request.getPages().size());
+
+    layoutAndRender(
+        filename,
+        request.getPages(),
+        request.getTemplates(),
+        request.getBindingData(),
+        1,
+        null,
+        realPageLayout -> {
+          applyPageNumberConfig(realPageLayout, request.getConfig());
+          return realPageLayout.renderTo(outputStream);
+        });
+
+    logger.info("同步PDF文档创建完成: {}", filename);
+  }
 
-    pageLayout.prepareAllPageSets();
+  /** 渲染构建好的页面布局 */
+  @FunctionalInterface
+  private interface LayoutRenderer<T> {
+    T render(PageLayoutPDF realPageLayout) throws IOException, PDFCreationException;
+  }
 
-    PageLayoutPDF realPageLayout = new PageLayoutPDF();
-    ps = createWithObjects(filename, propsMap, generatedObjects, true);
-    realPageLayout.addPageSet(ps);
+  /**
+   * 构建最终用于渲染的页面布局并渲染
+   *
+   * <p>单遍布局模式下表格主体列宽直接由表头列宽配置计算，每个页面集只构建一次；否则先构建并预排版一遍，
+   * 从预排版结果中读取表头列的渲染宽度，再重新构建一遍用于渲染。构建前先并发预取页面中的远程数据。
+   * 多个页面集按 parallelism 并行构建，加入文档的顺序与页面顺序一致。
+   *
+   * <p>预取完成后才获取渲染许可：远程JSON、图片和流式/分页表格数据（下载到临时文件）都在预取中完成，
+   * 许可只覆盖构建、预排版和渲染，等待网络时不占用许可。并行构建时按工作线程数获取许可（不超过许可总数），
+   * 构建完成后只保留一个许可用于单线程渲染。
+   *
+   * @param filename 文件名
+   * @param propsMaps 各页面的配置属性映射（只读）
+   * @param compiled 与 propsMaps 对应的编译结果（引用模板时来自模板缓存），为null时在此编译
+   * @param bindingData 请求按绑定ID提供的数据
+   * @param parallelism 并行度，0 表示使用线程池大小
+   * @param permits 渲染许可，为null时不获取许可（同步接口由自己的并发上限控制）
+   * @param renderer 渲染构建好的页面布局
+   * @return 渲染结果
+   */
+  private <T> T layoutAndRender(
+      String filename,
+      List<Map> propsMaps,
+      List<CompiledTemplate> compiled,
+      BindingData bindingData,
+      int parallelism,
+      Semaphore permits,
+      LayoutRenderer<T> renderer)
+      throws IOException, PDFCreationException {
+    // 每个页面集的模板只编译一次，两遍构建共用
+    List<CompiledTemplate> templates = compiled == null ? compileAll(propsMaps) : compiled;
+    // 每个页面集使用独立的生成对象Map，预排版结果只在本页面集内查找，并行构建时互不影响
+    List<Map<String, IPLRenderableObject<?>>> generatedObjects = new ArrayList<>();
+    for (int i = 0; i < templates.size(); i++) {
+      generatedObjects.add(new LinkedHashMap<>());
+    }
 
-    if (!configMap.isEmpty()) {
-      Map<String, Object> pageNumberConfig = extractPageNumberConfig(configMap);
+    int workers = resolveParallelism(parallelism);
+
+    // 排版前并发预取所有远程数据，构建过程中直接使用预取结果和请求提供的绑定数据
+    try (RemotePrefetchService.PrefetchScope scope =
+        remotePrefetchService.prefetch(propsMaps, bindingData)) {
+      // 并行构建占用多个CPU，按工作线程数获取许可
+      int fanOut = Math.max(1, Math.min(workers, templates.size()));
+      int held = permits == null ? 0 : Math.min(fanOut, renderPermitCount);
+      acquireRenderPermits(permits, held);
+      try {
+        if (!pdfMakerProperties.isSinglePassLayout()) {
+          PageLayoutPDF pageLayout = new PageLayoutPDF();
+          for (PLPageSet ps :
+              buildPageSets(filename, templates, generatedObjects, false, workers)) {
+            pageLayout.addPageSet(ps);
+          }
+          pageLayout.prepareAllPageSets();
+        }
+
+        PageLayoutPDF realPageLayout = new PageLayoutPDF();
+        for (PLPageSet ps : buildPageSets(filename, templates, generatedObjects, true, workers)) {
+          realPageLayout.addPageSet(ps);
+        }
+        // 渲染是单线程的，归还并行构建多占用的许可
+        if (held > 1) {
+          permits.release(held - 1);
+          held = 1;
+        }
+        return renderer.render(realPageLayout);
+      } finally {
+        if (held > 0) {
+          permits.release(held);
+        }
+      }
+    }
+  }
 
-      Boolean pageNumberLeadingEnabled = (Boolean) pageNumberConfig.get("pageNumberLeadingEnabled");
-      Boolean pageNumberCountEnabled = (Boolean) pageNumberConfig.get("pageNumberCountEnabled");
+  /** 编译各页面的模板 */
+  private List<CompiledTemplate> compileAll(List<Map> propsMaps) {
+    StopWatch watch = new StopWatch();
+    watch.start("编译模板");
+    List<CompiledTemplate> templates = new ArrayList<>(propsMaps.size());
+    for (Map m : propsMaps) {
+      templates.add(templateCompiler.compile(m));
+    }
+    watch.stop();
+    logger.debug("模板编译完成: {}", watch.prettyPrint());
+    return templates;
+  }
 
-      Double pageNumberLeading = (Double) pageNumberConfig.get("pageNumberLeading");
-      Double pageNumberCount = (Double) pageNumberConfig.get("pageNumberCount");
+  /** 计算实际并行度，不超过线程池大小 */
+  private int resolveParallelism(int requested) {
+    int max = buildPool.getParallelism();
+    return requested <= 0 ? max : Math.min(requested, max);
+  }
 
-      if (pageNumberLeadingEnabled) {
-        realPageLayout.setCustomLeadingPageCount(-1 * (pageNumberLeading.intValue() - 1));
+  /**
+   * 构建所有页面集
+   *
+   * <p>并行度大于1且页面集多于一个时，在共享线程池中启动若干工作任务依次领取页面集构建，
+   * 工作线程共用调用线程的预取结果。任一页面集失败后其余工作任务不再领取新的页面集。
+   *
+   * @return 按页面顺序排列的页面集
+   */
+  private List<PLPageSet> buildPageSets(
+      String filename,
+      List<CompiledTemplate> templates,
+      List<Map<String, IPLRenderableObject<?>>> generatedObjects,
+      boolean isGenerated,
+      int parallelism)
+      throws IOException, PDFCreationException {
+    PLPageSet[] pageSets = new PLPageSet[templates.size()];
+    int workers = Math.min(parallelism, pageSets.length);
+    long start = System.currentTimeMillis();
+    if (workers <= 1) {
+      for (int i = 0; i < pageSets.length; i++) {
+        pageSets[i] =
+            createWithObjects(filename, templates.get(i), generatedObjects.get(i), isGenerated);
       }
+      logBuildTime(filename, pageSets.length, 1, isGenerated, start);
+      return Arrays.asList(pageSets);
+    }
 
-      if (pageNumberCountEnabled) {
-        realPageLayout.setCustomTotalPageCount(pageNumberCount.intValue());
+    RemotePrefetchService.PrefetchScope source = remotePrefetchService.currentScope();
+    AtomicInteger next = new AtomicInteger();
+    AtomicBoolean failed = new AtomicBoolean(false);
+    Callable<Void> worker =
+        () -> {
+          try (RemotePrefetchService.PrefetchScope scope = remotePrefetchService.share(source)) {
+            int i;
+            while (!failed.get() && (i = next.getAndIncrement()) < pageSets.length) {
+              pageSets[i] =
+                  createWithObjects(
+                      filename, templates.get(i), generatedObjects.get(i), isGenerated);
+            }
+            return null;
+          } catch (Exception e) {
+            failed.set(true);
+            throw e;
+          }
+        };
+    List<ForkJoinTask<Void>> tasks = new ArrayList<>(workers);
+    for (int w = 0; w < workers; w++) {
+      tasks.add(buildPool.submit(worker));
+    }
+
+    for (ForkJoinTask<Void> task : tasks) {
+      try {
+        task.get();
+      } catch (InterruptedException e) {
+        failed.set(true);
+        Thread.currentThread().interrupt();
+        throw new IOException("页面集构建被中断: " + filename, e);
+      } catch (ExecutionException e) {
+        failed.set(true);
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+        if (cause instanceof PDFCreationException) {
+          throw (PDFCreationException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        throw new IOException("页面集构建失败: " + filename, cause);
       }
     }
+    logBuildTime(filename, pageSets.length, workers, isGenerated, start);
+    return Arrays.asList(pageSets);
+  }
 
-    String outputPath = pdfMakerProperties.getOutputDir() + filename + ".pdf";
-    logger.info("准备渲染PDF到路径: {}", outputPath);
-    PageLayoutPDF pdf = realPageLayout.renderTo(new File(outputPath));
-    
-    logger.info("PDF文档创建完成: {}", filename);
+  /** 记录页面集构建耗时，串行和并行使用同一格式，便于比较不同并行度的耗时 */
+  private void logBuildTime(
+      String filename, int count, int workers, boolean isGenerated, long start) {
+    logger.info(
+        "构建页面集完成: {}, 数量: {}, 并行度: {}, isGenerated={}, 耗时: {}ms",
+        filename,
+        count,
+        workers,
+        isGenerated,
+        System.currentTimeMillis() - start);
+  }
 
-    return pdf;
+  /**
+   * 应用页码配置（起始页码、总页数）
+   *
+   * @param pageLayout 页面布局
+   * @param configMap 全局配置
+   */
+  private void applyPageNumberConfig(PageLayoutPDF pageLayout, Map<String, Object> configMap) {
+    if (configMap.isEmpty()) {
+      return;
+    }
+    Map<String, Object> pageNumberConfig = extractPageNumberConfig(configMap);
+
+    Boolean pageNumberLeadingEnabled = (Boolean) pageNumberConfig.get("pageNumberLeadingEnabled");
+    Boolean pageNumberCountEnabled = (Boolean) pageNumberConfig.get("pageNumberCountEnabled");
+
+    Double pageNumberLeading = (Double) pageNumberConfig.get("pageNumberLeading");
+    Double pageNumberCount = (Double) pageNumberConfig.get("pageNumberCount");
+
+    if (pageNumberLeadingEnabled) {
+      pageLayout.setCustomLeadingPageCount(-1 * (pageNumberLeading.intValue() - 1));
+    }
+
+    if (pageNumberCountEnabled) {
+      pageLayout.setCustomTotalPageCount(pageNumberCount.intValue());
+    }
   }
 
   /**
@@ -108,7 +397,7 @@ public class PdfMakerService {
    * 创建PDF文档并返回生成的对象Map
    *
    * @param filename 文件名
-   * @param propsMap 配置属性映射
+   * @param template 编译后的页面模板
    * @param generatedObjects 存储生成对象的Map
    * @return PageLayoutPDF对象
    * @throws IOException 如果发生IO错误
@@ -116,18 +405,15 @@ public class PdfMakerService {
    */
   public PLPageSet createWithObjects(
       String filename,
-      Map<String, Object> propsMap,
+      CompiledTemplate template,
       Map<String, IPLRenderableObject<?>> generatedObjects,
       boolean isGenerated)
       throws IOException, PDFCreationException {
     StopWatch watch = new StopWatch();
     logger.info("开始创建PDF页面集: {}, isGenerated={}", filename, isGenerated);
 
-    // 解析页面配置
-    watch.start("解析页面配置");
-    PageConfigService.PageConfig config = pageConfigService.parsePageConfig(propsMap);
-    watch.stop();
-    logger.debug("页面配置解析完成: {}", watch.prettyPrint());
+    // 页面配置已在模板编译时解析
+    PageConfigService.PageConfig config = template.getConfig();
 
     // 创建页面设置
     watch.start("创建页面设置");
@@ -137,10 +423,9 @@ public class PdfMakerService {
 
     // 构建页面头部
     watch.start("构建页面头部");
-    List<Object> pageHeaderContent = (List<Object>) propsMap.get("pageHeaderContent");
     var pageHeader =
         pageContentBuilderService.buildPageHeader(
-            pageHeaderContent, config, generatedObjects, isGenerated);
+            template.getHeader(), config, generatedObjects, isGenerated);
     pageSet.setPageHeader(pageHeader);
     if (config.isHideHeaderOnFirstPage()) {
       pageSet.setDifferentFirstPageHeader(true);
@@ -150,10 +435,9 @@ public class PdfMakerService {
 
     // 构建页面底部
     watch.start("构建页面底部");
-    List<Object> pageFooterContent = (List<Object>) propsMap.get("pageFooterContent");
     var pageFooter =
         pageContentBuilderService.buildPageFooter(
-            pageFooterContent, config, generatedObjects, isGenerated);
+            template.getFooter(), config, generatedObjects, isGenerated);
     pageSet.setPageFooter(pageFooter);
     if (config.isHideFooterOnFirstPage()) {
       pageSet.setDifferentFirstPageFooter(true);
@@ -163,10 +447,9 @@ public class PdfMakerService {
 
     // 构建页面主体
     watch.start("构建页面主体");
-    List<Object> pageBodyContent = (List<Object>) propsMap.get("pageBodyContent");
     List<IPLRenderableObject<?>> pageBodyElements =
         pageContentBuilderService.buildPageBody(
-            pageBodyContent, config, generatedObjects, isGenerated);
+            template.getBody(), config, generatedObjects, isGenerated);
     for (IPLRenderableObject<?> element : pageBodyElements) {
       pageSet.addElement(element);
     }
@@ -181,57 +464,146 @@ public class PdfMakerService {
   }
 
   /**
-   * 从列表中创建，实际上是多个循环生成pageset
+   * 从列表中创建，多个页面集按指定并行度并行构建
    *
-   * @param filename
-   * @param propsMaps
-   * @return
+   * @param filename 文件名
+   * @param request 生成请求
+   * @param parallelism 本任务的并行度，0 表示使用 pdf.file.batch-parallelism，超过时按其上限
+   * @return PageLayoutPDF对象
    */
-  public PageLayoutPDF create(String filename, List<Map> propsMaps, Map<String, Object> configMap)
+  public PageLayoutPDF create(
+      String filename, TemplateRegistryService.ResolvedRequest request, int parallelism)
       throws IOException, PDFCreationException {
-    logger.info("开始批量创建PDF文档: {}, 文档数量: {}", filename, propsMaps.size());
-    
-    // 创建存储所有生成对象的Map
-    Map<String, IPLRenderableObject<?>> generatedObjects = new LinkedHashMap<>();
-    PageLayoutPDF pageLayout = new PageLayoutPDF();
+    logger.info(
+        "开始批量创建PDF文档: {}, 文档数量: {}, 并行度: {}",
+        filename,
+        request.getPages().size(),
+        resolveParallelism(parallelism));
 
-    for (Map m : propsMaps) {
-      PLPageSet ps = createWithObjects(filename, m, generatedObjects, false);
-      pageLayout.addPageSet(ps);
-    }
+    String outputPath = pdfMakerProperties.getOutputDir() + filename + ".pdf";
+    PageLayoutPDF pdf =
+        layoutAndRender(
+            filename,
+            request.getPages(),
+            request.getTemplates(),
+            request.getBindingData(),
+            parallelism,
+            renderPermits,
+            realPageLayout -> {
+              applyPageNumberConfig(realPageLayout, request.getConfig());
+              logger.info("准备渲染批量PDF到路径: {}", outputPath);
+              return realPageLayout.renderTo(new File(outputPath));
+            });
 
-    pageLayout.prepareAllPageSets();
+    logger.info("批量PDF文档创建完成: {}", filename);
 
-    PageLayoutPDF realPageLayout = new PageLayoutPDF();
+    return pdf;
+  }
 
-    for (Map m : propsMaps) {
-      PLPageSet ps = createWithObjects(filename, m, generatedObjects, true);
-      realPageLayout.addPageSet(ps);
+  /**
+   * 渲染批量任务的一个分片
+   *
+   * <p>页码从起始页码加上 pageOffset 开始；totalPages 大于0且未配置自定义总页数时作为总页数，
+   * 使各分片合并后的页码与整体生成一致。
+   *
+   * @param filename 文件名（仅用于日志）
+   * @param output 分片文件
+   * @param propsMaps 本分片各页面的配置属性映射
+   * @param configMap 全局配置，可为null
+   * @param parallelism 并行度，0 表示使用 pdf.file.batch-parallelism
+   * @param pageOffset 本分片之前的页数
+   * @param totalPages 文档总页数，0 表示不覆盖
+   * @return 分片页数
+   */
+  public int createShard(
+      String filename,
+      File output,
+      List<Map> propsMaps,
+      Map<String, Object> configMap,
+      int parallelism,
+      int pageOffset,
+      int totalPages)
+      throws IOException, PDFCreationException {
+    logger.info(
+        "开始创建PDF分片: {}, 文档数量: {}, 页码偏移: {}", filename, propsMaps.size(), pageOffset);
+
+    layoutAndRender(
+        filename,
+        propsMaps,
+        null,
+        BindingData.EMPTY,
+        parallelism,
+        renderPermits,
+        realPageLayout -> {
+          applyShardPageNumbers(realPageLayout, configMap, pageOffset, totalPages);
+          return realPageLayout.renderTo(output);
+        });
+
+    try (PDDocument document = Loader.loadPDF(output)) {
+      int pages = document.getNumberOfPages();
+      logger.info("PDF分片创建完成: {}, 页数: {}", filename, pages);
+      return pages;
     }
+  }
 
-    if (!configMap.isEmpty()) {
-      Map<String, Object> pageNumberConfig = extractPageNumberConfig(configMap);
-
-      Boolean pageNumberLeadingEnabled = (Boolean) pageNumberConfig.get("pageNumberLeadingEnabled");
-      Boolean pageNumberCountEnabled = (Boolean) pageNumberConfig.get("pageNumberCountEnabled");
-
-      Double pageNumberLeading = (Double) pageNumberConfig.get("pageNumberLeading");
-      Double pageNumberCount = (Double) pageNumberConfig.get("pageNumberCount");
+  /**
+   * 按顺序合并分片文件
+   *
+   * @param shardFiles 分片文件
+   * @param output 合并后的文件
+   */
+  public void mergeShards(List<File> shardFiles, File output) throws IOException {
+    long start = System.currentTimeMillis();
+    PDFMergerUtility merger = new PDFMergerUtility();
+    merger.setDestinationFileName(output.getPath());
+    for (File shardFile : shardFiles) {
+      merger.addSource(shardFile);
+    }
+    // 合并过程使用临时文件缓存，内存占用不随页数增长
+    merger.mergeDocuments(IOUtils.createTempFileOnlyStreamCache());
+    logger.info(
+        "PDF分片合并完成: {}, 分片数: {}, 耗时: {}ms",
+        output.getName(),
+        shardFiles.size(),
+        System.currentTimeMillis() - start);
+  }
 
-      if (pageNumberLeadingEnabled) {
-        realPageLayout.setCustomLeadingPageCount(-1 * (pageNumberLeading.intValue() - 1));
-      }
+  /** 获取 count 个排版渲染许可，count 不大于0时不获取 */
+  private void acquireRenderPermits(Semaphore permits, int count) throws InterruptedIOException {
+    if (count <= 0) {
+      return;
+    }
+    try {
+      permits.acquire(count);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("等待渲染许可时被中断");
+    }
+  }
 
-      if (pageNumberCountEnabled) {
-        realPageLayout.setCustomTotalPageCount(pageNumberCount.intValue());
-      }
+  /** 应用分片页码：起始页码加上偏移量，未配置自定义总页数时使用整个文档的总页数 */
+  private void applyShardPageNumbers(
+      PageLayoutPDF pageLayout, Map<String, Object> configMap, int pageOffset, int totalPages) {
+    Map<String, Object> page =
+        configMap != null && configMap.get("page") instanceof Map
+            ? (Map<String, Object>) configMap.get("page")
+            : Map.of();
+
+    int leading = 1;
+    if (Boolean.TRUE.equals(page.get("pageNumberLeadingEnabled"))
+        && page.get("pageNumberLeading") instanceof Number) {
+      leading = ((Number) page.get("pageNumberLeading")).intValue();
+    }
+    int firstPageNumber = leading + pageOffset;
+    if (firstPageNumber != 1) {
+      pageLayout.setCustomLeadingPageCount(-1 * (firstPageNumber - 1));
     }
-    String outputPath = pdfMakerProperties.getOutputDir() + filename + ".pdf";
-    logger.info("准备渲染批量PDF到路径: {}", outputPath);
-    PageLayoutPDF pdf = realPageLayout.renderTo(new File(outputPath));
-    
-    logger.info("批量PDF文档创建完成: {}", filename);
 
-    return pdf;
+    if (Boolean.TRUE.equals(page.get("pageNumberCountEnabled"))
+        && page.get("pageNumberCount") instanceof Number) {
+      pageLayout.setCustomTotalPageCount(((Number) page.get("pageNumberCount")).intValue());
+    } else if (totalPages > 0) {
+      pageLayout.setCustomTotalPageCount(totalPages);
+    }
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,365 @@
+package com.xxs3315.mbl.pdf.services;
+
+import com.xxs3315.mbl.pdf.config.RemoteFetchConfig;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * 远程数据获取服务
+ *
+ * <p>所有远程数据绑定和URL图片共用一个 OkHttpClient：连接池复用 keep-alive 连接，HTTPS 下协商 HTTP/2，
+ * 所有请求都经过 Dispatcher 排队，从而受总并发数和单主机并发数限制。
+ */
+@Service
+public class RemoteFetchService {
+
+  private static final Logger logger = LoggerFactory.getLogger(RemoteFetchService.class);
+
+  private final RemoteFetchConfig config;
+  private final ConnectionPool connectionPool;
+  private final Dispatcher dispatcher;
+  private final OkHttpClient client;
+  // 流式读取大响应体时不限制整体耗时，只受读超时约束，与 client 共用连接池和 Dispatcher
+  private final OkHttpClient streamClient;
+
+  // 请求统计
+  private final AtomicLong totalRequests = new AtomicLong(0);
+  private final AtomicLong failedRequests = new AtomicLong(0);
+  private final AtomicLong totalLatencyMillis = new AtomicLong(0);
+  private final AtomicLong maxLatencyMillis = new AtomicLong(0);
+  private final Map<String, AtomicLong> hostRequests = new ConcurrentHashMap<>();
+
+  @Autowired
+  public RemoteFetchService(RemoteFetchConfig config) {
+    this.config = config;
+    this.connectionPool =
+        new ConnectionPool(
+            config.getMaxIdleConnections(), config.getKeepAlive(), TimeUnit.MILLISECONDS);
+    this.dispatcher = new Dispatcher();
+    this.dispatcher.setMaxRequests(config.getMaxRequests());
+    this.dispatcher.setMaxRequestsPerHost(config.getMaxRequestsPerHost());
+
+    OkHttpClient.Builder builder =
+        new OkHttpClient.Builder()
+            .connectionPool(connectionPool)
+            .dispatcher(dispatcher)
+            .connectTimeout(config.getConnectTimeout(), TimeUnit.MILLISECONDS)
+            .readTimeout(config.getReadTimeout(), TimeUnit.MILLISECONDS)
+            .callTimeout(config.getCallTimeout(), TimeUnit.MILLISECONDS);
+    if (!config.isHttp2Enabled()) {
+      builder.protocols(List.of(Protocol.HTTP_1_1));
+    }
+    this.client = builder.build();
+    this.streamClient = client.newBuilder().callTimeout(0, TimeUnit.MILLISECONDS).build();
+  }
+
+  @PreDestroy
+  public void destroy() {
+    dispatcher.executorService().shutdown();
+    connectionPool.evictAll();
+  }
+
+  /** 读取响应 */
+  @FunctionalInterface
+  private interface ResponseReader<T> {
+    T read(Response response) throws IOException;
+  }
+
+  /** 流式读取响应体 */
+  @FunctionalInterface
+  public interface StreamReader<T> {
+    T read(Reader reader) throws IOException;
+  }
+
+  /** 远程响应，用于条件请求（ETag/Last-Modified 重新验证） */
+  public static class RemoteResponse {
+    private final int code;
+    private final String body;
+    private final String etag;
+    private final String lastModified;
+
+    RemoteResponse(int code, String body, String etag, String lastModified) {
+      this.code = code;
+      this.body = body;
+      this.etag = etag;
+      this.lastModified = lastModified;
+    }
+
+    public int getCode() {
+      return code;
+    }
+
+    /** 是否为304，即缓存内容仍然有效 */
+    public boolean isNotModified() {
+      return code == 304;
+    }
+
+    public String getBody() {
+      return body;
+    }
+
+    public String getEtag() {
+      return etag;
+    }
+
+    public String getLastModified() {
+      return lastModified;
+    }
+  }
+
+  /**
+   * 异步获取远程内容（字符串）
+   *
+   * @param url 请求地址
+   * @return 响应体字符串，请求失败或非2xx状态时异常完成
+   */
+  public CompletableFuture<String> fetchStringAsync(String url) {
+    return execute(url, Map.of(), response -> successBody(url, response).string());
+  }
+
+  /**
+   * 异步获取远程内容（字节）
+   *
+   * @param url 请求地址
+   * @return 响应体字节，请求失败或非2xx状态时异常完成
+   */
+  public CompletableFuture<byte[]> fetchBytesAsync(String url) {
+    return execute(url, Map.of(), response -> successBody(url, response).bytes());
+  }
+
+  /**
+   * 异步发起条件请求
+   *
+   * @param url 请求地址
+   * @param etag 上次响应的ETag，可为null
+   * @param lastModified 上次响应的Last-Modified，可为null
+   * @return 2xx时带响应体，304时响应体为null，其他状态异常完成
+   */
+  public CompletableFuture<RemoteResponse> fetchConditionalAsync(
+      String url, String etag, String lastModified) {
+    Map<String, String> headers = new HashMap<>();
+    if (etag != null) {
+      headers.put("If-None-Match", etag);
+    }
+    if (lastModified != null) {
+      headers.put("If-Modified-Since", lastModified);
+    }
+    return execute(
+        url,
+        headers,
+        response -> {
+          if (response.code() == 304) {
+            return new RemoteResponse(304, null, etag, lastModified);
+          }
+          String body = successBody(url, response).string();
+          return new RemoteResponse(
+              response.code(), body, response.header("ETag"), response.header("Last-Modified"));
+        });
+  }
+
+  /**
+   * 获取远程内容（字符串），阻塞直到完成
+   *
+   * @param url 请求地址
+   * @return 响应体字符串
+   * @throws IOException 请求失败或非2xx状态
+   */
+  public String fetchString(String url) throws IOException {
+    return await(url, fetchStringAsync(url));
+  }
+
+  /**
+   * 获取远程内容（字节），阻塞直到完成
+   *
+   * @param url 请求地址
+   * @return 响应体字节
+   * @throws IOException 请求失败或非2xx状态
+   */
+  public byte[] fetchBytes(String url) throws IOException {
+    return await(url, fetchBytesAsync(url));
+  }
+
+  /**
+   * 流式获取远程内容，在当前线程中边下载边读取，不缓存响应体
+   *
+   * <p>用于大数据量表格等不适合整体读入内存的响应，不经过远程JSON缓存和预取。
+   *
+   * @param url 请求地址
+   * @param reader 响应体读取逻辑，返回后连接即被释放
+   * @return 读取结果
+   * @throws IOException 请求失败、非2xx状态或读取失败
+   */
+  public <T> T fetchStream(String url, StreamReader<T> reader) throws IOException {
+    Request request;
+    try {
+      request = new Request.Builder().url(url).get().build();
+    } catch (IllegalArgumentException e) {
+      failedRequests.incrementAndGet();
+      throw new IOException("无效的URL: " + url, e);
+    }
+
+    totalRequests.incrementAndGet();
+    hostRequests.computeIfAbsent(request.url().host(), k -> new AtomicLong()).incrementAndGet();
+    long start = System.currentTimeMillis();
+    try (Response response = streamClient.newCall(request).execute()) {
+      return reader.read(successBody(url, response).charStream());
+    } catch (IOException e) {
+      failedRequests.incrementAndGet();
+      throw e;
+    } finally {
+      recordLatency(start);
+    }
+  }
+
+  /**
+   * 异步下载远程内容到文件，不缓存响应体
+   *
+   * <p>与 {@link #fetchStream} 一样不限制整体耗时，只受读超时约束，用于在排版前下载大数据量表格。
+   *
+   * @param url 请求地址
+   * @param file 目标文件，已存在时覆盖
+   * @return 下载完成的文件，请求失败或非2xx状态时异常完成
+   */
+  public CompletableFuture<Path> fetchToFileAsync(String url, Path file) {
+    return execute(
+        streamClient,
+        url,
+        Map.of(),
+        response -> {
+          try (InputStream in = successBody(url, response).byteStream()) {
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+          }
+          return file;
+        });
+  }
+
+  private ResponseBody successBody(String url, Response response) throws IOException {
+    if (!response.isSuccessful() || response.body() == null) {
+      throw new IOException("请求失败: " + url + ", HTTP " + response.code());
+    }
+    return response.body();
+  }
+
+  private <T> CompletableFuture<T> execute(
+      String url, Map<String, String> headers, ResponseReader<T> reader) {
+    return execute(client, url, headers, reader);
+  }
+
+  private <T> CompletableFuture<T> execute(
+      OkHttpClient httpClient, String url, Map<String, String> headers, ResponseReader<T> reader) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    Request request;
+    try {
+      Request.Builder builder = new Request.Builder().url(url).get();
+      headers.forEach(builder::header);
+      request = builder.build();
+    } catch (IllegalArgumentException e) {
+      failedRequests.incrementAndGet();
+      future.completeExceptionally(new IOException("无效的URL: " + url, e));
+      return future;
+    }
+
+    totalRequests.incrementAndGet();
+    hostRequests.computeIfAbsent(request.url().host(), k -> new AtomicLong()).incrementAndGet();
+    long start = System.currentTimeMillis();
+
+    httpClient
+        .newCall(request)
+        .enqueue(
+            new Callback() {
+              @Override
+              public void onFailure(Call call, IOException e) {
+                recordLatency(start);
+                failedRequests.incrementAndGet();
+                future.completeExceptionally(e);
+              }
+
+              @Override
+              public void onResponse(Call call, Response response) {
+                try (response) {
+                  future.complete(reader.read(response));
+                } catch (IOException e) {
+                  failedRequests.incrementAndGet();
+                  future.completeExceptionally(e);
+                } finally {
+                  recordLatency(start);
+                }
+              }
+            });
+    return future;
+  }
+
+  /** 阻塞等待异步请求结果 */
+  public <T> T await(String url, CompletableFuture<T> future) throws IOException {
+    try {
+      // OkHttp 自身有 callTimeout，这里多留一点余量防止永久阻塞
+      return future.get(config.getCallTimeout() + 1000, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("请求被中断: " + url, e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException("请求异常: " + url, cause);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      throw new IOException("请求超时: " + url, e);
+    }
+  }
+
+  private void recordLatency(long start) {
+    long latency = System.currentTimeMillis() - start;
+    totalLatencyMillis.addAndGet(latency);
+    maxLatencyMillis.accumulateAndGet(latency, Math::max);
+    logger.debug("远程请求耗时: {}ms", latency);
+  }
+
+  /** 获取请求和连接池统计信息 */
+  public Map<String, Object> getStats() {
+    Map<String, Object> stats = new ConcurrentHashMap<>();
+    long requests = totalRequests.get();
+    stats.put("totalRequests", requests);
+    stats.put("failedRequests", failedRequests.get());
+    stats.put("averageLatencyMs", requests == 0 ? 0 : totalLatencyMillis.get() / requests);
+    stats.put("maxLatencyMs", maxLatencyMillis.get());
+    stats.put("runningCalls", dispatcher.runningCallsCount());
+    stats.put("queuedCalls", dispatcher.queuedCallsCount());
+    stats.put("connectionCount", connectionPool.connectionCount());
+    stats.put("idleConnectionCount", connectionPool.idleConnectionCount());
+    stats.put("maxRequests", dispatcher.getMaxRequests());
+    stats.put("maxRequestsPerHost", dispatcher.getMaxRequestsPerHost());
+    Map<String, Long> perHost = new ConcurrentHashMap<>();
+    hostRequests.forEach((host, count) -> perHost.put(host, count.get()));
+    stats.put("hostRequests", perHost);
+    return stats;
+  }
+}
@@ -0,0 +1,231 @@
+package com.xxs3315.mbl.pdf.services;
+
+import com.xxs3315.mbl.pdf.config.RemoteFetchConfig;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * 远程JSON响应缓存
+ *
+ * <p>同一个数据源URL常被页眉、页脚、主体以及批量任务的每一页重复绑定。缓存以URL为键，在TTL内直接返回；
+ * 过期后携带 ETag/Last-Modified 发起条件请求，304时只刷新时间戳。同一URL的并发加载合并为一次请求。
+ * 缓存总大小按字节限制，超出时按最近最少使用淘汰。
+ */
+@Service
+public class RemoteJsonCacheService {
+
+  private static final Logger logger = LoggerFactory.getLogger(RemoteJsonCacheService.class);
+
+  private final RemoteFetchConfig config;
+  private final RemoteFetchService remoteFetchService;
+
+  // 访问顺序的LinkedHashMap实现LRU，所有访问都在cache锁内进行
+  private final LinkedHashMap<String, CacheEntry> cache = new LinkedHashMap<>(16, 0.75f, true);
+  private long currentBytes = 0;
+
+  // 正在加载的URL，用于合并并发请求
+  private final Map<String, CompletableFuture<CacheEntry>> inflight = new ConcurrentHashMap<>();
+
+  // 缓存统计
+  private final AtomicLong hits = new AtomicLong(0);
+  private final AtomicLong misses = new AtomicLong(0);
+  private final AtomicLong collapsed = new AtomicLong(0);
+  private final AtomicLong revalidations = new AtomicLong(0);
+  private final AtomicLong notModified = new AtomicLong(0);
+  private final AtomicLong evictions = new AtomicLong(0);
+  private final AtomicLong loadFailures = new AtomicLong(0);
+
+  @Autowired
+  public RemoteJsonCacheService(RemoteFetchConfig config, RemoteFetchService remoteFetchService) {
+    this.config = config;
+    this.remoteFetchService = remoteFetchService;
+  }
+
+  /** 缓存条目 */
+  private static class CacheEntry {
+    private final String body;
+    private final String etag;
+    private final String lastModified;
+    private final long fetchedAt;
+    private final long size;
+
+    CacheEntry(String body, String etag, String lastModified, long fetchedAt) {
+      this.body = body;
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.fetchedAt = fetchedAt;
+      // Java字符串按每字符2字节估算
+      this.size = (long) body.length() * 2;
+    }
+
+    boolean isFresh(long now, long ttl) {
+      return now - fetchedAt < ttl;
+    }
+
+    boolean canRevalidate() {
+      return etag != null || lastModified != null;
+    }
+  }
+
+  /**
+   * 获取远程JSON字符串，阻塞直到完成
+   *
+   * @param url 请求地址
+   * @return 响应体字符串
+   * @throws IOException 请求失败或非2xx状态
+   */
+  public String getJson(String url) throws IOException {
+    return remoteFetchService.await(url, getJsonAsync(url));
+  }
+
+  /**
+   * 异步获取远程JSON字符串
+   *
+   * @param url 请求地址
+   * @return 响应体字符串，请求失败或非2xx状态时异常完成
+   */
+  public CompletableFuture<String> getJsonAsync(String url) {
+    if (!config.isCacheEnabled()) {
+      return remoteFetchService.fetchStringAsync(url);
+    }
+
+    CacheEntry cached;
+    synchronized (cache) {
+      cached = cache.get(url);
+    }
+    if (cached != null && cached.isFresh(System.currentTimeMillis(), config.getCacheTtl())) {
+      hits.incrementAndGet();
+      return CompletableFuture.completedFuture(cached.body);
+    }
+
+    CompletableFuture<CacheEntry> promise = new CompletableFuture<>();
+    CompletableFuture<CacheEntry> existing = inflight.putIfAbsent(url, promise);
+    if (existing != null) {
+      // 已有线程在加载同一URL，等待其结果
+      collapsed.incrementAndGet();
+      return existing.thenApply(entry -> entry.body);
+    }
+
+    misses.incrementAndGet();
+    load(url, cached, promise);
+    return promise.thenApply(entry -> entry.body);
+  }
+
+  private void load(String url, CacheEntry stale, CompletableFuture<CacheEntry> promise) {
+    boolean revalidate = stale != null && stale.canRevalidate();
+    if (revalidate) {
+      revalidations.incrementAndGet();
+    }
+    remoteFetchService
+        .fetchConditionalAsync(
+            url, revalidate ? stale.etag : null, revalidate ? stale.lastModified : null)
+        .whenComplete(
+            (response, error) -> {
+              CacheEntry entry = null;
+              Throwable failure = error;
+              if (failure == null) {
+                try {
+                  entry = toEntry(url, stale, revalidate, response);
+                  put(url, entry);
+                } catch (Exception e) {
+                  failure = e;
+                }
+              }
+              // 无论成功失败都移除加载标记并完成，否则后续同一URL的请求会一直等待；
+              // 成功时先写入缓存再移除加载标记，保证后续请求能命中缓存
+              inflight.remove(url, promise);
+              if (failure != null) {
+                loadFailures.incrementAndGet();
+                promise.completeExceptionally(failure);
+              } else {
+                promise.complete(entry);
+              }
+            });
+  }
+
+  /** 将响应转换为缓存条目，未发送条件请求却返回304时视为错误 */
+  private CacheEntry toEntry(
+      String url, CacheEntry stale, boolean revalidate, RemoteFetchService.RemoteResponse response)
+      throws IOException {
+    long now = System.currentTimeMillis();
+    if (response.isNotModified()) {
+      if (!revalidate) {
+        throw new IOException("未发送条件请求却返回304: " + url);
+      }
+      notModified.incrementAndGet();
+      return new CacheEntry(stale.body, stale.etag, stale.lastModified, now);
+    }
+    if (response.getBody() == null) {
+      throw new IOException("响应体为空: " + url);
+    }
+    return new CacheEntry(response.getBody(), response.getEtag(), response.getLastModified(), now);
+  }
+
+  private void put(String url, CacheEntry entry) {
+    long maxBytes = config.getCacheMaxBytes();
+    synchronized (cache) {
+      CacheEntry previous = cache.remove(url);
+      if (previous != null) {
+        currentBytes -= previous.size;
+      }
+      if (entry.size > maxBytes) {
+        logger.debug("远程响应过大，不缓存: {} ({} bytes)", url, entry.size);
+        return;
+      }
+      cache.put(url, entry);
+      currentBytes += entry.size;
+
+      // 超出容量时淘汰最近最少使用的条目
+      Iterator<Map.Entry<String, CacheEntry>> it = cache.entrySet().iterator();
+      while (currentBytes > maxBytes && it.hasNext()) {
+        Map.Entry<String, CacheEntry> eldest = it.next();
+        currentBytes -= eldest.getValue().size;
+        it.remove();
+        evictions.incrementAndGet();
+      }
+    }
+  }
+
+  /** 清空缓存 */
+  public void clearCache() {
+    synchronized (cache) {
+      cache.clear();
+      currentBytes = 0;
+    }
+    logger.info("远程JSON缓存已清空");
+  }
+
+  /** 获取缓存统计信息 */
+  public Map<String, Object> getCacheStats() {
+    Map<String, Object> stats = new ConcurrentHashMap<>();
+    synchronized (cache) {
+      stats.put("cachedEntries", cache.size());
+      stats.put("cachedBytes", currentBytes);
+    }
+    long hitCount = hits.get();
+    long missCount = misses.get() + collapsed.get();
+    stats.put("enabled", config.isCacheEnabled());
+    stats.put("ttlMs", config.getCacheTtl());
+    stats.put("maxBytes", config.getCacheMaxBytes());
+    stats.put("hits", hitCount);
+    stats.put("misses", misses.get());
+    stats.put("collapsedLoads", collapsed.get());
+    stats.put("revalidations", revalidations.get());
+    stats.put("notModified", notModified.get());
+    stats.put("evictions", evictions.get());
+    stats.put("loadFailures", loadFailures.get());
+    stats.put(
+        "hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+    stats.put("inflightLoads", inflight.size());
+    return stats;
+  }
+}
@@ -0,0 +1,510 @@
+package com.xxs3315.mbl.pdf.services;
+
+import com.xxs3315.mbl.pdf.properties.PdfMakerProperties;
+import com.xxs3315.mbl.pdf.template.BindingData;
+import com.xxs3315.mbl.util.JsonUtil;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import okhttp3.HttpUrl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * 远程数据预取服务
+ *
+ * <p>在排版开始前遍历页面JSON，收集所有 request 为 url 的数据绑定和URL图片，并发发起请求并等待全部完成。
+ * 预取结果保存在当前线程的预取范围内，构建器读取远程数据时优先从中获取，排版过程中不再阻塞于网络请求。
+ * 远程表格数据和本地表格数据中的URL图片在对应数据可用后继续预取。
+ *
+ * <p>流式和分页的远程表格数据（stream 为 true 或指定 pageSize）不读入内存，而是下载到临时文件，
+ * 构建表格时从文件逐行读取；分页数据按页下载，直到某页不足 pageSize 行或达到行数上限。
+ * 临时文件在预取范围关闭时删除。
+ *
+ * <p>预取范围同时携带本次请求按绑定ID提供的数据（引用模板时），构建器通过 {@link #currentBindingData()}
+ * 取得，并行构建的工作线程随预取结果一起共用；已提供数据的绑定不再预取，只预取其中的URL图片。
+ */
+@Service
+public class RemotePrefetchService {
+
+  private static final Logger logger = LoggerFactory.getLogger(RemotePrefetchService.class);
+
+  private static final ThreadLocal<PrefetchScope> CURRENT_SCOPE = new ThreadLocal<>();
+
+  @Autowired private RemoteFetchService remoteFetchService;
+
+  @Autowired private RemoteJsonCacheService remoteJsonCacheService;
+
+  @Autowired private PdfMakerProperties pdfMakerProperties;
+
+  /** 预取范围，关闭后当前线程不再使用预取结果，由预取创建的范围关闭时删除下载的临时文件 */
+  public static class PrefetchScope implements AutoCloseable {
+    private final Map<String, CompletableFuture<String>> jsons;
+    private final Map<String, CompletableFuture<byte[]>> images;
+    private final Map<String, CompletableFuture<Path>> spools;
+    private final Queue<Path> files;
+    private final BindingData bindingData;
+    private final boolean owner;
+    private final PrefetchScope previous;
+
+    private PrefetchScope(PrefetchScope previous, BindingData bindingData) {
+      this.jsons = new ConcurrentHashMap<>();
+      this.images = new ConcurrentHashMap<>();
+      this.spools = new ConcurrentHashMap<>();
+      this.files = new ConcurrentLinkedQueue<>();
+      this.bindingData = bindingData;
+      this.owner = true;
+      this.previous = previous;
+    }
+
+    /** 与 source 共用预取结果和绑定数据，临时文件由 source 删除 */
+    private PrefetchScope(PrefetchScope previous, PrefetchScope source) {
+      this.jsons = source.jsons;
+      this.images = source.images;
+      this.spools = source.spools;
+      this.files = source.files;
+      this.bindingData = source.bindingData;
+      this.owner = false;
+      this.previous = previous;
+    }
+
+    /** 预取的JSON数量 */
+    public int getJsonCount() {
+      return jsons.size();
+    }
+
+    /** 预取的图片数量 */
+    public int getImageCount() {
+      return images.size();
+    }
+
+    /** 下载到临时文件的表格数据数量（分页数据每页一个） */
+    public int getSpoolCount() {
+      return spools.size();
+    }
+
+    @Override
+    public void close() {
+      if (owner) {
+        Path file;
+        while ((file = files.poll()) != null) {
+          try {
+            Files.deleteIfExists(file);
+          } catch (IOException e) {
+            logger.warn("删除表格数据临时文件失败: {}", file, e);
+          }
+        }
+      }
+      if (previous == null) {
+        CURRENT_SCOPE.remove();
+      } else {
+        CURRENT_SCOPE.set(previous);
+      }
+    }
+  }
+
+  /**
+   * 预取页面中所有远程数据，返回后在当前线程生效，需在排版结束后关闭
+   *
+   * @param propsMaps 各页面的配置属性映射
+   * @return 预取范围
+   */
+  public PrefetchScope prefetch(List<Map> propsMaps) {
+    return prefetch(propsMaps, BindingData.EMPTY);
+  }
+
+  /**
+   * 预取页面中所有远程数据，返回后在当前线程生效，需在排版结束后关闭
+   *
+   * @param propsMaps 各页面的配置属性映射（只读）
+   * @param bindingData 请求按绑定ID提供的数据，这些绑定不预取
+   * @return 预取范围
+   */
+  public PrefetchScope prefetch(List<Map> propsMaps, BindingData bindingData) {
+    PrefetchScope scope = new PrefetchScope(CURRENT_SCOPE.get(), bindingData);
+    CURRENT_SCOPE.set(scope);
+
+    long start = System.currentTimeMillis();
+    List<CompletableFuture<?>> pending = new ArrayList<>();
+    for (Map propsMap : propsMaps) {
+      collect(propsMap, scope, pending);
+    }
+    if (pending.isEmpty()) {
+      return scope;
+    }
+
+    try {
+      // 每个请求都有自己的超时（普通请求为 callTimeout，下载表格数据为读超时），这里等待全部结束，
+      // 排版期间不再发起或等待网络请求
+      CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      // 单个请求失败不影响其他请求，构建器读取时会重新抛出并按原有逻辑处理
+      logger.debug("部分远程数据预取失败: {}", e.getMessage());
+    }
+    logger.info(
+        "远程数据预取完成: JSON {} 个, 图片 {} 个, 表格数据文件 {} 个, 耗时 {}ms",
+        scope.getJsonCount(),
+        scope.getImageCount(),
+        scope.getSpoolCount(),
+        System.currentTimeMillis() - start);
+    return scope;
+  }
+
+  /**
+   * 获取当前线程的预取范围
+   *
+   * @return 预取范围，不在预取范围内时返回null
+   */
+  public PrefetchScope currentScope() {
+    return CURRENT_SCOPE.get();
+  }
+
+  /**
+   * 在当前线程中使用另一线程的预取结果，用于并行构建页面的工作线程，需在任务结束后关闭
+   *
+   * @param source 预取线程的预取范围，为null时不共享任何结果
+   * @return 预取范围
+   */
+  public PrefetchScope share(PrefetchScope source) {
+    PrefetchScope previous = CURRENT_SCOPE.get();
+    PrefetchScope scope =
+        source == null
+            ? new PrefetchScope(previous, BindingData.EMPTY)
+            : new PrefetchScope(previous, source);
+    CURRENT_SCOPE.set(scope);
+    return scope;
+  }
+
+  /**
+   * 获取当前线程的预取范围携带的绑定数据
+   *
+   * @return 绑定数据，不在预取范围内时返回 {@link BindingData#EMPTY}
+   */
+  public BindingData currentBindingData() {
+    PrefetchScope scope = CURRENT_SCOPE.get();
+    return scope == null ? BindingData.EMPTY : scope.bindingData;
+  }
+
+  /** 递归收集远程绑定和URL图片 */
+  private void collect(Object node, PrefetchScope scope, List<CompletableFuture<?>> pending) {
+    if (node instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) node;
+      Object value = map.get("value");
+      if (value instanceof String) {
+        String url = (String) value;
+        String bound = boundValue(map, scope.bindingData);
+        if (bound != null) {
+          // 请求已提供数据的绑定构建时改为本地数据
+          collectLocal(bound, scope, pending);
+        } else if ("url".equals(map.get("request"))) {
+          if (pageSize(map) != null) {
+            pending.add(spoolPages(url, map, 0, 0, scope));
+          } else if (isStreamingBinding(map)) {
+            pending.add(spool(url, scope));
+          } else {
+            pending.add(prefetchJson(url, scope));
+          }
+        } else if ("data".equals(map.get("request"))) {
+          collectLocal(url, scope, pending);
+        } else if (isUrlImage(map, url)) {
+          pending.add(prefetchImage(url, scope));
+        }
+      }
+      for (Object child : map.values()) {
+        collect(child, scope, pending);
+      }
+    } else if (node instanceof Iterable) {
+      for (Object child : (Iterable<?>) node) {
+        collect(child, scope, pending);
+      }
+    }
+  }
+
+  /** 请求按绑定ID提供的数据，未提供时为null */
+  private String boundValue(Map<?, ?> binding, BindingData bindingData) {
+    Object id = binding.get("id");
+    if (!binding.containsKey("request") || !(id instanceof String)) {
+      return null;
+    }
+    return bindingData.get((String) id);
+  }
+
+  /** 收集本地数据中的URL图片，表格数据逐行读取，不保留已读取的行 */
+  private void collectLocal(String json, PrefetchScope scope, List<CompletableFuture<?>> pending) {
+    if (!json.contains("imageType")) {
+      return;
+    }
+    try {
+      if (json.stripLeading().startsWith("[")) {
+        collectRows(new StringReader(json), tableLimit(), scope, pending);
+      } else {
+        collect(JsonUtil.parse(json), scope, pending);
+      }
+    } catch (Exception e) {
+      logger.debug("解析本地数据失败，跳过图片预取: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * 逐行读取表格数据并收集其中的URL图片
+   *
+   * @return 读取的行数
+   */
+  private int collectRows(
+      Reader reader, int limit, PrefetchScope scope, List<CompletableFuture<?>> pending)
+      throws IOException {
+    int count = 0;
+    try (JsonUtil.ArrayReader rows = JsonUtil.openArray(reader)) {
+      Map row;
+      while (count < limit && (row = rows.next()) != null) {
+        count++;
+        collect(row, scope, pending);
+      }
+    }
+    return count;
+  }
+
+  /** 构建表格时最多读取的行数，与构建器一致 */
+  private int tableLimit() {
+    return pdfMakerProperties.getTableMaxRecords();
+  }
+
+  /**
+   * 是否为流式读取的远程表格数据绑定（stream 为 true 或指定了分页大小 pageSize）
+   *
+   * <p>流式数据下载到临时文件后逐行读取，不进入远程JSON缓存，避免整体读入内存。
+   */
+  public static boolean isStreamingBinding(Map<?, ?> binding) {
+    return Boolean.TRUE.equals(binding.get("stream")) || binding.get("pageSize") instanceof Number;
+  }
+
+  /** 分页大小，不分页时为null */
+  public static Integer pageSize(Map<?, ?> binding) {
+    return binding.get("pageSize") instanceof Number number
+        ? Math.max(1, number.intValue())
+        : null;
+  }
+
+  /** 页码参数名，默认 page */
+  public static String pageParam(Map<?, ?> binding) {
+    return stringOrDefault(binding.get("pageParam"), "page");
+  }
+
+  /** 分页大小参数名，默认 size */
+  public static String sizeParam(Map<?, ?> binding) {
+    return stringOrDefault(binding.get("sizeParam"), "size");
+  }
+
+  private static String stringOrDefault(Object value, String defaultValue) {
+    return value instanceof String text && !text.isBlank() ? text : defaultValue;
+  }
+
+  /**
+   * 在URL上设置分页参数
+   *
+   * @throws IOException URL无效
+   */
+  public static String buildPageUrl(
+      String url, String pageParam, int page, String sizeParam, int pageSize) throws IOException {
+    HttpUrl parsed = HttpUrl.parse(url);
+    if (parsed == null) {
+      throw new IOException("无效的URL: " + url);
+    }
+    return parsed
+        .newBuilder()
+        .setQueryParameter(pageParam, String.valueOf(page))
+        .setQueryParameter(sizeParam, String.valueOf(pageSize))
+        .build()
+        .toString();
+  }
+
+  private boolean isUrlImage(Map<?, ?> map, String value) {
+    boolean external = value.startsWith("http://") || value.startsWith("https://");
+    if (!external) {
+      return false;
+    }
+    // 图片元素或表格中 imageType 为 url 的单元格
+    return "image".equals(map.get("cat"))
+        || (map.get("imageType") instanceof String
+            && ((String) map.get("imageType")).equalsIgnoreCase("url"));
+  }
+
+  private CompletableFuture<?> prefetchJson(String url, PrefetchScope scope) {
+    CompletableFuture<String> existing = scope.jsons.get(url);
+    if (existing != null) {
+      return existing;
+    }
+    CompletableFuture<String> future = remoteJsonCacheService.getJsonAsync(url);
+    scope.jsons.put(url, future);
+
+    // JSON返回后继续预取其中的URL图片
+    return future.thenCompose(
+        json -> {
+          if (json == null || !json.contains("imageType")) {
+            return CompletableFuture.completedFuture(null);
+          }
+          List<CompletableFuture<?>> nested = new ArrayList<>();
+          try {
+            collect(JsonUtil.parse(json), scope, nested);
+          } catch (Exception e) {
+            logger.debug("解析远程数据失败，跳过图片预取: {}", url);
+          }
+          return CompletableFuture.allOf(nested.toArray(new CompletableFuture[0]));
+        });
+  }
+
+  private CompletableFuture<byte[]> prefetchImage(String url, PrefetchScope scope) {
+    return scope.images.computeIfAbsent(url, remoteFetchService::fetchBytesAsync);
+  }
+
+  /** 下载流式表格数据到临时文件，完成后预取其中的URL图片 */
+  private CompletableFuture<?> spool(String url, PrefetchScope scope) {
+    CompletableFuture<Path> existing = scope.spools.get(url);
+    if (existing != null) {
+      return existing;
+    }
+    CompletableFuture<Path> future = download(url, scope);
+    scope.spools.put(url, future);
+    return future.thenCompose(
+        file -> {
+          List<CompletableFuture<?>> nested = new ArrayList<>();
+          try {
+            scanFile(file, tableLimit(), scope, nested);
+          } catch (IOException e) {
+            logger.debug("解析表格数据失败，跳过图片预取: {}", url);
+          }
+          return CompletableFuture.allOf(nested.toArray(new CompletableFuture[0]));
+        });
+  }
+
+  /**
+   * 从第 page 页开始依次下载分页表格数据，与构建器的分页逻辑一致：某页不足 pageSize 行或达到行数上限时停止
+   *
+   * @param total 之前各页的行数
+   */
+  private CompletableFuture<?> spoolPages(
+      String url, Map<?, ?> binding, int page, int total, PrefetchScope scope) {
+    int limit = tableLimit();
+    if (total >= limit) {
+      return CompletableFuture.completedFuture(null);
+    }
+    int pageSize = pageSize(binding);
+    String pageUrl;
+    try {
+      pageUrl = buildPageUrl(url, pageParam(binding), page, sizeParam(binding), pageSize);
+    } catch (IOException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    CompletableFuture<Path> future = scope.spools.get(pageUrl);
+    if (future == null) {
+      future = download(pageUrl, scope);
+      scope.spools.put(pageUrl, future);
+    }
+    return future.thenCompose(
+        file -> {
+          List<CompletableFuture<?>> nested = new ArrayList<>();
+          int count;
+          try {
+            count = scanFile(file, limit - total, scope, nested);
+          } catch (IOException e) {
+            // 构建表格时读取该页会失败，不再下载后续页面
+            return CompletableFuture.failedFuture(e);
+          }
+          if (count >= pageSize) {
+            nested.add(spoolPages(url, binding, page + 1, total + count, scope));
+          }
+          return CompletableFuture.allOf(nested.toArray(new CompletableFuture[0]));
+        });
+  }
+
+  private CompletableFuture<Path> download(String url, PrefetchScope scope) {
+    try {
+      Path file = Files.createTempFile("mbl-table-", ".json");
+      scope.files.add(file);
+      return remoteFetchService.fetchToFileAsync(url, file);
+    } catch (IOException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /**
+   * 逐行读取下载的表格数据并收集其中的URL图片
+   *
+   * @return 读取的行数
+   */
+  private int scanFile(
+      Path file, int limit, PrefetchScope scope, List<CompletableFuture<?>> pending)
+      throws IOException {
+    try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      return collectRows(reader, limit, scope, pending);
+    }
+  }
+
+  /**
+   * 获取远程JSON，优先使用当前线程的预取结果
+   *
+   * @param url 请求地址
+   * @return 响应体字符串
+   * @throws IOException 请求失败或非2xx状态
+   */
+  public String getJson(String url) throws IOException {
+    PrefetchScope scope = CURRENT_SCOPE.get();
+    CompletableFuture<String> future = scope == null ? null : scope.jsons.get(url);
+    if (future != null) {
+      return remoteFetchService.await(url, future);
+    }
+    return remoteJsonCacheService.getJson(url);
+  }
+
+  /**
+   * 获取远程图片字节，优先使用当前线程的预取结果
+   *
+   * @param url 图片地址
+   * @return 图片字节
+   * @throws IOException 请求失败或非2xx状态
+   */
+  public byte[] getBytes(String url) throws IOException {
+    PrefetchScope scope = CURRENT_SCOPE.get();
+    CompletableFuture<byte[]> future = scope == null ? null : scope.images.get(url);
+    if (future != null) {
+      return remoteFetchService.await(url, future);
+    }
+    return remoteFetchService.fetchBytes(url);
+  }
+
+  /**
+   * 逐行读取流式表格数据，优先使用当前线程预取时下载的临时文件，未下载时直接流式请求
+   *
+   * @param url 请求地址（分页数据为带分页参数的地址）
+   * @param reader 数据读取逻辑
+   * @return 读取结果
+   * @throws IOException 请求失败、非2xx状态或读取失败
+   */
+  public <T> T readStream(String url, RemoteFetchService.StreamReader<T> reader)
+      throws IOException {
+    PrefetchScope scope = CURRENT_SCOPE.get();
+    CompletableFuture<Path> future = scope == null ? null : scope.spools.get(url);
+    if (future == null) {
+      return remoteFetchService.fetchStream(url, reader);
+    }
+    Path file = remoteFetchService.await(url, future);
+    try (Reader fileReader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      return reader.read(fileReader);
+    }
+  }
+}
@@ -7,6 +7,7 @@ import com.helger.pdflayout.spec.EHorzAlignment;
 import com.helger.pdflayout.spec.EVertAlignment;
 import com.helger.pdflayout.spec.FontSpec;
 import com.helger.pdflayout.spec.PreloadFont;
+import com.xxs3315.mbl.pdf.template.TextStyle;
 import java.awt.Color;
 import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
@@ -98,21 +99,10 @@ public class StyleService {
   }
 
   /** 应用样式到文本元素 */
-  public void applyTextStyle(
-      PLText text,
-      Map<String, Object> elementMap,
-      String defaultFontColor,
-      String defaultBackground) {
+  public void applyTextStyle(PLText text, TextStyle style) {
     // 应用背景色
-    PLColor bgColor = null;
-    if (elementMap.containsKey("background")) {
-      bgColor = createColorFromHex((String) elementMap.get("background"));
-    } else if (!"#00000000".equals(defaultBackground)) {
-      bgColor = createColorFromHex(defaultBackground);
-    }
-
-    if (bgColor != null) {
-      text.setFillColor(bgColor);
+    if (style.getBackground() != null) {
+      text.setFillColor(style.getBackground());
     }
   }
 }
@@ -0,0 +1,346 @@
+package com.xxs3315.mbl.pdf.services;
+
+import com.helger.pdflayout.base.PLColor;
+import com.helger.pdflayout.spec.EHorzAlignment;
+import com.helger.pdflayout.spec.FontSpec;
+import com.helger.pdflayout.spec.PreloadFont;
+import com.xxs3315.mbl.pdf.template.BindingPath;
+import com.xxs3315.mbl.pdf.template.CompiledTemplate;
+import com.xxs3315.mbl.pdf.template.ElementWidth;
+import com.xxs3315.mbl.pdf.template.TableSpec;
+import com.xxs3315.mbl.pdf.template.TemplateNode;
+import com.xxs3315.mbl.pdf.template.TemplateSection;
+import com.xxs3315.mbl.pdf.template.TextStyle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * 模板编译器
+ *
+ * <p>将页面JSON解析后的Map/List结构编译为不可变的类型化节点树：页面配置、节点类型、对齐方式、背景色、
+ * 宽度、内边距、文本样式、图片尺寸以及表格列绑定在这里解析一次，构建器直接使用编译结果。
+ * 编译只读取输入，不修改调用方的Map。
+ */
+@Service
+public class TemplateCompiler {
+
+  private static final Logger logger = LoggerFactory.getLogger(TemplateCompiler.class);
+
+  private static final String TABLE_ROOT = "table-root";
+
+  @Autowired private PageConfigService pageConfigService;
+
+  @Autowired private StyleService styleService;
+
+  @Autowired private FontService fontService;
+
+  /**
+   * 编译页面模板
+   *
+   * @param propsMap 页面配置属性映射
+   * @return 编译后的模板
+   */
+  public CompiledTemplate compile(Map<String, Object> propsMap) {
+    PageConfigService.PageConfig config = pageConfigService.parsePageConfig(propsMap);
+    TemplateSection header =
+        compileSection(propsMap.get("pageHeaderContent"), "page-header-root", config);
+    TemplateSection footer =
+        compileSection(propsMap.get("pageFooterContent"), "page-footer-root", config);
+    TemplateSection body =
+        compileSection(propsMap.get("pageBodyContent"), "page-body-root", config);
+    return new CompiledTemplate(config, header, footer, body);
+  }
+
+  /** 编译内容片段，content 为 [key, props] 列表 */
+  private TemplateSection compileSection(
+      Object content, String rootKey, PageConfigService.PageConfig config) {
+    Map<String, Map<String, Object>> contentMap = convertListToMap(content);
+    Map<String, TemplateNode> nodes = new HashMap<>();
+    TemplateNode root = compileNode(rootKey, contentMap, config, new HashSet<>(), nodes);
+    return new TemplateSection(root, nodes);
+  }
+
+  private TemplateNode compileNode(
+      String key,
+      Map<String, Map<String, Object>> contentMap,
+      PageConfigService.PageConfig config,
+      Set<String> visiting,
+      Map<String, TemplateNode> nodes) {
+    Map<String, Object> props = contentMap.get(key);
+    if (props == null || !visiting.add(key)) {
+      // 引用不存在或出现循环引用
+      return null;
+    }
+
+    List<TemplateNode> children = new ArrayList<>();
+    if (props.get("children") instanceof List<?> childKeys) {
+      for (Object childKey : childKeys) {
+        TemplateNode child =
+            compileNode(String.valueOf(childKey), contentMap, config, visiting, nodes);
+        if (child != null) {
+          children.add(child);
+        }
+      }
+    }
+    visiting.remove(key);
+
+    TemplateNode.NodeType type = TemplateNode.NodeType.fromCategory(getString(props, "cat"));
+    EHorzAlignment horzAlign = styleService.getHorizontalAlignment(props);
+    PLColor background = resolveBackground(props.get("background"));
+
+    TextStyle textStyle = null;
+    if (type == TemplateNode.NodeType.TEXT || type == TemplateNode.NodeType.PAGE_NUMBER) {
+      textStyle =
+          resolveTextStyle(
+              props, config, type == TemplateNode.NodeType.TEXT, horzAlign, background);
+    }
+    TableSpec table = null;
+    if (type == TemplateNode.NodeType.TABLE && props.get("columns") != null) {
+      table = compileTable(props, config);
+    }
+
+    TemplateNode node =
+        new TemplateNode(
+            key,
+            type,
+            props.get("id") == null ? null : String.valueOf(props.get("id")),
+            children,
+            type == TemplateNode.NodeType.CONTAINER ? getString(props, "direction") : null,
+            horzAlign,
+            styleService.getVerticalAlignment(props),
+            background,
+            resolveWidth(props),
+            new float[] {
+              getFloat(props, "pTop", 0f),
+              getFloat(props, "pRight", 0f),
+              getFloat(props, "pBottom", 0f),
+              getFloat(props, "pLeft", 0f)
+            },
+            props.get("value") == null ? null : String.valueOf(props.get("value")),
+            Boolean.TRUE.equals(props.get("isHyperlink")),
+            getString(props, "hyperlinkUri"),
+            Boolean.TRUE.equals(props.get("indent")),
+            textStyle,
+            compileTextBindings(props.get("bindings"), type),
+            getFloat(props, "width", 100f),
+            getFloat(props, "height", 100f),
+            table);
+    nodes.put(key, node);
+    return node;
+  }
+
+  /**
+   * 解析文本和页码的样式
+   *
+   * <p>文本的字体按 bold 选择粗体，页码不区分；元素设置了 background 时使用元素背景（透明则不填充），
+   * 否则使用页面默认背景。
+   */
+  private TextStyle resolveTextStyle(
+      Map<String, Object> props,
+      PageConfigService.PageConfig config,
+      boolean boldVariant,
+      EHorzAlignment horzAlign,
+      PLColor background) {
+    PreloadFont font = config.getDefaultFont();
+    if (props.containsKey("font")) {
+      String bold = boldVariant && Boolean.TRUE.equals(props.get("bold")) ? "-bd" : "";
+      font = fontService.getFont(props.get("font") + bold);
+    }
+    PLColor color = config.getDefaultFontColor();
+    if (props.get("fontColor") instanceof String) {
+      PLColor fontColor = resolveBackground(props.get("fontColor"));
+      if (fontColor != null) {
+        color = fontColor;
+      }
+    }
+    float fontSize = getFloat(props, "fontSize", config.getDefaultFontSize());
+    return new TextStyle(
+        new FontSpec(font, fontSize).getCloneWithDifferentColor(color),
+        props.containsKey("background") ? background : config.getDefaultBackground(),
+        horzAlign);
+  }
+
+  /** 编译文本的对象绑定 */
+  private List<TemplateNode.TextBinding> compileTextBindings(
+      Object bindings, TemplateNode.NodeType type) {
+    if (type != TemplateNode.NodeType.TEXT || !(bindings instanceof Iterable<?> items)) {
+      return List.of();
+    }
+    List<TemplateNode.TextBinding> result = new ArrayList<>();
+    for (Object item : items) {
+      if (item instanceof Map<?, ?> binding) {
+        result.add(
+            new TemplateNode.TextBinding(
+                getString(binding, "id"),
+                getString(binding, "name"),
+                getString(binding, "shape"),
+                getString(binding, "request"),
+                getString(binding, "value")));
+      }
+    }
+    return result;
+  }
+
+  /** 编译表格：列定义、数据绑定、列绑定和间距 */
+  private TableSpec compileTable(Map<String, Object> props, PageConfigService.PageConfig config) {
+    TemplateSection columns = compileSection(props.get("columns"), TABLE_ROOT, config);
+    Object gap = props.get("gap");
+
+    TableSpec.DataBinding dataBinding = null;
+    Map<String, TableSpec.ColumnBinding> columnBindings = new HashMap<>();
+    if (props.get("bindings") instanceof Map<?, ?> bindings) {
+      Map<String, Map<?, ?>> columnProps = convertListToMap(props.get("bindingColumns"));
+      for (Map.Entry<?, ?> entry : bindings.entrySet()) {
+        if (!(entry.getValue() instanceof Map<?, ?> binding)) {
+          continue;
+        }
+        String key = String.valueOf(entry.getKey());
+        if (TABLE_ROOT.equals(key)) {
+          dataBinding = compileDataBinding(binding);
+        } else {
+          columnBindings.put(
+              key, compileColumnBinding(binding, columnProps.get(key + "-column-binding"), config));
+        }
+      }
+    }
+
+    return new TableSpec(
+        columns,
+        dataBinding,
+        Map.copyOf(columnBindings),
+        new TextStyle(
+            new FontSpec(config.getDefaultFont(), config.getDefaultFontSize())
+                .getCloneWithDifferentColor(config.getDefaultFontColor()),
+            config.getDefaultBackground(),
+            EHorzAlignment.CENTER),
+        styleService.getTableGap(gap),
+        styleService.getTableGap(gap == null ? "compact" : gap));
+  }
+
+  private TableSpec.DataBinding compileDataBinding(Map<?, ?> binding) {
+    return new TableSpec.DataBinding(
+        getString(binding, "id"),
+        getString(binding, "shape"),
+        getString(binding, "request"),
+        getString(binding, "value"),
+        RemotePrefetchService.isStreamingBinding(binding),
+        RemotePrefetchService.pageSize(binding),
+        RemotePrefetchService.pageParam(binding),
+        RemotePrefetchService.sizeParam(binding));
+  }
+
+  /**
+   * 编译列绑定
+   *
+   * <p>bindingColumns 中对应列（键为 列键-column-binding）的属性（除 value 外）覆盖列绑定中的同名属性，
+   * 合并结果写入新的Map，不修改输入。
+   */
+  private TableSpec.ColumnBinding compileColumnBinding(
+      Map<?, ?> binding, Map<?, ?> columnData, PageConfigService.PageConfig config) {
+    Map<Object, Object> merged = new LinkedHashMap<>(binding);
+    if (columnData != null) {
+      for (Map.Entry<?, ?> attr : columnData.entrySet()) {
+        if (!"value".equals(attr.getKey())) {
+          merged.put(attr.getKey(), attr.getValue());
+        }
+      }
+    }
+
+    PLColor color = config.getDefaultFontColor();
+    if (merged.get("fontColor") instanceof String) {
+      PLColor fontColor = resolveBackground(merged.get("fontColor"));
+      if (fontColor != null) {
+        color = fontColor;
+      }
+    }
+    PreloadFont font = config.getDefaultFont();
+    if (merged.containsKey("font")) {
+      String bold = Boolean.TRUE.equals(merged.get("bold")) ? "-bd" : "";
+      font = fontService.getFont(merged.get("font") + bold);
+    }
+    float fontSize = getFloat(merged, "fontSize", config.getDefaultFontSize());
+    // 列背景透明时保留页面默认背景，单元格不填充
+    PLColor cellBackground = resolveBackground(merged.get("background"));
+    EHorzAlignment horzAlign = EHorzAlignment.CENTER;
+    if ("left".equals(merged.get("horizontal"))) {
+      horzAlign = EHorzAlignment.LEFT;
+    } else if ("right".equals(merged.get("horizontal"))) {
+      horzAlign = EHorzAlignment.RIGHT;
+    }
+
+    return new TableSpec.ColumnBinding(
+        BindingPath.compile(getString(merged, "value")),
+        new TextStyle(
+            new FontSpec(font, fontSize).getCloneWithDifferentColor(color),
+            cellBackground != null ? cellBackground : config.getDefaultBackground(),
+            horzAlign),
+        cellBackground);
+  }
+
+  /** 解析十六进制颜色，未设置、透明或无效时为null */
+  private PLColor resolveBackground(Object value) {
+    if (!(value instanceof String hex)) {
+      return null;
+    }
+    try {
+      return styleService.createColorFromHex(hex);
+    } catch (NumberFormatException e) {
+      logger.debug("无效的颜色: {}", hex);
+      return null;
+    }
+  }
+
+  /** 按 wildStar/flexValue/flexUnit 解析元素在水平容器中的宽度，未设置 flexValue 时剩余平分 */
+  private ElementWidth resolveWidth(Map<String, Object> props) {
+    if (Boolean.TRUE.equals(props.get("wildStar"))
+        || !(props.get("flexValue") instanceof Number flexValue)) {
+      return ElementWidth.STAR;
+    }
+    return "%".equals(props.get("flexUnit"))
+        ? ElementWidth.percent(flexValue.floatValue())
+        : ElementWidth.absolute(flexValue.floatValue());
+  }
+
+  /** 读取数值属性，兼容数字和数字字符串，未设置或无效时返回默认值 */
+  private float getFloat(Map<?, ?> props, String key, float defaultValue) {
+    Object value = props.get(key);
+    if (value instanceof Number number) {
+      return number.floatValue();
+    }
+    if (value instanceof String text && !text.isBlank()) {
+      try {
+        return Float.parseFloat(text.trim());
+      } catch (NumberFormatException e) {
+        logger.debug("无效的数值属性 {}: {}", key, text);
+      }
+    }
+    return defaultValue;
+  }
+
+  private String getString(Map<?, ?> props, String key) {
+    return props.get(key) instanceof String value ? value : null;
+  }
+
+  /** 将 [key, props] 列表转换为Map，只复制引用，不修改输入 */
+  private <V> Map<String, V> convertListToMap(Object list) {
+    Map<String, V> map = new LinkedHashMap<>();
+    if (!(list instanceof List<?> rows)) {
+      return map;
+    }
+    for (Object item : rows) {
+      if (item instanceof List<?> row && row.size() > 1 && row.get(1) instanceof Map) {
+        map.put(String.valueOf(row.get(0)), (V) row.get(1));
+      }
+    }
+    return map;
+  }
+}
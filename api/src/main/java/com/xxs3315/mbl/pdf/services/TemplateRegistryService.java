@@ -0,0 +1,369 @@
+package com.xxs3315.mbl.pdf.services;
+
+import com.xxs3315.mbl.entity.PdfTemplate;
+import com.xxs3315.mbl.pdf.config.TemplateRegistryConfig;
+import com.xxs3315.mbl.pdf.dtos.GenPdfProps;
+import com.xxs3315.mbl.pdf.template.BindingData;
+import com.xxs3315.mbl.pdf.template.CompiledTemplate;
+import com.xxs3315.mbl.repository.PdfTemplateRepository;
+import com.xxs3315.mbl.util.JsonUtil;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 模板注册服务
+ *
+ * <p>版式JSON只上传一次，规范化后以内容的SHA-256作为模板ID保存。生成请求通过 templateId 引用模板，
+ * data 只需携带数据：以数据源ID为键，值为该数据源的JSON数据，生成时替换版式中对应的数据绑定。
+ * 已解析的版式及其编译结果以模板ID（内容哈希）为键保存在按数量限制的LRU缓存中，各任务共用，
+ * 数据在构建时按绑定ID使用，不再为每个任务复制版式和重新编译。
+ */
+@Service
+public class TemplateRegistryService {
+
+  private static final Logger logger = LoggerFactory.getLogger(TemplateRegistryService.class);
+
+  @Autowired private PdfTemplateRepository pdfTemplateRepository;
+
+  @Autowired private TemplateRegistryConfig config;
+
+  @Autowired private JobCostEstimator jobCostEstimator;
+
+  @Autowired private TemplateCompiler templateCompiler;
+
+  /** 缓存的模板：解析后的版式（只读）和各页面的编译结果 */
+  private static class CachedTemplate {
+    private final Map layout;
+    private volatile List<CompiledTemplate> compiled;
+
+    private CachedTemplate(Map layout) {
+      this.layout = layout;
+    }
+  }
+
+  /**
+   * 解析后的生成请求
+   *
+   * <p>引用模板时版式和编译结果来自模板缓存，多个任务共用，不可修改，请求数据在构建时按绑定ID使用；
+   * 未引用模板时版式即请求数据，编译结果为null，由生成时编译。
+   */
+  public static class ResolvedRequest {
+    private final Map layout;
+    private final List<Map> pages;
+    private final List<CompiledTemplate> templates;
+    private final BindingData bindingData;
+
+    private ResolvedRequest(
+        Map layout, List<Map> pages, List<CompiledTemplate> templates, BindingData bindingData) {
+      this.layout = layout;
+      this.pages = pages;
+      this.templates = templates;
+      this.bindingData = bindingData;
+    }
+
+    /** 版式，引用模板时为缓存中的共享版式，只读 */
+    public Map getLayout() {
+      return layout;
+    }
+
+    /** 各页面的配置属性映射，只读 */
+    public List<Map> getPages() {
+      return pages;
+    }
+
+    /** 全局配置 */
+    public Map getConfig() {
+      return (Map) layout.get("config");
+    }
+
+    /** 单页生成的页面序号 */
+    public int getCurrentPageIndex() {
+      return ((Number) layout.get("currentPageIndex")).intValue();
+    }
+
+    /** 与 pages 对应的编译结果，未引用模板时为null */
+    public List<CompiledTemplate> getTemplates() {
+      return templates;
+    }
+
+    /** 请求按绑定ID提供的数据 */
+    public BindingData getBindingData() {
+      return bindingData;
+    }
+
+    /** 只包含第 index 个页面的请求，共用编译结果和请求数据 */
+    public ResolvedRequest page(int index) {
+      return new ResolvedRequest(
+          layout,
+          List.of(pages.get(index)),
+          templates == null ? null : List.of(templates.get(index)),
+          bindingData);
+    }
+
+    /**
+     * 复制页面并将请求数据填充到绑定中，供需要完整页面JSON的场景（如拆分为分片任务）使用
+     *
+     * @return 可修改的页面列表
+     */
+    public List<Map> materializePages() {
+      List<Map> copy = (List<Map>) deepCopy(pages);
+      if (!bindingData.isEmpty()) {
+        applyData(copy, bindingData);
+      }
+      return copy;
+    }
+  }
+
+  // 访问顺序的LinkedHashMap实现LRU，所有访问都在cache锁内进行
+  private final LinkedHashMap<String, CachedTemplate> cache =
+      new LinkedHashMap<>(16, 0.75f, true);
+
+  // 缓存统计
+  private final AtomicLong hits = new AtomicLong(0);
+  private final AtomicLong misses = new AtomicLong(0);
+
+  /**
+   * 注册模板，相同内容重复上传返回已有模板
+   *
+   * @param layoutJson 版式JSON
+   * @param name 模板名称，可为null
+   * @return 模板
+   */
+  @Transactional
+  public PdfTemplate register(String layoutJson, String name) {
+    String content = JsonUtil.write(JsonUtil.parseMap(layoutJson));
+    String templateId = sha256(content);
+    Optional<PdfTemplate> existing = pdfTemplateRepository.findById(templateId);
+    if (existing.isPresent()) {
+      logger.debug("模板已存在: {}", templateId);
+      return existing.get();
+    }
+    PdfTemplate template = pdfTemplateRepository.save(new PdfTemplate(templateId, name, content));
+    logger.info("模板注册成功: {}, 大小: {}", templateId, content.length());
+    return template;
+  }
+
+  public Optional<PdfTemplate> getTemplate(String templateId) {
+    return pdfTemplateRepository.findById(templateId);
+  }
+
+  public boolean exists(String templateId) {
+    synchronized (cache) {
+      if (cache.containsKey(templateId)) {
+        return true;
+      }
+    }
+    return pdfTemplateRepository.existsById(templateId);
+  }
+
+  /**
+   * 删除模板
+   *
+   * @param templateId 模板ID
+   * @return 是否存在并已删除
+   */
+  @Transactional
+  public boolean delete(String templateId) {
+    synchronized (cache) {
+      cache.remove(templateId);
+    }
+    if (!pdfTemplateRepository.existsById(templateId)) {
+      return false;
+    }
+    pdfTemplateRepository.deleteById(templateId);
+    return true;
+  }
+
+  /**
+   * 解析生成请求
+   *
+   * @param props 生成参数
+   * @return 解析后的请求
+   * @throws IllegalArgumentException 模板不存在
+   */
+  public ResolvedRequest resolve(GenPdfProps props) {
+    return resolve(props.getTemplateId(), props.getData());
+  }
+
+  /**
+   * 解析生成请求
+   *
+   * <p>未引用模板时 data 即完整版式，生成时编译；引用模板时直接使用缓存中已解析、已编译的模板，
+   * data 中的数据按绑定ID在构建时使用，不复制版式、不重新编译。
+   * data 可以是JSON字符串，也可以是提交时已解析好的Map，已解析的数据不会再次解析。
+   *
+   * @param templateId 模板ID，可为null
+   * @param data 版式或数据，JSON字符串或Map
+   * @return 解析后的请求
+   * @throws IllegalArgumentException 模板不存在或JSON格式错误
+   */
+  public ResolvedRequest resolve(String templateId, Object data) {
+    Object parsedData = data instanceof String ? JsonUtil.parse((String) data) : data;
+    if (templateId == null || templateId.isBlank()) {
+      if (!(parsedData instanceof Map)) {
+        throw new IllegalArgumentException("请求数据不是JSON对象");
+      }
+      Map layout = (Map) parsedData;
+      return new ResolvedRequest(layout, pagesOf(layout), null, BindingData.EMPTY);
+    }
+
+    CachedTemplate template = getCachedTemplate(templateId);
+    return new ResolvedRequest(
+        template.layout,
+        pagesOf(template.layout),
+        compiledPages(template),
+        parsedData instanceof Map ? BindingData.of((Map<?, ?>) parsedData) : BindingData.EMPTY);
+  }
+
+  /**
+   * 估算引用模板的生成请求的成本，直接读取缓存的版式，不复制版式、不填充数据
+   *
+   * @param type 生成类型
+   * @param templateId 模板ID
+   * @param data 按绑定ID组织的数据，可为null
+   * @return 预估成本
+   * @throws IllegalArgumentException 模板不存在
+   */
+  public long estimateCost(String type, String templateId, Object data) {
+    return jobCostEstimator.estimate(type, getCachedTemplate(templateId).layout, data);
+  }
+
+  /** 获取缓存的模板，未缓存时从数据库读取并解析 */
+  private CachedTemplate getCachedTemplate(String templateId) {
+    synchronized (cache) {
+      CachedTemplate cached = cache.get(templateId);
+      if (cached != null) {
+        hits.incrementAndGet();
+        return cached;
+      }
+    }
+
+    misses.incrementAndGet();
+    PdfTemplate template =
+        pdfTemplateRepository
+            .findById(templateId)
+            .orElseThrow(() -> new IllegalArgumentException("模板不存在: " + templateId));
+    CachedTemplate parsed = new CachedTemplate(JsonUtil.parseMap(template.getContent()));
+
+    synchronized (cache) {
+      cache.put(templateId, parsed);
+      while (cache.size() > Math.max(1, config.getCacheSize())) {
+        String eldest = cache.keySet().iterator().next();
+        cache.remove(eldest);
+      }
+    }
+    return parsed;
+  }
+
+  /** 各页面的编译结果，首次生成时编译，之后各任务共用 */
+  private List<CompiledTemplate> compiledPages(CachedTemplate template) {
+    List<CompiledTemplate> compiled = template.compiled;
+    if (compiled != null) {
+      return compiled;
+    }
+    synchronized (template) {
+      if (template.compiled == null) {
+        long start = System.currentTimeMillis();
+        List<CompiledTemplate> pages = new ArrayList<>();
+        for (Map page : pagesOf(template.layout)) {
+          pages.add(templateCompiler.compile(page));
+        }
+        template.compiled = List.copyOf(pages);
+        logger.debug(
+            "模板编译完成, 页面数: {}, 耗时: {}ms", pages.size(), System.currentTimeMillis() - start);
+      }
+      return template.compiled;
+    }
+  }
+
+  private static List<Map> pagesOf(Map layout) {
+    return layout.get("pages") instanceof List ? (List<Map>) layout.get("pages") : List.of();
+  }
+
+  /** 深复制Map/List结构，叶子值（字符串、数字、布尔）不可变可直接共享 */
+  private static Object deepCopy(Object node) {
+    if (node instanceof Map) {
+      Map<Object, Object> copy = new LinkedHashMap<>();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) node).entrySet()) {
+        copy.put(entry.getKey(), deepCopy(entry.getValue()));
+      }
+      return copy;
+    }
+    if (node instanceof List) {
+      List<Object> copy = new ArrayList<>(((List<?>) node).size());
+      for (Object item : (List<?>) node) {
+        copy.add(deepCopy(item));
+      }
+      return copy;
+    }
+    return node;
+  }
+
+  /** 将数据填充到ID匹配的数据绑定中，绑定改为本地数据 */
+  private static void applyData(Object node, BindingData bindingData) {
+    if (node instanceof Map) {
+      Map<Object, Object> map = (Map<Object, Object>) node;
+      if (map.containsKey("request")
+          && map.get("id") instanceof String
+          && bindingData.contains((String) map.get("id"))) {
+        map.put("request", "data");
+        map.put("value", bindingData.get((String) map.get("id")));
+      }
+      for (Object child : map.values()) {
+        applyData(child, bindingData);
+      }
+    } else if (node instanceof List) {
+      for (Object child : (List<?>) node) {
+        applyData(child, bindingData);
+      }
+    }
+  }
+
+  private String sha256(String content) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 不可用", e);
+    }
+  }
+
+  /** 清空已解析、已编译的模板缓存 */
+  public void clearCache() {
+    synchronized (cache) {
+      cache.clear();
+    }
+    logger.info("模板缓存已清空");
+  }
+
+  /** 获取缓存统计信息 */
+  public Map<String, Object> getCacheStats() {
+    Map<String, Object> stats = new ConcurrentHashMap<>();
+    synchronized (cache) {
+      stats.put("cachedTemplates", cache.size());
+    }
+    long hitCount = hits.get();
+    long missCount = misses.get();
+    stats.put("cacheSize", config.getCacheSize());
+    stats.put("hits", hitCount);
+    stats.put("misses", missCount);
+    stats.put(
+        "hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+    stats.put("registeredTemplates", pdfTemplateRepository.count());
+    return stats;
+  }
+}
@@ -0,0 +1,57 @@
+package com.xxs3315.mbl.pdf.template;
+
+import com.xxs3315.mbl.util.JsonUtil;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 生成请求按绑定ID提供的数据
+ *
+ * <p>引用模板的请求只携带数据，编译后的模板在多个任务间共用、不可修改。构建时ID匹配的绑定改为本地数据，
+ * 值为对应的JSON，不再为每个任务复制版式、填充数据后重新编译。
+ */
+public class BindingData {
+
+  /** 不提供任何数据 */
+  public static final BindingData EMPTY = new BindingData(Map.of());
+
+  private final Map<String, String> values;
+
+  private BindingData(Map<String, String> values) {
+    this.values = values;
+  }
+
+  /**
+   * 从请求数据创建
+   *
+   * @param payload 以绑定ID为键的数据，字符串视为已序列化的JSON，其他值序列化后使用；可为null
+   * @return 绑定数据
+   */
+  public static BindingData of(Map<?, ?> payload) {
+    if (payload == null || payload.isEmpty()) {
+      return EMPTY;
+    }
+    Map<String, String> values = new HashMap<>();
+    for (Map.Entry<?, ?> entry : payload.entrySet()) {
+      Object value = entry.getValue();
+      values.put(
+          String.valueOf(entry.getKey()),
+          value instanceof String ? (String) value : JsonUtil.write(value));
+    }
+    return new BindingData(Map.copyOf(values));
+  }
+
+  /** 是否提供了该绑定的数据 */
+  public boolean contains(String bindingId) {
+    return bindingId != null && values.containsKey(bindingId);
+  }
+
+  /** 绑定的数据JSON，未提供时为null */
+  public String get(String bindingId) {
+    return bindingId == null ? null : values.get(bindingId);
+  }
+
+  public boolean isEmpty() {
+    return values.isEmpty();
+  }
+}
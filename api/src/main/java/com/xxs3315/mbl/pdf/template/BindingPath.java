@@ -0,0 +1,130 @@
+package com.xxs3315.mbl.pdf.template;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的数据绑定路径
+ *
+ * <p>绑定路径形如 a.b.c，每列在表格构建开始时拆分一次，之后每行只按键逐层查找，不再拆分字符串。
+ */
+public class BindingPath {
+
+  private static final float DEFAULT_IMAGE_HEIGHT = 16f;
+
+  private final String[] keys;
+
+  private BindingPath(String[] keys) {
+    this.keys = keys;
+  }
+
+  /**
+   * 编译绑定路径
+   *
+   * @param path 以点分隔的路径，为空时解析结果始终为空
+   * @return 绑定路径
+   */
+  public static BindingPath compile(String path) {
+    if (path == null || path.isEmpty()) {
+      return new BindingPath(new String[0]);
+    }
+    return new BindingPath(path.split("\\."));
+  }
+
+  /**
+   * 按路径读取值
+   *
+   * @param data 行数据
+   * @return 路径对应的值，路径不存在时返回null
+   */
+  public Object resolve(Map<?, ?> data) {
+    if (data == null || keys.length == 0) {
+      return null;
+    }
+    Object current = data;
+    for (String key : keys) {
+      if (!(current instanceof Map)) {
+        return null;
+      }
+      current = ((Map<?, ?>) current).get(key);
+      if (current == null) {
+        return null;
+      }
+    }
+    return current;
+  }
+
+  /**
+   * 解析单元格数据
+   *
+   * <p>支持普通文本、列表、图片（{type: image, value, height, imageType}），以及带 colspan 的文本、列表和图片。
+   *
+   * @param data 行数据
+   * @param target 写入结果的单元格描述，解析前重置
+   */
+  public void resolveCell(Map<?, ?> data, CellValue target) {
+    target.reset();
+    Object current = resolve(data);
+    if (current == null) {
+      return;
+    }
+
+    if (isScalar(current)) {
+      target.set(CellValue.CellType.TEXT, String.valueOf(current));
+      return;
+    }
+    if (current instanceof List) {
+      target.set(CellValue.CellType.LIST, current);
+      return;
+    }
+    if (!(current instanceof Map)) {
+      return;
+    }
+
+    Map<?, ?> cell = (Map<?, ?>) current;
+    Object value = cell.get("value");
+    Object colspan = cell.get("colspan");
+    Object type = cell.get("type");
+    if (type instanceof String && ((String) type).equalsIgnoreCase("image")) {
+      float imageHeight = DEFAULT_IMAGE_HEIGHT;
+      if (cell.containsKey("height")) {
+        imageHeight = (float) toDouble(cell.get("height"));
+        if (imageHeight <= 0) {
+          imageHeight = DEFAULT_IMAGE_HEIGHT;
+        }
+      }
+      boolean urlImage =
+          cell.get("imageType") instanceof String
+              && ((String) cell.get("imageType")).equalsIgnoreCase("url");
+      target.setImage(imageHeight, urlImage);
+      if (colspan != null) {
+        target.set(CellValue.CellType.COLSPAN_IMAGE, value);
+        target.setColspan((int) toDouble(colspan));
+      } else {
+        target.set(CellValue.CellType.IMAGE, value);
+      }
+    } else if (colspan != null && value != null) {
+      if (isScalar(value)) {
+        target.set(CellValue.CellType.COLSPAN_TEXT, String.valueOf(value));
+        target.setColspan((int) toDouble(colspan));
+      } else if (value instanceof List) {
+        target.set(CellValue.CellType.COLSPAN_LIST, value);
+        target.setColspan((int) toDouble(colspan));
+      }
+    }
+  }
+
+  private static boolean isScalar(Object value) {
+    return value instanceof String
+        || value instanceof Integer
+        || value instanceof Long
+        || value instanceof Float
+        || value instanceof Double;
+  }
+
+  private static double toDouble(Object value) {
+    return value instanceof Number
+        ? ((Number) value).doubleValue()
+        : Double.parseDouble(String.valueOf(value));
+  }
+}
@@ -0,0 +1,81 @@
+package com.xxs3315.mbl.pdf.template;
+
+/**
+ * 表格单元格数据描述
+ *
+ * <p>由 {@link BindingPath#resolveCell} 填充。同一张表格构建过程中重复使用一个实例，
+ * 每个单元格解析前重置，读取方需在解析下一个单元格前用完其中的值。
+ */
+public class CellValue {
+
+  /** 单元格类型 */
+  public enum CellType {
+    TEXT,
+    LIST,
+    IMAGE,
+    COLSPAN_TEXT,
+    COLSPAN_LIST,
+    COLSPAN_IMAGE;
+
+    /** 是否跨列 */
+    public boolean isColspan() {
+      return this == COLSPAN_TEXT || this == COLSPAN_LIST || this == COLSPAN_IMAGE;
+    }
+  }
+
+  private CellType type;
+  private Object value;
+  private int colspan;
+  private float imageHeight;
+  private boolean urlImage;
+
+  public CellValue() {
+    reset();
+  }
+
+  /** 重置为空文本 */
+  void reset() {
+    type = CellType.TEXT;
+    value = "";
+    colspan = 1;
+    imageHeight = 0f;
+    urlImage = false;
+  }
+
+  void set(CellType type, Object value) {
+    this.type = type;
+    this.value = value;
+  }
+
+  void setColspan(int colspan) {
+    this.colspan = colspan;
+  }
+
+  void setImage(float imageHeight, boolean urlImage) {
+    this.imageHeight = imageHeight;
+    this.urlImage = urlImage;
+  }
+
+  public CellType getType() {
+    return type;
+  }
+
+  /** 文本类型为String，列表类型为List，图片类型为base64数据或URL */
+  public Object getValue() {
+    return value;
+  }
+
+  /** 跨列数，非跨列类型为1 */
+  public int getColspan() {
+    return colspan;
+  }
+
+  public float getImageHeight() {
+    return imageHeight;
+  }
+
+  /** 图片来源是否为URL，否则为base64 */
+  public boolean isUrlImage() {
+    return urlImage;
+  }
+}
@@ -0,0 +1,43 @@
+package com.xxs3315.mbl.pdf.template;
+
+import com.xxs3315.mbl.pdf.services.PageConfigService;
+
+/**
+ * 编译后的页面模板
+ *
+ * <p>页面配置和页眉、页脚、主体的节点树在编译时解析一次，两遍排版和批量任务中可重复使用。
+ */
+public class CompiledTemplate {
+
+  private final PageConfigService.PageConfig config;
+  private final TemplateSection header;
+  private final TemplateSection footer;
+  private final TemplateSection body;
+
+  public CompiledTemplate(
+      PageConfigService.PageConfig config,
+      TemplateSection header,
+      TemplateSection footer,
+      TemplateSection body) {
+    this.config = config;
+    this.header = header;
+    this.footer = footer;
+    this.body = body;
+  }
+
+  public PageConfigService.PageConfig getConfig() {
+    return config;
+  }
+
+  public TemplateSection getHeader() {
+    return header;
+  }
+
+  public TemplateSection getFooter() {
+    return footer;
+  }
+
+  public TemplateSection getBody() {
+    return body;
+  }
+}
@@ -0,0 +1,57 @@
+package com.xxs3315.mbl.pdf.template;
+
+import com.helger.pdflayout.spec.WidthSpec;
+
+/**
+ * 元素在水平容器中的宽度
+ *
+ * <p>由 wildStar/flexValue/flexUnit 编译而来：剩余平分、百分比或绝对值。
+ * 排版使用 WidthSpec，单遍布局模式预先计算列宽时使用 resolve。
+ */
+public class ElementWidth {
+
+  /** 剩余平分 */
+  public static final ElementWidth STAR = new ElementWidth(true, 0f, false);
+
+  private final boolean star;
+  private final float value;
+  private final boolean percent;
+  private final WidthSpec widthSpec;
+
+  private ElementWidth(boolean star, float value, boolean percent) {
+    this.star = star;
+    this.value = value;
+    this.percent = percent;
+    this.widthSpec =
+        star ? WidthSpec.star() : percent ? WidthSpec.perc(value) : WidthSpec.abs(value);
+  }
+
+  public static ElementWidth percent(float value) {
+    return new ElementWidth(false, value, true);
+  }
+
+  public static ElementWidth absolute(float value) {
+    return new ElementWidth(false, value, false);
+  }
+
+  public boolean isStar() {
+    return star;
+  }
+
+  public WidthSpec getWidthSpec() {
+    return widthSpec;
+  }
+
+  /**
+   * 按容器内容宽度计算实际宽度
+   *
+   * @param contentWidth 容器内容宽度
+   * @return 实际宽度，剩余平分时返回-1
+   */
+  public float resolve(float contentWidth) {
+    if (star) {
+      return -1f;
+    }
+    return percent ? contentWidth * value / 100 : value;
+  }
+}
@@ -0,0 +1,167 @@
+package com.xxs3315.mbl.pdf.template;
+
+import com.helger.pdflayout.base.PLColor;
+import java.util.Map;
+
+/**
+ * 编译后的表格定义
+ *
+ * <p>列定义、表格数据绑定、各列绑定（已合并 bindingColumns 中的列属性）和表头、表体的间距
+ * 在编译时解析一次。
+ */
+public class TableSpec {
+
+  private final TemplateSection columns;
+  private final DataBinding dataBinding;
+  private final Map<String, ColumnBinding> columnBindings;
+  private final TextStyle defaultCellStyle;
+  private final float headerGap;
+  private final float bodyGap;
+
+  public TableSpec(
+      TemplateSection columns,
+      DataBinding dataBinding,
+      Map<String, ColumnBinding> columnBindings,
+      TextStyle defaultCellStyle,
+      float headerGap,
+      float bodyGap) {
+    this.columns = columns;
+    this.dataBinding = dataBinding;
+    this.columnBindings = columnBindings;
+    this.defaultCellStyle = defaultCellStyle;
+    this.headerGap = headerGap;
+    this.bodyGap = bodyGap;
+  }
+
+  /** 列定义 */
+  public TemplateSection getColumns() {
+    return columns;
+  }
+
+  /** 表格数据绑定（table-root），未绑定时为null */
+  public DataBinding getDataBinding() {
+    return dataBinding;
+  }
+
+  /** 列绑定，列未绑定时为null */
+  public ColumnBinding getColumnBinding(String column) {
+    return columnBindings.get(column);
+  }
+
+  /** 未绑定列的单元格样式 */
+  public TextStyle getDefaultCellStyle() {
+    return defaultCellStyle;
+  }
+
+  public float getHeaderGap() {
+    return headerGap;
+  }
+
+  public float getBodyGap() {
+    return bodyGap;
+  }
+
+  /** 表格数据绑定 */
+  public static class DataBinding {
+
+    private final String id;
+    private final String shape;
+    private final String request;
+    private final String value;
+    private final boolean streaming;
+    private final Integer pageSize;
+    private final String pageParam;
+    private final String sizeParam;
+
+    public DataBinding(
+        String id,
+        String shape,
+        String request,
+        String value,
+        boolean streaming,
+        Integer pageSize,
+        String pageParam,
+        String sizeParam) {
+      this.id = id;
+      this.shape = shape;
+      this.request = request;
+      this.value = value;
+      this.streaming = streaming;
+      this.pageSize = pageSize;
+      this.pageParam = pageParam;
+      this.sizeParam = sizeParam;
+    }
+
+    /** 绑定ID，引用模板的请求按此ID提供数据 */
+    public String getId() {
+      return id;
+    }
+
+    public String getShape() {
+      return shape;
+    }
+
+    public String getRequest() {
+      return request;
+    }
+
+    /** 数据JSON（request 为 data）或URL（request 为 url） */
+    public String getValue() {
+      return value;
+    }
+
+    /** 是否边下载边生成行（stream 为 true 或指定了 pageSize） */
+    public boolean isStreaming() {
+      return streaming;
+    }
+
+    /** 分页大小，不分页时为null */
+    public Integer getPageSize() {
+      return pageSize;
+    }
+
+    public String getPageParam() {
+      return pageParam;
+    }
+
+    public String getSizeParam() {
+      return sizeParam;
+    }
+
+    /** 请求提供了该绑定的数据时返回改为本地数据的绑定，否则返回自身 */
+    public DataBinding bind(BindingData data) {
+      if (!data.contains(id)) {
+        return this;
+      }
+      return new DataBinding(
+          id, shape, "data", data.get(id), streaming, pageSize, pageParam, sizeParam);
+    }
+  }
+
+  /** 列绑定：单元格取值路径和样式 */
+  public static class ColumnBinding {
+
+    private final BindingPath path;
+    private final TextStyle style;
+    private final PLColor cellBackground;
+
+    public ColumnBinding(BindingPath path, TextStyle style, PLColor cellBackground) {
+      this.path = path;
+      this.style = style;
+      this.cellBackground = cellBackground;
+    }
+
+    public BindingPath getPath() {
+      return path;
+    }
+
+    public TextStyle getStyle() {
+      return style;
+    }
+
+    /** 单元格背景色，未设置或透明时为null */
+    public PLColor getCellBackground() {
+      return cellBackground;
+    }
+  }
+}
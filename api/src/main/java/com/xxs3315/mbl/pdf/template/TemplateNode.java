@@ -0,0 +1,245 @@
+package com.xxs3315.mbl.pdf.template;
+
+import com.helger.pdflayout.base.PLColor;
+import com.helger.pdflayout.spec.EHorzAlignment;
+import com.helger.pdflayout.spec.EVertAlignment;
+import com.helger.pdflayout.spec.WidthSpec;
+import java.util.List;
+
+/**
+ * 编译后的模板节点
+ *
+ * <p>节点不可变，全部属性在编译时从模板JSON解析为类型化字段：节点类型、子节点、对齐方式、背景色、
+ * 宽度、内边距、文本样式、图片尺寸和表格定义，不保留对输入Map的引用。
+ * 构建器直接读取，不再在每次排版时从Map中查找和转换。
+ */
+public class TemplateNode {
+
+  /** 节点类型，对应模板JSON中的 cat */
+  public enum NodeType {
+    CONTAINER,
+    TEXT,
+    IMAGE,
+    PLACEHOLDER,
+    PAGE_BREAK,
+    PAGE_NUMBER,
+    TABLE,
+    UNKNOWN;
+
+    public static NodeType fromCategory(String category) {
+      if (category == null) {
+        return UNKNOWN;
+      }
+      return switch (category) {
+        case "container" -> CONTAINER;
+        case "text" -> TEXT;
+        case "image" -> IMAGE;
+        case "placeholder" -> PLACEHOLDER;
+        case "page-break" -> PAGE_BREAK;
+        case "page-number" -> PAGE_NUMBER;
+        case "plugin-table" -> TABLE;
+        default -> UNKNOWN;
+      };
+    }
+  }
+
+  /** 文本中的对象绑定，按 shape/request/value 取得对象后替换文本中的 ${...} 占位符 */
+  public static class TextBinding {
+
+    private final String id;
+    private final String name;
+    private final String shape;
+    private final String request;
+    private final String value;
+
+    public TextBinding(String id, String name, String shape, String request, String value) {
+      this.id = id;
+      this.name = name;
+      this.shape = shape;
+      this.request = request;
+      this.value = value;
+    }
+
+    /** 绑定ID，引用模板的请求按此ID提供数据 */
+    public String getId() {
+      return id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getShape() {
+      return shape;
+    }
+
+    public String getRequest() {
+      return request;
+    }
+
+    public String getValue() {
+      return value;
+    }
+
+    /** 请求提供了该绑定的数据时返回改为本地数据的绑定，否则返回自身 */
+    public TextBinding bind(BindingData data) {
+      if (!data.contains(id)) {
+        return this;
+      }
+      return new TextBinding(id, name, shape, "data", data.get(id));
+    }
+  }
+
+  private final String key;
+  private final NodeType type;
+  private final String id;
+  private final List<TemplateNode> children;
+  private final String direction;
+  private final EHorzAlignment horzAlign;
+  private final EVertAlignment vertAlign;
+  private final PLColor background;
+  private final ElementWidth width;
+  private final float[] padding;
+  private final String value;
+  private final boolean hyperlink;
+  private final String hyperlinkUri;
+  private final boolean indent;
+  private final TextStyle textStyle;
+  private final List<TextBinding> textBindings;
+  private final float boxWidth;
+  private final float boxHeight;
+  private final TableSpec table;
+
+  public TemplateNode(
+      String key,
+      NodeType type,
+      String id,
+      List<TemplateNode> children,
+      String direction,
+      EHorzAlignment horzAlign,
+      EVertAlignment vertAlign,
+      PLColor background,
+      ElementWidth width,
+      float[] padding,
+      String value,
+      boolean hyperlink,
+      String hyperlinkUri,
+      boolean indent,
+      TextStyle textStyle,
+      List<TextBinding> textBindings,
+      float boxWidth,
+      float boxHeight,
+      TableSpec table) {
+    this.key = key;
+    this.type = type;
+    this.id = id;
+    this.children = List.copyOf(children);
+    this.direction = direction;
+    this.horzAlign = horzAlign;
+    this.vertAlign = vertAlign;
+    this.background = background;
+    this.width = width;
+    this.padding = padding.clone();
+    this.value = value;
+    this.hyperlink = hyperlink;
+    this.hyperlinkUri = hyperlinkUri;
+    this.indent = indent;
+    this.textStyle = textStyle;
+    this.textBindings = List.copyOf(textBindings);
+    this.boxWidth = boxWidth;
+    this.boxHeight = boxHeight;
+    this.table = table;
+  }
+
+  /** 节点在所属内容列表中的键 */
+  public String getKey() {
+    return key;
+  }
+
+  public NodeType getType() {
+    return type;
+  }
+
+  /** 元素ID，未设置时为null */
+  public String getId() {
+    return id;
+  }
+
+  public List<TemplateNode> getChildren() {
+    return children;
+  }
+
+  /** 容器方向：vertical 或 horizontal，非容器为null */
+  public String getDirection() {
+    return direction;
+  }
+
+  public EHorzAlignment getHorzAlign() {
+    return horzAlign;
+  }
+
+  public EVertAlignment getVertAlign() {
+    return vertAlign;
+  }
+
+  /** 背景色，未设置或透明时为null */
+  public PLColor getBackground() {
+    return background;
+  }
+
+  /** 在水平容器中的宽度 */
+  public ElementWidth getWidth() {
+    return width;
+  }
+
+  public WidthSpec getWidthSpec() {
+    return width.getWidthSpec();
+  }
+
+  /** 内边距：上、右、下、左 */
+  public float[] getPadding() {
+    return padding.clone();
+  }
+
+  /** 文本内容、页码模板或图片地址，未设置时为null */
+  public String getValue() {
+    return value;
+  }
+
+  public boolean isHyperlink() {
+    return hyperlink;
+  }
+
+  public String getHyperlinkUri() {
+    return hyperlinkUri;
+  }
+
+  /** 首行缩进 */
+  public boolean isIndent() {
+    return indent;
+  }
+
+  /** 文本和页码的样式，其他节点为null */
+  public TextStyle getTextStyle() {
+    return textStyle;
+  }
+
+  public List<TextBinding> getTextBindings() {
+    return textBindings;
+  }
+
+  /** 图片和占位符的宽度，未设置时为100 */
+  public float getBoxWidth() {
+    return boxWidth;
+  }
+
+  /** 图片和占位符的高度，未设置时为100 */
+  public float getBoxHeight() {
+    return boxHeight;
+  }
+
+  /** 表格定义，非表格节点为null */
+  public TableSpec getTable() {
+    return table;
+  }
+}
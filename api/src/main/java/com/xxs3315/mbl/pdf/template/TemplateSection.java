@@ -0,0 +1,39 @@
+package com.xxs3315.mbl.pdf.template;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的模板片段（页眉、页脚、页面主体或表格列定义）
+ *
+ * <p>root 为片段根节点，nodes 为从根节点可达的全部节点，按键索引，供表格主体按列查找。
+ */
+public class TemplateSection {
+
+  private final TemplateNode root;
+  private final Map<String, TemplateNode> nodes;
+
+  public TemplateSection(TemplateNode root, Map<String, TemplateNode> nodes) {
+    this.root = root;
+    this.nodes = Map.copyOf(nodes);
+  }
+
+  /** 片段根节点，片段不存在时为null */
+  public TemplateNode getRoot() {
+    return root;
+  }
+
+  /** 根节点的子节点，片段为空时返回空列表 */
+  public List<TemplateNode> getRootChildren() {
+    return root == null ? List.of() : root.getChildren();
+  }
+
+  public boolean isEmpty() {
+    return getRootChildren().isEmpty();
+  }
+
+  /** 按键查找节点，不存在时为null */
+  public TemplateNode getNode(String key) {
+    return key == null ? null : nodes.get(key);
+  }
+}
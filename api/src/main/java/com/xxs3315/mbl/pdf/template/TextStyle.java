@@ -0,0 +1,36 @@
+package com.xxs3315.mbl.pdf.template;
+
+import com.helger.pdflayout.base.PLColor;
+import com.helger.pdflayout.spec.EHorzAlignment;
+import com.helger.pdflayout.spec.FontSpec;
+
+/**
+ * 编译后的文本样式
+ *
+ * <p>字体（含粗体）、字号和颜色在编译时已按页面默认值补全并合成为 FontSpec，构建器直接使用。
+ */
+public class TextStyle {
+
+  private final FontSpec fontSpec;
+  private final PLColor background;
+  private final EHorzAlignment horzAlign;
+
+  public TextStyle(FontSpec fontSpec, PLColor background, EHorzAlignment horzAlign) {
+    this.fontSpec = fontSpec;
+    this.background = background;
+    this.horzAlign = horzAlign;
+  }
+
+  public FontSpec getFontSpec() {
+    return fontSpec;
+  }
+
+  /** 背景色，未设置或透明时为null */
+  public PLColor getBackground() {
+    return background;
+  }
+
+  public EHorzAlignment getHorzAlign() {
+    return horzAlign;
+  }
+}
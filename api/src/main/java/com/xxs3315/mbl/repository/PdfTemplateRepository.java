@@ -0,0 +1,8 @@
+package com.xxs3315.mbl.repository;
+
+import com.xxs3315.mbl.entity.PdfTemplate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PdfTemplateRepository extends JpaRepository<PdfTemplate, String> {}
@@ -1,9 +1,15 @@
 package com.xxs3315.mbl.repository;
 
 import com.xxs3315.mbl.entity.QueueItem;
+import jakarta.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -13,11 +19,50 @@ public interface QueueItemRepository extends JpaRepository<QueueItem, Long> {
 
   Optional<QueueItem> findByTaskId(String taskId);
 
-  List<QueueItem> findByStatusOrderByCreateTimeAsc(QueueItem.TaskStatus status);
+  /** 按任务ID查询并加行锁，用于多个节点协调同一任务（如分片全部完成后只合并一次） */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT q FROM QueueItem q WHERE q.taskId = :taskId")
+  Optional<QueueItem> findByTaskIdForUpdate(@Param("taskId") String taskId);
+
+  /** 按任务ID前缀查询，用于查找批量任务的分片 */
+  List<QueueItem> findByTaskIdStartingWithOrderByTaskIdAsc(String prefix);
+
+  /** 按状态查询任务摘要，只读取摘要列，不加载任务数据 */
+  List<QueueItemSummary> findSummariesByStatusOrderByCreateTimeAsc(QueueItem.TaskStatus status);
+
+  /** 按状态分页查询任务摘要的第一页，按 (create_time, id) 排序 */
+  @Query(
+      "SELECT q.id AS id, q.taskId AS taskId, q.taskType AS taskType, q.status AS status,"
+          + " q.createTime AS createTime, q.startTime AS startTime, q.endTime AS endTime"
+          + " FROM QueueItem q WHERE q.status = :status"
+          + " ORDER BY q.createTime ASC, q.id ASC")
+  List<QueueItemSummary> findSummaryPage(
+      @Param("status") QueueItem.TaskStatus status, Pageable pageable);
+
+  /** 按状态分页查询任务摘要，从游标 (create_time, id) 之后开始（键集分页，不随页数增加扫描量） */
+  @Query(
+      "SELECT q.id AS id, q.taskId AS taskId, q.taskType AS taskType, q.status AS status,"
+          + " q.createTime AS createTime, q.startTime AS startTime, q.endTime AS endTime"
+          + " FROM QueueItem q WHERE q.status = :status"
+          + " AND (q.createTime > :createTime OR (q.createTime = :createTime AND q.id > :id))"
+          + " ORDER BY q.createTime ASC, q.id ASC")
+  List<QueueItemSummary> findSummaryPageAfter(
+      @Param("status") QueueItem.TaskStatus status,
+      @Param("createTime") LocalDateTime createTime,
+      @Param("id") Long id,
+      Pageable pageable);
 
   @Query("SELECT COUNT(q) FROM QueueItem q WHERE q.status = :status")
   long countByStatus(@Param("status") QueueItem.TaskStatus status);
 
+  @Query("SELECT q.status, COUNT(q) FROM QueueItem q GROUP BY q.status")
+  List<Object[]> countGroupByStatus();
+
+  /** 各优先级通道的待处理任务数，用于按通道分配空闲槽位 */
+  @Query(
+      "SELECT q.priority, COUNT(q) FROM QueueItem q WHERE q.status = 'PENDING' GROUP BY q.priority")
+  List<Object[]> countPendingGroupByPriority();
+
   @Query("SELECT q FROM QueueItem q WHERE q.status = 'PENDING' ORDER BY q.createTime ASC LIMIT 1")
   Optional<QueueItem> findFirstPendingTask();
 
@@ -27,5 +72,123 @@ public interface QueueItemRepository extends JpaRepository<QueueItem, Long> {
       nativeQuery = true)
   Optional<QueueItem> findFirstPendingTaskForUpdate();
 
+  /**
+   * PostgreSQL：原子地领取指定通道最多 limit 个待处理任务并置为 PROCESSING，由领取节点持有租约
+   *
+   * <p>子查询使用 FOR UPDATE SKIP LOCKED，多个节点并发领取时跳过彼此已锁定的行而不是排队等待队首。
+   */
+  @Query(
+      value =
+          "UPDATE queue_items SET status = 'PROCESSING', start_time = :startTime,"
+              + " lease_owner = :leaseOwner, lease_expires_at = :leaseExpiresAt,"
+              + " version = version + 1"
+              + " WHERE id IN (SELECT id FROM queue_items WHERE status = 'PENDING'"
+              + " AND priority = :priority"
+              + " ORDER BY create_time ASC LIMIT :limit FOR UPDATE SKIP LOCKED)"
+              + " RETURNING *",
+      nativeQuery = true)
+  List<QueueItem> claimPendingTasksSkipLocked(
+      @Param("priority") int priority,
+      @Param("limit") int limit,
+      @Param("startTime") LocalDateTime startTime,
+      @Param("leaseOwner") String leaseOwner,
+      @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+
+  /** H2：锁定指定通道最早的 limit 个待处理任务，返回其ID */
+  @Query(
+      value =
+          "SELECT q.id FROM queue_items q WHERE q.status = 'PENDING' AND q.priority = :priority"
+              + " ORDER BY q.create_time ASC LIMIT :limit FOR UPDATE",
+      nativeQuery = true)
+  List<Long> findPendingTaskIdsForUpdate(
+      @Param("priority") int priority, @Param("limit") int limit);
+
+  /** 批量将指定的待处理任务置为目标状态，并由领取节点持有租约 */
+  @Modifying(clearAutomatically = true)
+  @Query(
+      "UPDATE QueueItem q SET q.status = :status, q.startTime = :startTime,"
+          + " q.leaseOwner = :leaseOwner, q.leaseExpiresAt = :leaseExpiresAt,"
+          + " q.version = q.version + 1"
+          + " WHERE q.id IN :ids AND q.status = :expectedStatus")
+  int updateStatusByIds(
+      @Param("ids") List<Long> ids,
+      @Param("expectedStatus") QueueItem.TaskStatus expectedStatus,
+      @Param("status") QueueItem.TaskStatus status,
+      @Param("startTime") LocalDateTime startTime,
+      @Param("leaseOwner") String leaseOwner,
+      @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+
+  /** 续约本节点持有的处理中任务，不更新版本号，避免与任务完成时的乐观锁冲突 */
+  @Modifying
+  @Query(
+      "UPDATE QueueItem q SET q.leaseExpiresAt = :leaseExpiresAt"
+          + " WHERE q.taskId IN :taskIds AND q.leaseOwner = :leaseOwner"
+          + " AND q.status = 'PROCESSING'")
+  int renewLeases(
+      @Param("taskIds") Collection<String> taskIds,
+      @Param("leaseOwner") String leaseOwner,
+      @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+
+  /**
+   * 释放本节点持有的任务租约，等待分片完成的父任务不需要续约，也不会被回收
+   *
+   * @return 更新的行数，租约已过期被回收或由其他节点持有时为0
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "UPDATE QueueItem q SET q.leaseOwner = NULL, q.leaseExpiresAt = NULL"
+          + " WHERE q.taskId = :taskId AND q.leaseOwner = :leaseOwner")
+  int releaseLease(@Param("taskId") String taskId, @Param("leaseOwner") String leaseOwner);
+
+  /** 将租约已过期的处理中任务重置为目标状态（待处理） */
+  @Modifying(clearAutomatically = true)
+  @Query(
+      "UPDATE QueueItem q SET q.status = :status, q.startTime = NULL, q.result = NULL,"
+          + " q.resultRef = NULL, q.errorMessage = NULL, q.leaseOwner = NULL,"
+          + " q.leaseExpiresAt = NULL, q.version = q.version + 1"
+          + " WHERE q.status = 'PROCESSING' AND q.leaseExpiresAt < :now")
+  int reclaimExpiredLeases(
+      @Param("status") QueueItem.TaskStatus status, @Param("now") LocalDateTime now);
+
+  /** 将指定节点持有租约的处理中任务重置为目标状态，节点启动时回收自己上次运行遗留的任务 */
+  @Modifying(clearAutomatically = true)
+  @Query(
+      "UPDATE QueueItem q SET q.status = :status, q.startTime = NULL, q.result = NULL,"
+          + " q.resultRef = NULL, q.errorMessage = NULL, q.leaseOwner = NULL,"
+          + " q.leaseExpiresAt = NULL, q.version = q.version + 1"
+          + " WHERE q.status = 'PROCESSING' AND q.leaseOwner = :leaseOwner")
+  int reclaimLeasesOwnedBy(
+      @Param("status") QueueItem.TaskStatus status, @Param("leaseOwner") String leaseOwner);
+
+  /** 等待分片完成的批量父任务（处理中且不持有租约） */
+  @Query(
+      "SELECT q.taskId FROM QueueItem q WHERE q.status = 'PROCESSING' AND q.taskType = 'batch'"
+          + " AND q.leaseOwner IS NULL AND q.leaseExpiresAt IS NULL")
+  List<String> findWaitingParentTaskIds();
+
   void deleteByStatus(QueueItem.TaskStatus status);
+
+  /** 查找结束时间早于 cutoff 的指定状态任务ID，按ID排序，用于分批清理 */
+  @Query(
+      "SELECT q.id FROM QueueItem q WHERE q.status = :status AND q.endTime < :cutoff"
+          + " ORDER BY q.id ASC")
+  List<Long> findExpiredIds(
+      @Param("status") QueueItem.TaskStatus status,
+      @Param("cutoff") LocalDateTime cutoff,
+      Pageable pageable);
+
+  /** 查询任务ID，清理时据此删除生成的PDF文件 */
+  @Query("SELECT q.taskId FROM QueueItem q WHERE q.id IN :ids")
+  List<String> findTaskIdsByIds(@Param("ids") List<Long> ids);
+
+  /** 按ID批量删除，不加载实体 */
+  @Modifying(clearAutomatically = true)
+  @Query("DELETE FROM QueueItem q WHERE q.id IN :ids")
+  int deleteByIds(@Param("ids") List<Long> ids);
+
+  /** 给定的数据引用中仍被任务数据或结果使用的引用 */
+  @Query(
+      "SELECT q.dataRef FROM QueueItem q WHERE q.dataRef IN :refs"
+          + " UNION SELECT q.resultRef FROM QueueItem q WHERE q.resultRef IN :refs")
+  List<String> findReferencedPayloads(@Param("refs") Collection<String> refs);
 }
@@ -0,0 +1,26 @@
+package com.xxs3315.mbl.repository;
+
+import com.xxs3315.mbl.entity.QueueItem;
+import java.time.LocalDateTime;
+
+/**
+ * 队列任务摘要（投影）
+ *
+ * <p>列表查询只读取ID、类型、状态和时间列，不加载任务数据和结果，也不进入持久化上下文。
+ */
+public interface QueueItemSummary {
+
+  Long getId();
+
+  String getTaskId();
+
+  String getTaskType();
+
+  QueueItem.TaskStatus getStatus();
+
+  LocalDateTime getCreateTime();
+
+  LocalDateTime getStartTime();
+
+  LocalDateTime getEndTime();
+}
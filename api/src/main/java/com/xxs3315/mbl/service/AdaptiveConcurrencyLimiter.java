@@ -0,0 +1,243 @@
+package com.xxs3315.mbl.service;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 队列并发数自适应限流器（AIMD）
+ *
+ * <p>任务完成时记录按页数折算的耗时，队列处理器定期调用 {@link #adjust(int)} 计算新的最大并发数：
+ *
+ * <ul>
+ *   <li>GC耗时占比、GC后老年代占用或每页耗时P95超过基线的容忍倍数时，按比例降低；
+ *   <li>各项指标正常、CPU未饱和且并发槽位已被占满时，加一；
+ *   <li>其他情况保持不变。
+ * </ul>
+ *
+ * <p>基线取观察到的最小P95并缓慢向当前值回升，以适应模板和数据规模的变化。
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+  private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+  // 每个调整周期最多保留的耗时样本数
+  private static final int WINDOW_SIZE = 200;
+
+  // 基线每个周期向当前P95回升的比例
+  private static final double BASELINE_DRIFT = 0.05;
+
+  @Value("${mbl.queue.adaptive.enabled:false}")
+  private boolean enabled;
+
+  @Value("${mbl.queue.adaptive.min-limit:1}")
+  private int minLimit;
+
+  @Value("${mbl.queue.adaptive.max-limit:20}")
+  private int maxLimit;
+
+  @Value("${mbl.queue.adaptive.latency-tolerance:2.0}")
+  private double latencyTolerance;
+
+  @Value("${mbl.queue.adaptive.backoff-ratio:0.75}")
+  private double backoffRatio;
+
+  @Value("${mbl.queue.adaptive.max-gc-ratio:0.1}")
+  private double maxGcRatio;
+
+  @Value("${mbl.queue.adaptive.max-heap-usage:0.85}")
+  private double maxHeapUsage;
+
+  @Value("${mbl.queue.adaptive.max-cpu-load:0.9}")
+  private double maxCpuLoad;
+
+  private final double[] samples = new double[WINDOW_SIZE];
+  private int sampleCount = 0;
+  private int peakInFlight = 0;
+
+  private double baselineLatency = 0;
+  private long lastGcTime = totalGcTime();
+  private long lastAdjustNanos = System.nanoTime();
+
+  private final Map<String, Object> lastDecision = new HashMap<>();
+  private long increases = 0;
+  private long decreases = 0;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * 记录一个成功完成的任务
+   *
+   * @param elapsedMillis 任务耗时
+   * @param pages 任务页面数，按页折算耗时以消除任务大小的差异
+   */
+  public synchronized void recordLatency(long elapsedMillis, int pages) {
+    samples[sampleCount % WINDOW_SIZE] = (double) elapsedMillis / Math.max(1, pages);
+    sampleCount++;
+  }
+
+  /**
+   * 记录当前处理中的任务数，用于判断并发槽位是否被占满
+   *
+   * @param inFlight 处理中任务数
+   */
+  public synchronized void recordInFlight(int inFlight) {
+    peakInFlight = Math.max(peakInFlight, inFlight);
+  }
+
+  /**
+   * 根据本周期的指标计算新的最大并发数，并开始新的统计周期
+   *
+   * @param currentLimit 当前最大并发数
+   * @return 新的最大并发数
+   */
+  public synchronized int adjust(int currentLimit) {
+    long now = System.nanoTime();
+    long gcTime = totalGcTime();
+    double elapsedMillis = Math.max(1, (now - lastAdjustNanos) / 1_000_000.0);
+    double gcRatio = (gcTime - lastGcTime) / elapsedMillis;
+    lastGcTime = gcTime;
+    lastAdjustNanos = now;
+
+    double heapUsage = oldGenUsageAfterGc();
+    double cpuLoad = cpuLoad();
+    double p95 = percentile95();
+    boolean saturated = peakInFlight >= currentLimit;
+    int sampled = Math.min(sampleCount, WINDOW_SIZE);
+    sampleCount = 0;
+    peakInFlight = 0;
+
+    if (p95 > 0) {
+      baselineLatency =
+          baselineLatency == 0 || p95 < baselineLatency
+              ? p95
+              : baselineLatency * (1 - BASELINE_DRIFT) + p95 * BASELINE_DRIFT;
+    }
+
+    int newLimit = currentLimit;
+    String reason;
+    if (gcRatio > maxGcRatio) {
+      newLimit = (int) Math.floor(currentLimit * backoffRatio);
+      reason = "GC耗时占比过高";
+    } else if (heapUsage > maxHeapUsage) {
+      newLimit = (int) Math.floor(currentLimit * backoffRatio);
+      reason = "堆内存占用过高";
+    } else if (p95 > baselineLatency * latencyTolerance) {
+      newLimit = (int) Math.floor(currentLimit * backoffRatio);
+      reason = "任务耗时上升";
+    } else if (p95 > 0 && saturated && cpuLoad < maxCpuLoad) {
+      newLimit = currentLimit + 1;
+      reason = "指标正常且并发已占满";
+    } else {
+      reason = p95 > 0 ? "保持" : "无完成任务样本";
+    }
+    newLimit = Math.max(Math.max(1, minLimit), Math.min(maxLimit, newLimit));
+
+    if (newLimit > currentLimit) {
+      increases++;
+    } else if (newLimit < currentLimit) {
+      decreases++;
+      logger.info(
+          "自适应限流降低最大并发数: {} -> {}, 原因: {}, P95: {}ms/页, 基线: {}ms/页, "
+              + "GC占比: {}, 老年代占用: {}",
+          currentLimit,
+          newLimit,
+          reason,
+          round(p95),
+          round(baselineLatency),
+          round(gcRatio),
+          round(heapUsage));
+    }
+
+    lastDecision.put("time", LocalDateTime.now().toString());
+    lastDecision.put("previousLimit", currentLimit);
+    lastDecision.put("limit", newLimit);
+    lastDecision.put("reason", reason);
+    lastDecision.put("samples", sampled);
+    lastDecision.put("p95MillisPerPage", round(p95));
+    lastDecision.put("baselineMillisPerPage", round(baselineLatency));
+    lastDecision.put("gcRatio", round(gcRatio));
+    lastDecision.put("oldGenUsage", round(heapUsage));
+    lastDecision.put("cpuLoad", round(cpuLoad));
+    lastDecision.put("saturated", saturated);
+    return newLimit;
+  }
+
+  /**
+   * 获取限流器状态
+   *
+   * @return 状态信息，包含最近一次调整的依据
+   */
+  public synchronized Map<String, Object> getStats() {
+    Map<String, Object> stats = new HashMap<>();
+    stats.put("enabled", enabled);
+    stats.put("minLimit", minLimit);
+    stats.put("maxLimit", maxLimit);
+    stats.put("increases", increases);
+    stats.put("decreases", decreases);
+    stats.put("lastDecision", new HashMap<>(lastDecision));
+    return stats;
+  }
+
+  private double percentile95() {
+    int count = Math.min(sampleCount, WINDOW_SIZE);
+    if (count == 0) {
+      return 0;
+    }
+    double[] sorted = Arrays.copyOf(samples, count);
+    Arrays.sort(sorted);
+    return sorted[(int) Math.ceil(count * 0.95) - 1];
+  }
+
+  private static long totalGcTime() {
+    long total = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      total += Math.max(0, gc.getCollectionTime());
+    }
+    return total;
+  }
+
+  /** GC后存活对象占用堆内存池上限的最大比例，反映真实的内存压力 */
+  private static double oldGenUsageAfterGc() {
+    double usage = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      MemoryUsage afterGc = pool.getCollectionUsage();
+      long max = pool.getUsage().getMax();
+      if (pool.getType() == MemoryType.HEAP && afterGc != null && max > 0) {
+        usage = Math.max(usage, (double) afterGc.getUsed() / max);
+      }
+    }
+    return usage;
+  }
+
+  /** 进程CPU占用（0-1），取不到时用系统平均负载估算 */
+  private static double cpuLoad() {
+    OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    if (os instanceof com.sun.management.OperatingSystemMXBean) {
+      double load = ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuLoad();
+      if (load >= 0) {
+        return load;
+      }
+    }
+    double average = os.getSystemLoadAverage();
+    return average < 0 ? 0 : average / os.getAvailableProcessors();
+  }
+
+  private static double round(double value) {
+    return Math.round(value * 1000) / 1000.0;
+  }
+}
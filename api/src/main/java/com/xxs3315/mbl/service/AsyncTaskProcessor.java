@@ -1,16 +1,13 @@
 package com.xxs3315.mbl.service;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import com.xxs3315.mbl.entity.QueueItem;
 
-import java.lang.reflect.Type;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import com.xxs3315.mbl.pdf.dtos.GenPdfProps;
 import com.xxs3315.mbl.pdf.services.PdfMakerService;
+import com.xxs3315.mbl.pdf.services.TemplateRegistryService;
+import com.xxs3315.mbl.util.JsonUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,12 +22,20 @@ public class AsyncTaskProcessor {
   private final AtomicInteger failedTasks = new AtomicInteger(0);
   @Autowired private QueueService queueService;
   @Autowired private PdfMakerService pdfMakerService;
-  private final Gson gson = new Gson();
+  @Autowired private QueueDispatchSignal dispatchSignal;
+  @Autowired private TemplateRegistryService templateRegistryService;
+  @Autowired private ShardedBatchService shardedBatchService;
+  @Autowired private AdaptiveConcurrencyLimiter concurrencyLimiter;
+  @Autowired private PayloadStore payloadStore;
+  @Autowired private QueueLeaseManager leaseManager;
 
   @Async("taskExecutor")
   public void processTaskAsync(
       QueueItem task, AtomicInteger currentProcessingTasks, AtomicInteger maxConcurrentTasks) {
     String threadName = Thread.currentThread().getName();
+    Map envelope = null;
+    long startTime = System.currentTimeMillis();
+    int pageCount = 1;
     try {
       logger.info(
           "开始处理队列任务: {} - {}, 线程: {}, 预计处理时间: {}ms",
@@ -41,31 +46,46 @@ public class AsyncTaskProcessor {
 
       // 这里需要实际进行生成
       // 反序列化参数
-      GenPdfProps props = gson.fromJson(task.getData(), GenPdfProps.class);
-      Type mapType = new TypeToken<Map>() {}.getType();
-      Map requestData = gson.fromJson(props.getData(), mapType);
-
-      if (props.getType().equalsIgnoreCase("single")) {
-        List pageList = (List) requestData.get("pages");
-        Map configMap = (Map) requestData.get("config");
-        int currentPageIndex = ((Double) requestData.get("currentPageIndex")).intValue();
-        Map currentPage = (Map) pageList.get(currentPageIndex);
-        pdfMakerService.create(task.getTaskId(), currentPage, configMap);
+      // 入队时 data 已是嵌套JSON对象，整体只解析一次；早期任务的 data 为字符串，另行解析
+      String data = payloadStore.loadData(task);
+      envelope = JsonUtil.parseMap(data);
+      String type = (String) envelope.get("type");
+      TemplateRegistryService.ResolvedRequest request =
+          templateRegistryService.resolve(
+              (String) envelope.get("templateId"), envelope.get("data"));
+      if (!"single".equalsIgnoreCase(type)) {
+        pageCount = request.getPages().size();
       }
 
-      if (props.getType().equalsIgnoreCase("batch")) {
-        List pageList = (List) requestData.get("pages");
-        Map configMap = (Map) requestData.get("config");
-        pdfMakerService.create(task.getTaskId(), pageList, configMap);
+      if ("single".equalsIgnoreCase(type)) {
+        pdfMakerService.create(task.getTaskId(), request.page(request.getCurrentPageIndex()));
       }
-      // 模拟任务处理结果
-      String result = simulateTaskProcessing(task);
 
+      if ("batch".equalsIgnoreCase(type)) {
+        int parallelism =
+            envelope.get("parallelism") instanceof Number
+                ? ((Number) envelope.get("parallelism")).intValue()
+                : 0;
+        if (shardedBatchService.shouldShard(request.getPages())) {
+          // 超大批量任务拆分为分片任务，父任务保持处理中，由最后完成的分片合并后完成
+          // 分片任务保存完整的页面JSON，拆分前将请求数据填充到页面中
+          shardedBatchService.split(
+              task.getTaskId(), request.materializePages(), request.getConfig(), parallelism);
+          return;
+        }
+        pdfMakerService.create(task.getTaskId(), request, parallelism);
+      }
+      // 模拟任务处理结果
+      String result =
+          ShardedBatchService.SHARD_TYPE.equals(type)
+              ? shardedBatchService.renderShard(task.getTaskId(), envelope)
+              : simulateTaskProcessing(task.getTaskType(), data);
 
       // 完成任务
       boolean success = queueService.completeTask(task.getTaskId(), result);
       if (success) {
         processedTasks.incrementAndGet();
+        concurrencyLimiter.recordLatency(System.currentTimeMillis() - startTime, pageCount);
         logger.info(
             "队列任务完成: {} - 结果: {}, 线程: {}, 当前并发数: {}/{}",
             task.getTaskId(),
@@ -77,12 +97,16 @@ public class AsyncTaskProcessor {
         failedTasks.incrementAndGet();
         logger.error("队列任务完成失败: {}, 线程: {}", task.getTaskId(), threadName);
       }
+      advanceParent(envelope);
 
     } catch (Exception e) {
       logger.error("处理队列任务时发生错误: {}, 线程: {}", task.getTaskId(), threadName, e);
       queueService.failTask(task.getTaskId(), e.getMessage());
       failedTasks.incrementAndGet();
+      advanceParent(envelope);
     } finally {
+      // 处理期间由 QueueLeaseManager 心跳续约，结束后不再续约
+      leaseManager.release(task.getTaskId());
       int currentCount = currentProcessingTasks.decrementAndGet();
       logger.debug(
           "任务 {} 处理结束，线程: {}, 当前并发数: {}/{}",
@@ -90,6 +114,21 @@ public class AsyncTaskProcessor {
           threadName,
           currentCount,
           maxConcurrentTasks.get());
+      // 释放槽位后立即唤醒处理器领取下一个任务
+      dispatchSignal.signal();
+    }
+  }
+
+  // 分片任务结束后推进其父任务，推进失败不影响分片自身的结果
+  private void advanceParent(Map envelope) {
+    if (envelope == null || !ShardedBatchService.SHARD_TYPE.equals(envelope.get("type"))) {
+      return;
+    }
+    String parentTaskId = (String) envelope.get("parentTaskId");
+    try {
+      shardedBatchService.advance(parentTaskId);
+    } catch (Exception e) {
+      logger.error("推进分片父任务失败: {}", parentTaskId, e);
     }
   }
 
@@ -119,18 +158,18 @@ public class AsyncTaskProcessor {
     return (long) (baseTime * variation);
   }
 
-  private String simulateTaskProcessing(QueueItem task) {
-    switch (task.getTaskType()) {
+  private String simulateTaskProcessing(String taskType, String data) {
+    switch (taskType) {
       case "PDF_GENERATE":
-        return "PDF文件生成成功: " + task.getData() + ".pdf";
+        return "PDF文件生成成功: " + data + ".pdf";
       case "PDF_CONVERT":
-        return "PDF转换完成: " + task.getData() + " -> 转换后文件";
+        return "PDF转换完成: " + data + " -> 转换后文件";
       case "EMAIL_SEND":
-        return "邮件发送成功: " + task.getData();
+        return "邮件发送成功: " + data;
       case "DATA_PROCESS":
-        return "数据处理完成: " + task.getData() + " -> 处理结果";
+        return "数据处理完成: " + data + " -> 处理结果";
       default:
-        return "任务处理完成: " + task.getData();
+        return "任务处理完成: " + data;
     }
   }
 
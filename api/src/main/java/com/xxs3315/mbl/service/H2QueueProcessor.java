@@ -1,14 +1,19 @@
 package com.xxs3315.mbl.service;
 
 import com.xxs3315.mbl.entity.QueueItem;
+import com.xxs3315.mbl.repository.QueueItemSummary;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -23,11 +28,22 @@ public class H2QueueProcessor implements QueueProcessor {
   private final AtomicInteger processedTasks = new AtomicInteger(0);
   @Autowired private QueueService queueService;
   @Autowired private AsyncTaskProcessor asyncTaskProcessor;
+  @Autowired private QueueDispatchSignal dispatchSignal;
+  @Autowired private AdaptiveConcurrencyLimiter concurrencyLimiter;
+  @Autowired private QueueLaneScheduler laneScheduler;
+  @Autowired private QueueLeaseManager leaseManager;
+
+  // 兜底轮询间隔：超时未收到调度信号时也领取一次，防止遗漏通知（如数据库连接中断期间提交的任务）
+  @Value("${mbl.queue.poll-interval:5000}")
+  private long pollInterval;
+
+  private Thread dispatchThread;
 
   @PostConstruct
   public void init() {
     // 延迟启动，等待数据库表创建完成
-    new Thread(
+    dispatchThread =
+        new Thread(
             () -> {
               try {
                 // 等待数据库初始化完成
@@ -39,32 +55,38 @@ public class H2QueueProcessor implements QueueProcessor {
                 // 应用启动时自动开启处理器
                 start();
                 logger.info("H2队列处理器初始化完成，已自动启动");
+
+                // 调度循环：收到信号或兜底轮询超时后领取任务，直到并发槽位占满或队列为空
+                dispatchLoop();
               } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 logger.error("处理器初始化被中断", e);
               } catch (Exception e) {
                 logger.error("处理器初始化失败", e);
               }
-            })
-        .start();
+            },
+            "QueueDispatcher");
+    dispatchThread.setDaemon(true);
+    dispatchThread.start();
   }
 
-  /** 应用启动时恢复任务状态 处理PROCESSING状态的任务，将其重置为PENDING状态以便重新处理 */
+  /** 停止调度线程，等待当前一轮领取结束，避免阻塞应用关闭 */
+  @PreDestroy
+  public void destroy() throws InterruptedException {
+    stop();
+    if (dispatchThread != null) {
+      dispatchThread.interrupt();
+      dispatchThread.join(5000);
+    }
+  }
+
+  /** 应用启动时恢复任务状态 将本节点上次运行遗留的PROCESSING任务重置为PENDING状态以便重新处理 */
   private void recoverTasksOnStartup() {
     try {
-      // 1. 处理PROCESSING状态的任务（应用重启时可能存在的未完成任务）
-      var processingTasks = queueService.getProcessingTasks();
-      if (!processingTasks.isEmpty()) {
-        logger.warn("发现 {} 个PROCESSING状态的任务，应用重启时重置为PENDING状态", processingTasks.size());
-
-        for (QueueItem task : processingTasks) {
-          logger.info("重置PROCESSING任务为PENDING: {} - {}", task.getTaskId(), task.getTaskType());
-          // 将PROCESSING状态的任务重置为PENDING状态
-          boolean success = queueService.resetProcessingTaskToPending(task.getTaskId());
-          if (!success) {
-            logger.warn("重置任务失败，可能已被其他线程处理: {}", task.getTaskId());
-          }
-        }
+      // 1. 只回收本节点持有租约的任务，其他节点的任务可能仍在执行，租约过期后由定时回收处理
+      int reclaimed = queueService.reclaimLeases(leaseManager.getNodeId());
+      if (reclaimed > 0) {
+        logger.warn("发现 {} 个本节点遗留的PROCESSING状态任务，已重置为PENDING状态", reclaimed);
       }
 
       // 2. 检查PENDING状态的任务
@@ -72,7 +94,7 @@ public class H2QueueProcessor implements QueueProcessor {
       if (!pendingTasks.isEmpty()) {
         logger.info("发现 {} 个PENDING状态的任务，准备重新处理", pendingTasks.size());
 
-        for (QueueItem task : pendingTasks) {
+        for (QueueItemSummary task : pendingTasks) {
           logger.info("恢复PENDING任务: {} - {}", task.getTaskId(), task.getTaskType());
         }
 
@@ -86,43 +108,87 @@ public class H2QueueProcessor implements QueueProcessor {
     }
   }
 
-  @Scheduled(fixedRate = 1000) // 每秒检查一次
-  public void processQueue() {
-    if (!isRunning.get()) {
-      return;
+  private void dispatchLoop() {
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        dispatchSignal.await(pollInterval);
+        processQueue();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (Exception e) {
+        logger.error("H2队列调度时发生错误", e);
+      }
     }
+  }
 
-    if (currentProcessingTasks.get() >= maxConcurrentTasks.get()) {
+  /** 按空闲槽位数连续领取任务，只在调度线程中调用 */
+  private void processQueue() {
+    if (!isRunning.get()) {
       return;
     }
 
-    // 添加重试机制，处理并发冲突
-    int maxRetries = 3;
-    for (int retry = 0; retry < maxRetries; retry++) {
-      var taskOpt = queueService.getNextTask();
-      if (taskOpt.isPresent()) {
-        QueueItem task = taskOpt.get();
+    int freeSlots = maxConcurrentTasks.get() - currentProcessingTasks.get();
+    while (freeSlots > 0) {
+      List<QueueItem> tasks = queueService.claimTasks(freeSlots);
+      if (tasks.isEmpty()) {
+        break;
+      }
+      for (int i = 0; i < tasks.size(); i++) {
+        QueueItem task = tasks.get(i);
         currentProcessingTasks.incrementAndGet();
+        // 从交给执行线程起由心跳续约，排队等待线程期间租约也不会过期
+        leaseManager.hold(task.getTaskId());
         logger.info("开始处理H2队列任务: {} - {}", task.getTaskId(), task.getTaskType());
 
-        asyncTaskProcessor.processTaskAsync(task, currentProcessingTasks, maxConcurrentTasks);
-        break; // 成功获取任务，退出重试循环
-      } else if (retry < maxRetries - 1) {
-        // 如果没有获取到任务且还有重试机会，使用指数退避策略
         try {
-          long backoffTime = (long) (50 * Math.pow(2, retry)); // 50ms, 100ms, 200ms
-          Thread.sleep(backoffTime);
-        } catch (InterruptedException e) {
-          Thread.currentThread().interrupt();
-          break;
+          asyncTaskProcessor.processTaskAsync(task, currentProcessingTasks, maxConcurrentTasks);
+        } catch (TaskRejectedException e) {
+          // 线程池已满，退回本批剩余任务等待下次调度
+          currentProcessingTasks.decrementAndGet();
+          for (QueueItem rejected : tasks.subList(i, tasks.size())) {
+            leaseManager.release(rejected.getTaskId());
+            queueService.resetProcessingTaskToPending(rejected.getTaskId());
+          }
+          logger.warn("线程池已满，{} 个任务退回队列", tasks.size() - i);
+          return;
         }
       }
+      freeSlots = maxConcurrentTasks.get() - currentProcessingTasks.get();
+    }
+    concurrencyLimiter.recordInFlight(currentProcessingTasks.get());
+  }
+
+  /** 回收租约已过期的任务（持有节点宕机或失联），重置为PENDING后由任意节点重新领取 */
+  @Scheduled(
+      initialDelayString = "${mbl.queue.lease.reap-interval:15000}",
+      fixedDelayString = "${mbl.queue.lease.reap-interval:15000}")
+  public void reclaimExpiredLeases() {
+    try {
+      queueService.reclaimLeases(null);
+    } catch (Exception e) {
+      logger.error("H2队列回收过期租约时发生错误", e);
+    }
+  }
+
+  /** 开启自适应限流时，按任务耗时、GC和内存压力定期调整最大并发数 */
+  @Scheduled(fixedDelayString = "${mbl.queue.adaptive.interval:10000}")
+  public void adaptConcurrency() {
+    if (!concurrencyLimiter.isEnabled()) {
+      return;
+    }
+    concurrencyLimiter.recordInFlight(currentProcessingTasks.get());
+    int current = maxConcurrentTasks.get();
+    int limit = concurrencyLimiter.adjust(current);
+    if (limit != current && maxConcurrentTasks.compareAndSet(current, limit)) {
+      logger.info("H2队列处理器自适应调整最大并发任务数: {} -> {}", current, limit);
+      dispatchSignal.signal();
     }
   }
 
   public void start() {
     if (isRunning.compareAndSet(false, true)) {
       logger.info("H2队列处理器已启动");
+      dispatchSignal.signal();
     }
   }
 
@@ -135,6 +201,7 @@ public class H2QueueProcessor implements QueueProcessor {
   public void setMaxConcurrentTasks(int maxTasks) {
     maxConcurrentTasks.set(maxTasks);
     logger.info("H2队列处理器最大并发任务数设置为: {}", maxTasks);
+    dispatchSignal.signal();
   }
 
   public Map<String, Object> getProcessorStats() {
@@ -142,7 +209,10 @@ public class H2QueueProcessor implements QueueProcessor {
         "isRunning", isRunning.get(),
         "currentProcessingTasks", currentProcessingTasks.get(),
         "maxConcurrentTasks", maxConcurrentTasks.get(),
-        "processedTasks", processedTasks.get());
+        "processedTasks", processedTasks.get(),
+        "adaptiveLimiter", concurrencyLimiter.getStats(),
+        "lanes", laneScheduler.getStats(),
+        "lease", leaseManager.getStats());
   }
 
   public void incrementProcessedTasks() {
@@ -0,0 +1,247 @@
+package com.xxs3315.mbl.service;
+
+import com.xxs3315.mbl.entity.QueueItem;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 队列任务数据存储
+ *
+ * <p>超过 mbl.queue.payload.inline-max-bytes 的任务数据和结果以内容的SHA-256为键写入本地文件系统，
+ * 按哈希前两级分目录（ab/cd/abcd...）存放，queue_items 中只保存引用和大小。
+ * 相同内容只存一份；写入时先写临时文件再原子移动，多个节点共享目录时也不会读到半个文件。
+ */
+@Component
+public class PayloadStore {
+
+  private static final Logger logger = LoggerFactory.getLogger(PayloadStore.class);
+
+  // 清理时每批检查引用的文件数
+  private static final int SWEEP_BATCH_SIZE = 500;
+
+  @Value("${mbl.queue.payload.dir:./data/payloads}")
+  private String payloadDir;
+
+  @Value("${mbl.queue.payload.inline-max-bytes:8192}")
+  private int inlineMaxBytes;
+
+  // 写入（含刷新修改时间）持读锁，清理时对每个文件持写锁复查修改时间后再删除
+  private final ReadWriteLock sweepLock = new ReentrantReadWriteLock();
+
+  /**
+   * 保存任务数据，超过内联上限时写入文件并只在任务项中保留引用
+   *
+   * @param item 任务项，data 为完整数据
+   */
+  public void storeData(QueueItem item) {
+    String data = item.getData();
+    if (data == null) {
+      return;
+    }
+    byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+    item.setDataSize((long) bytes.length);
+    if (bytes.length > inlineMaxBytes) {
+      item.setDataRef(put(bytes));
+      item.setData(null);
+    }
+  }
+
+  /**
+   * 读取任务数据
+   *
+   * @param item 任务项
+   * @return 完整数据
+   */
+  public String loadData(QueueItem item) {
+    return item.getDataRef() != null ? get(item.getDataRef()) : item.getData();
+  }
+
+  /**
+   * 保存任务结果，超过内联上限时写入文件并只在任务项中保留引用
+   *
+   * @param item 任务项
+   * @param result 任务结果，可为null
+   */
+  public void storeResult(QueueItem item, String result) {
+    item.setResult(result);
+    item.setResultRef(null);
+    if (result == null) {
+      return;
+    }
+    byte[] bytes = result.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > inlineMaxBytes) {
+      item.setResultRef(put(bytes));
+      item.setResult(null);
+    }
+  }
+
+  /**
+   * 读取任务结果
+   *
+   * @param item 任务项
+   * @return 完整结果
+   */
+  public String loadResult(QueueItem item) {
+    return item.getResultRef() != null ? get(item.getResultRef()) : item.getResult();
+  }
+
+  /**
+   * 清理不再被任务引用的数据文件
+   *
+   * <p>只清理修改时间早于 olderThan 的文件：写入相同内容时会刷新修改时间。查询引用时还未提交的任务
+   * 看不到，因此删除前在写锁内重新检查修改时间，查询引用之后才复用的文件不会被删除。
+   * 多个节点共享目录时只能依赖修改时间，olderThan 应远早于任务入队事务的最长耗时。
+   *
+   * @param olderThan 只清理修改时间早于该时间的文件
+   * @param referenced 返回给定引用中仍被任务使用的引用
+   * @return 删除的文件数
+   */
+  public int sweep(Instant olderThan, Function<Collection<String>, Collection<String>> referenced) {
+    Path root = Path.of(payloadDir);
+    if (!Files.isDirectory(root)) {
+      return 0;
+    }
+    int deleted = 0;
+    Map<String, Path> batch = new HashMap<>();
+    try (Stream<Path> paths = Files.walk(root, 3)) {
+      for (Path path : (Iterable<Path>) paths::iterator) {
+        if (!Files.isRegularFile(path)
+            || Files.getLastModifiedTime(path).toInstant().isAfter(olderThan)) {
+          continue;
+        }
+        String name = path.getFileName().toString();
+        if (name.endsWith(".tmp")) {
+          // 写入中断留下的临时文件
+          deleted += Files.deleteIfExists(path) ? 1 : 0;
+          continue;
+        }
+        batch.put(name, path);
+        if (batch.size() >= SWEEP_BATCH_SIZE) {
+          deleted += deleteUnreferenced(batch, olderThan, referenced);
+        }
+      }
+      deleted += deleteUnreferenced(batch, olderThan, referenced);
+    } catch (IOException | UncheckedIOException e) {
+      logger.warn("清理任务数据文件失败: {}", root, e);
+    }
+    return deleted;
+  }
+
+  private int deleteUnreferenced(
+      Map<String, Path> batch,
+      Instant olderThan,
+      Function<Collection<String>, Collection<String>> referenced)
+      throws IOException {
+    if (batch.isEmpty()) {
+      return 0;
+    }
+    List<String> refs = new ArrayList<>(batch.keySet());
+    refs.removeAll(referenced.apply(batch.keySet()));
+    int deleted = 0;
+    for (String ref : refs) {
+      deleted += deleteIfUnchanged(batch.get(ref), olderThan) ? 1 : 0;
+    }
+    batch.clear();
+    return deleted;
+  }
+
+  /** 修改时间仍早于 olderThan 时删除文件，检查和删除期间不会有写入刷新该文件 */
+  private boolean deleteIfUnchanged(Path path, Instant olderThan) throws IOException {
+    sweepLock.writeLock().lock();
+    try {
+      if (Files.getLastModifiedTime(path).toInstant().isAfter(olderThan)) {
+        return false;
+      }
+      return Files.deleteIfExists(path);
+    } catch (NoSuchFileException e) {
+      return false;
+    } finally {
+      sweepLock.writeLock().unlock();
+    }
+  }
+
+  /** 写入内容，已存在相同内容时刷新修改时间并直接返回引用 */
+  private String put(byte[] bytes) {
+    String ref = sha256(bytes);
+    sweepLock.readLock().lock();
+    try {
+      return put(ref, bytes);
+    } finally {
+      sweepLock.readLock().unlock();
+    }
+  }
+
+  private String put(String ref, byte[] bytes) {
+    Path path = pathOf(ref);
+    if (Files.exists(path)) {
+      try {
+        Files.setLastModifiedTime(path, FileTime.from(Instant.now()));
+        return ref;
+      } catch (IOException e) {
+        // 文件刚被清理，重新写入
+        logger.debug("刷新任务数据文件时间失败，重新写入: {}", ref);
+      }
+    }
+    try {
+      Files.createDirectories(path.getParent());
+      Path temp = Files.createTempFile(path.getParent(), ref, ".tmp");
+      try {
+        Files.write(temp, bytes);
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+      } catch (FileAlreadyExistsException e) {
+        // 其他线程或节点已写入相同内容
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+      return ref;
+    } catch (IOException e) {
+      throw new UncheckedIOException("写入任务数据文件失败: " + ref, e);
+    }
+  }
+
+  private String get(String ref) {
+    try {
+      return Files.readString(pathOf(ref), StandardCharsets.UTF_8);
+    } catch (NoSuchFileException e) {
+      throw new IllegalStateException("任务数据文件不存在: " + ref, e);
+    } catch (IOException e) {
+      throw new UncheckedIOException("读取任务数据文件失败: " + ref, e);
+    }
+  }
+
+  private Path pathOf(String ref) {
+    return Path.of(payloadDir, ref.substring(0, 2), ref.substring(2, 4), ref);
+  }
+
+  private static String sha256(byte[] bytes) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 不可用", e);
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package com.xxs3315.mbl.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * PostgreSQL队列通知监听器
+ *
+ * <p>使用一个不经过连接池的专用连接执行 LISTEN，收到任何节点提交任务时发出的 NOTIFY 后唤醒本节点的队列处理器。
+ * 订阅状态随连接关闭而结束，不会把仍在监听的连接还给连接池。
+ * 连接异常时关闭并重新建立连接，期间由处理器的兜底轮询保证任务不会被遗漏。
+ */
+@Component
+@Profile("postgresql")
+public class PostgreSQLQueueListener {
+
+  /** 队列通知频道 */
+  public static final String CHANNEL = "mbl_queue";
+
+  private static final Logger logger = LoggerFactory.getLogger(PostgreSQLQueueListener.class);
+  private static final int NOTIFICATION_TIMEOUT_MS = 1000;
+  private static final long RECONNECT_DELAY_MS = 5000;
+
+  @Autowired private DataSourceProperties dataSourceProperties;
+  @Autowired private QueueDispatchSignal dispatchSignal;
+
+  private volatile boolean running = true;
+  private Thread listenerThread;
+
+  @PostConstruct
+  public void init() {
+    listenerThread = new Thread(this::listenLoop, "QueueListener");
+    listenerThread.setDaemon(true);
+    listenerThread.start();
+  }
+
+  @PreDestroy
+  public void destroy() {
+    running = false;
+    if (listenerThread != null) {
+      listenerThread.interrupt();
+    }
+  }
+
+  private void listenLoop() {
+    while (running) {
+      try (Connection connection = openConnection()) {
+        try (Statement statement = connection.createStatement()) {
+          statement.execute("LISTEN " + CHANNEL);
+        }
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        logger.info("PostgreSQL队列通知监听已启动: {}", CHANNEL);
+
+        while (running) {
+          PGNotification[] notifications = pgConnection.getNotifications(NOTIFICATION_TIMEOUT_MS);
+          if (notifications != null && notifications.length > 0) {
+            logger.debug("收到 {} 条队列通知", notifications.length);
+            dispatchSignal.signal();
+          }
+        }
+      } catch (SQLException e) {
+        if (!running) {
+          break;
+        }
+        logger.warn("PostgreSQL队列通知监听异常，{}ms后重连: {}", RECONNECT_DELAY_MS, e.getMessage());
+        try {
+          Thread.sleep(RECONNECT_DELAY_MS);
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+    }
+    logger.info("PostgreSQL队列通知监听已停止");
+  }
+
+  /** 按数据源配置直接建立连接，不从连接池借用 */
+  private Connection openConnection() throws SQLException {
+    return DriverManager.getConnection(
+        dataSourceProperties.determineUrl(),
+        dataSourceProperties.determineUsername(),
+        dataSourceProperties.determinePassword());
+  }
+}
@@ -2,7 +2,11 @@ package com.xxs3315.mbl.service;
 
 import com.xxs3315.mbl.entity.QueueItem;
 import com.xxs3315.mbl.repository.QueueItemRepository;
+import com.xxs3315.mbl.repository.QueueItemSummary;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -13,6 +17,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
 import org.springframework.dao.InvalidDataAccessResourceUsageException;
 import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,56 +31,142 @@ public class PostgreSQLQueueService implements QueueService {
 
   @Autowired private QueueItemRepository queueItemRepository;
 
+  @Autowired private QueueDispatchSignal dispatchSignal;
+
+  @Autowired private QueueStatsCounter statsCounter;
+
+  @Autowired private QueueLaneScheduler laneScheduler;
+
+  @Autowired private PayloadStore payloadStore;
+
+  @Autowired private QueueLeaseManager leaseManager;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
   @Transactional
   public QueueItem addToQueue(String taskType, String data) {
-    QueueItem item = new QueueItem(taskType, data);
+    return enqueue(new QueueItem(taskType, data));
+  }
+
+  @Transactional
+  public QueueItem addToQueue(QueueItem item) {
+    return enqueue(item);
+  }
+
+  @Transactional
+  public List<QueueItem> addAllToQueue(List<QueueItem> items) {
+    if (items.isEmpty()) {
+      return Collections.emptyList();
+    }
+    for (QueueItem item : items) {
+      item.setPriority(QueueLaneScheduler.normalize(item.getPriority()));
+      payloadStore.storeData(item);
+    }
+    // ID由序列按号段预分配，插入语句在提交时按 hibernate.jdbc.batch_size 批量执行
+    List<QueueItem> savedItems = queueItemRepository.saveAll(items);
+    logger.info(
+        "批量添加任务到PostgreSQL队列: {} 个, 首个任务: {}",
+        savedItems.size(),
+        savedItems.get(0).getTaskId());
+    statsCounter.recordTransition(null, QueueItem.TaskStatus.PENDING, savedItems.size());
+    jdbcTemplate.execute("NOTIFY " + PostgreSQLQueueListener.CHANNEL);
+    dispatchSignal.signalAfterCommit();
+    return savedItems;
+  }
+
+  private QueueItem enqueue(QueueItem item) {
+    String taskType = item.getTaskType();
+    item.setPriority(QueueLaneScheduler.normalize(item.getPriority()));
+    payloadStore.storeData(item);
     QueueItem savedItem = queueItemRepository.save(item);
-    logger.info("任务已添加到PostgreSQL队列: {} - {}", savedItem.getTaskId(), taskType);
+    logger.info(
+        "任务已添加到PostgreSQL队列: {} - {}, 优先级: {}, 预估成本: {}",
+        savedItem.getTaskId(),
+        taskType,
+        savedItem.getPriority(),
+        savedItem.getEstimatedCost());
+    statsCounter.recordTransition(null, QueueItem.TaskStatus.PENDING);
+    // NOTIFY 随事务提交一起投递，唤醒所有节点的队列处理器
+    jdbcTemplate.execute("NOTIFY " + PostgreSQLQueueListener.CHANNEL);
+    dispatchSignal.signalAfterCommit();
     return savedItem;
   }
 
   @Transactional
   public Optional<QueueItem> getNextTask() {
+    return claimTasks(1).stream().findFirst();
+  }
+
+  @Transactional
+  public List<QueueItem> claimTasks(int maxTasks) {
+    if (maxTasks <= 0) {
+      return Collections.emptyList();
+    }
     try {
-      // 使用FOR UPDATE锁定查询，防止并发问题
-      Optional<QueueItem> taskOpt = queueItemRepository.findFirstPendingTaskForUpdate();
-      if (taskOpt.isPresent()) {
-        QueueItem task = taskOpt.get();
-        // 再次检查状态，确保任务仍然是PENDING状态
-        if (task.getStatus() == QueueItem.TaskStatus.PENDING) {
-          task.setStatus(QueueItem.TaskStatus.PROCESSING);
-          task.setStartTime(LocalDateTime.now());
-          queueItemRepository.save(task);
-          logger.info("获取到PostgreSQL队列任务: {} - {}", task.getTaskId(), task.getTaskType());
-          return Optional.of(task);
-        } else {
-          logger.warn("任务状态已改变，跳过处理: {} - {}", task.getTaskId(), task.getStatus());
-        }
+      // 按通道分配槽位，每个通道用 FOR UPDATE SKIP LOCKED + UPDATE ... RETURNING 一条语句完成领取
+      List<QueueItem> tasks = new ArrayList<>();
+      LocalDateTime startTime = LocalDateTime.now();
+      LocalDateTime leaseExpiresAt = leaseManager.nextExpiry();
+      for (Map.Entry<Integer, Integer> lane : planClaims(maxTasks).entrySet()) {
+        tasks.addAll(
+            queueItemRepository.claimPendingTasksSkipLocked(
+                lane.getKey(),
+                lane.getValue(),
+                startTime,
+                leaseManager.getNodeId(),
+                leaseExpiresAt));
       }
-      return Optional.empty();
-    } catch (OptimisticLockingFailureException e) {
-      logger.warn("获取任务时发生乐观锁冲突，重试中...");
-      // 乐观锁冲突时返回空，让调用方重试
-      return Optional.empty();
+      tasks.sort(
+          Comparator.comparingInt(QueueItem::getPriority)
+              .thenComparing(QueueItem::getCreateTime));
+      // 按实际领取的行数推进各通道的虚拟时间，未领取到的份额留到下一轮
+      Map<Integer, Integer> claimed = new HashMap<>();
+      for (QueueItem task : tasks) {
+        claimed.merge(task.getPriority(), 1, Integer::sum);
+      }
+      laneScheduler.recordClaimed(claimed);
+      statsCounter.recordTransition(
+          QueueItem.TaskStatus.PENDING, QueueItem.TaskStatus.PROCESSING, tasks.size());
+      for (QueueItem task : tasks) {
+        logger.info(
+            "获取到PostgreSQL队列任务: {} - {}, 优先级: {}",
+            task.getTaskId(),
+            task.getTaskType(),
+            task.getPriority());
+      }
+      return tasks;
     } catch (InvalidDataAccessResourceUsageException e) {
       logger.warn("数据库表可能还未创建完成，跳过本次查询");
       // 表不存在时返回空，等待表创建完成
-      return Optional.empty();
+      return Collections.emptyList();
     }
   }
 
+  /** 按通道权重将空闲槽位分配给有待处理任务的通道 */
+  private Map<Integer, Integer> planClaims(int maxTasks) {
+    Map<Integer, Long> pending = new HashMap<>();
+    for (Object[] row : queueItemRepository.countPendingGroupByPriority()) {
+      pending.put(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+    }
+    return laneScheduler.allocate(pending, maxTasks);
+  }
+
   @Transactional
   public boolean completeTask(String taskId, String result) {
     try {
       Optional<QueueItem> taskOpt = queueItemRepository.findByTaskId(taskId);
       if (taskOpt.isPresent()) {
         QueueItem task = taskOpt.get();
-        if (task.getStatus() == QueueItem.TaskStatus.PROCESSING) {
+        if (task.getStatus() == QueueItem.TaskStatus.PROCESSING && holdsLease(task)) {
           task.setStatus(QueueItem.TaskStatus.COMPLETED);
           task.setEndTime(LocalDateTime.now());
-          task.setResult(result);
+          task.setLeaseOwner(null);
+          task.setLeaseExpiresAt(null);
+          payloadStore.storeResult(task, result);
           queueItemRepository.save(task);
           logger.info("PostgreSQL队列任务已完成: {} - {}", taskId, result);
+          statsCounter.recordTransition(
+              QueueItem.TaskStatus.PROCESSING, QueueItem.TaskStatus.COMPLETED);
           return true;
         }
       }
@@ -90,12 +183,16 @@ public class PostgreSQLQueueService implements QueueService {
       Optional<QueueItem> taskOpt = queueItemRepository.findByTaskId(taskId);
       if (taskOpt.isPresent()) {
         QueueItem task = taskOpt.get();
-        if (task.getStatus() == QueueItem.TaskStatus.PROCESSING) {
+        if (task.getStatus() == QueueItem.TaskStatus.PROCESSING && holdsLease(task)) {
           task.setStatus(QueueItem.TaskStatus.FAILED);
           task.setEndTime(LocalDateTime.now());
+          task.setLeaseOwner(null);
+          task.setLeaseExpiresAt(null);
           task.setErrorMessage(errorMessage);
           queueItemRepository.save(task);
           logger.info("PostgreSQL队列任务执行失败: {} - {}", taskId, errorMessage);
+          statsCounter.recordTransition(
+              QueueItem.TaskStatus.PROCESSING, QueueItem.TaskStatus.FAILED);
           return true;
         }
       }
@@ -110,36 +207,36 @@ public class PostgreSQLQueueService implements QueueService {
     return queueItemRepository.findByTaskId(taskId);
   }
 
-  @Transactional(readOnly = true)
   public Map<String, Object> getQueueStats() {
-    Map<String, Object> stats = new HashMap<>();
-    // 使用只读事务确保数据一致性
-    stats.put("pending", queueItemRepository.countByStatus(QueueItem.TaskStatus.PENDING));
-    stats.put("processing", queueItemRepository.countByStatus(QueueItem.TaskStatus.PROCESSING));
-    stats.put("completed", queueItemRepository.countByStatus(QueueItem.TaskStatus.COMPLETED));
-    stats.put("failed", queueItemRepository.countByStatus(QueueItem.TaskStatus.FAILED));
-    stats.put("cancelled", queueItemRepository.countByStatus(QueueItem.TaskStatus.CANCELLED));
-    stats.put("total", queueItemRepository.count());
-    stats.put("timestamp", LocalDateTime.now().toString());
-    return stats;
+    // 内存计数，每次状态变更后更新并定期与数据库同步
+    return statsCounter.snapshot();
   }
 
-  public List<QueueItem> getPendingTasks() {
-    return queueItemRepository.findByStatusOrderByCreateTimeAsc(QueueItem.TaskStatus.PENDING);
+  public List<QueueItemSummary> getPendingTasks() {
+    return queueItemRepository.findSummariesByStatusOrderByCreateTimeAsc(
+        QueueItem.TaskStatus.PENDING);
   }
 
-  public List<QueueItem> getProcessingTasks() {
-    return queueItemRepository.findByStatusOrderByCreateTimeAsc(QueueItem.TaskStatus.PROCESSING);
+  public List<QueueItemSummary> getProcessingTasks() {
+    return queueItemRepository.findSummariesByStatusOrderByCreateTimeAsc(
+        QueueItem.TaskStatus.PROCESSING);
   }
 
-  public List<QueueItem> getCompletedTasks() {
-    return queueItemRepository.findByStatusOrderByCreateTimeAsc(QueueItem.TaskStatus.COMPLETED);
+  public List<QueueItemSummary> listTasks(
+      QueueItem.TaskStatus status, LocalDateTime afterCreateTime, Long afterId, int size) {
+    Pageable pageable = PageRequest.of(0, size);
+    if (afterCreateTime == null || afterId == null) {
+      return queueItemRepository.findSummaryPage(status, pageable);
+    }
+    return queueItemRepository.findSummaryPageAfter(status, afterCreateTime, afterId, pageable);
   }
 
   @Transactional
   public void clearQueue() {
-    queueItemRepository.deleteAll();
+    // 一条 DELETE 语句删除，不逐个加载实体；数据文件由保留策略的清理任务回收
+    queueItemRepository.deleteAllInBatch();
     logger.info("PostgreSQL队列已清空");
+    statsCounter.recordClear();
   }
 
   @Transactional
@@ -153,6 +250,8 @@ public class PostgreSQLQueueService implements QueueService {
           task.setEndTime(LocalDateTime.now());
           queueItemRepository.save(task);
           logger.info("PostgreSQL队列任务已取消: {}", taskId);
+          statsCounter.recordTransition(
+              QueueItem.TaskStatus.PENDING, QueueItem.TaskStatus.CANCELLED);
           return true;
         }
       }
@@ -173,14 +272,20 @@ public class PostgreSQLQueueService implements QueueService {
       Optional<QueueItem> taskOpt = queueItemRepository.findByTaskId(taskId);
       if (taskOpt.isPresent()) {
         QueueItem task = taskOpt.get();
-        if (task.getStatus() == QueueItem.TaskStatus.PROCESSING) {
+        if (task.getStatus() == QueueItem.TaskStatus.PROCESSING && holdsLease(task)) {
           task.setStatus(QueueItem.TaskStatus.PENDING);
+          task.setLeaseOwner(null);
+          task.setLeaseExpiresAt(null);
           task.setStartTime(null); // 清除开始时间
           task.setEndTime(null); // 清除结束时间
           task.setResult(null); // 清除结果
+          task.setResultRef(null);
           task.setErrorMessage(null); // 清除错误信息
           queueItemRepository.save(task);
           logger.info("PostgreSQL队列任务已重置为PENDING状态: {}", taskId);
+          statsCounter.recordTransition(
+              QueueItem.TaskStatus.PROCESSING, QueueItem.TaskStatus.PENDING);
+          dispatchSignal.signalAfterCommit();
           return true;
         }
       }
@@ -190,4 +295,33 @@ public class PostgreSQLQueueService implements QueueService {
       return false;
     }
   }
+
+  @Transactional
+  public int reclaimLeases(String leaseOwner) {
+    int reclaimed =
+        leaseOwner == null
+            ? queueItemRepository.reclaimExpiredLeases(
+                QueueItem.TaskStatus.PENDING, LocalDateTime.now())
+            : queueItemRepository.reclaimLeasesOwnedBy(QueueItem.TaskStatus.PENDING, leaseOwner);
+    if (reclaimed > 0) {
+      logger.warn(
+          "PostgreSQL队列回收任务租约: {} 个任务重置为PENDING, 范围: {}",
+          reclaimed,
+          leaseOwner == null ? "已过期的租约" : "节点 " + leaseOwner + " 持有的租约");
+      statsCounter.recordTransition(
+          QueueItem.TaskStatus.PROCESSING, QueueItem.TaskStatus.PENDING, reclaimed);
+      jdbcTemplate.execute("NOTIFY " + PostgreSQLQueueListener.CHANNEL);
+      dispatchSignal.signalAfterCommit();
+    }
+    return reclaimed;
+  }
+
+  /** 租约被回收后由其他节点重新领取的任务，原节点的执行结果作废；等待分片的父任务不持有租约 */
+  private boolean holdsLease(QueueItem task) {
+    if (task.getLeaseOwner() == null || task.getLeaseOwner().equals(leaseManager.getNodeId())) {
+      return true;
+    }
+    logger.warn("任务租约已由其他节点持有，忽略本节点的状态变更: {} - {}", task.getTaskId(), task.getLeaseOwner());
+    return false;
+  }
 }
@@ -0,0 +1,63 @@
+package com.xxs3315.mbl.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 队列调度信号（进程内）
+ *
+ * <p>新任务提交、任务结束释放并发槽位、处理器启动或调整并发数时发出信号，唤醒队列处理器立即领取任务， 多次信号在处理器醒来前会合并为一次。
+ */
+@Component
+public class QueueDispatchSignal {
+
+  private final Object lock = new Object();
+  private boolean signaled = false;
+
+  /** 发出调度信号 */
+  public void signal() {
+    synchronized (lock) {
+      signaled = true;
+      lock.notifyAll();
+    }
+  }
+
+  /** 在当前事务提交后发出调度信号，没有事务时立即发出 */
+  public void signalAfterCommit() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              signal();
+            }
+          });
+    } else {
+      signal();
+    }
+  }
+
+  /**
+   * 等待调度信号
+   *
+   * @param timeoutMillis 最长等待时间（毫秒）
+   * @return 是否收到信号，超时返回false
+   * @throws InterruptedException 等待被中断
+   */
+  public boolean await(long timeoutMillis) throws InterruptedException {
+    synchronized (lock) {
+      long deadline = System.currentTimeMillis() + timeoutMillis;
+      while (!signaled) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+          break;
+        }
+        lock.wait(remaining);
+      }
+      boolean result = signaled;
+      signaled = false;
+      return result;
+    }
+  }
+}
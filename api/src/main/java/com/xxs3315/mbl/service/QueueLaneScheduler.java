@@ -0,0 +1,151 @@
+package com.xxs3315.mbl.service;
+
+import com.xxs3315.mbl.entity.QueueItem;
+import jakarta.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 队列优先级通道调度
+ *
+ * <p>任务按预估成本分入交互、普通、批量三个通道。领取任务时按通道权重做加权公平（stride）调度：
+ * 每个通道领取一个任务后虚拟时间前进 1/权重，空闲槽位总是分给有待处理任务且虚拟时间最小的通道。
+ * 交互任务因此很快得到槽位，批量任务也始终按权重比例推进，不会饿死。
+ *
+ * <p>{@link #allocate} 只做计划，不推进虚拟时间；领取后由 {@link #recordClaimed} 按实际领取的行数推进。
+ * SKIP LOCKED 下某通道领取到的任务可能少于计划，未领取的份额保留到下一轮。
+ */
+@Component
+public class QueueLaneScheduler {
+
+  private static final Logger logger = LoggerFactory.getLogger(QueueLaneScheduler.class);
+
+  private static final int LANES = 3;
+  private static final String[] LANE_NAMES = {"interactive", "normal", "bulk"};
+
+  @Value("${mbl.queue.lanes.weights:8,3,1}")
+  private int[] weights;
+
+  @Value("${mbl.queue.lanes.interactive-max-cost:200}")
+  private long interactiveMaxCost;
+
+  @Value("${mbl.queue.lanes.normal-max-cost:5000}")
+  private long normalMaxCost;
+
+  private final double[] pass = new double[LANES];
+  private final long[] served = new long[LANES];
+  private double virtualTime = 0;
+
+  @PostConstruct
+  public void init() {
+    if (weights == null
+        || weights.length != LANES
+        || Arrays.stream(weights).anyMatch(weight -> weight <= 0)) {
+      logger.warn("队列通道权重配置无效: {}，使用默认值 8,3,1", Arrays.toString(weights));
+      weights = new int[] {8, 3, 1};
+    }
+    logger.info("队列优先级通道权重: {}", Arrays.toString(weights));
+  }
+
+  /**
+   * 按预估成本分配优先级通道
+   *
+   * @param estimatedCost 预估成本
+   * @return 优先级
+   */
+  public int priorityOf(long estimatedCost) {
+    if (estimatedCost <= interactiveMaxCost) {
+      return QueueItem.PRIORITY_INTERACTIVE;
+    }
+    if (estimatedCost <= normalMaxCost) {
+      return QueueItem.PRIORITY_NORMAL;
+    }
+    return QueueItem.PRIORITY_BULK;
+  }
+
+  /**
+   * 将指定的优先级限制在有效通道范围内
+   *
+   * @param priority 优先级
+   * @return 有效的优先级
+   */
+  public static int normalize(int priority) {
+    return Math.max(QueueItem.PRIORITY_INTERACTIVE, Math.min(QueueItem.PRIORITY_BULK, priority));
+  }
+
+  /**
+   * 将空闲槽位分配给各通道，只计划不推进虚拟时间，领取后需调用 {@link #recordClaimed}
+   *
+   * @param pendingByPriority 各通道的待处理任务数
+   * @param slots 空闲槽位数
+   * @return 各通道本次计划领取的任务数，按首次分配的顺序排列
+   */
+  public synchronized Map<Integer, Integer> allocate(
+      Map<Integer, Long> pendingByPriority, int slots) {
+    long[] remaining = new long[LANES];
+    for (Map.Entry<Integer, Long> entry : pendingByPriority.entrySet()) {
+      remaining[normalize(entry.getKey())] += entry.getValue();
+    }
+    // 空闲后重新有任务的通道从当前虚拟时间开始，不补偿空闲期间的份额
+    for (int lane = 0; lane < LANES; lane++) {
+      if (remaining[lane] > 0 && pass[lane] < virtualTime) {
+        pass[lane] = virtualTime;
+      }
+    }
+
+    double[] planned = pass.clone();
+    Map<Integer, Integer> plan = new LinkedHashMap<>();
+    for (int i = 0; i < slots; i++) {
+      int next = -1;
+      for (int lane = 0; lane < LANES; lane++) {
+        if (remaining[lane] > 0 && (next < 0 || planned[lane] < planned[next])) {
+          next = lane;
+        }
+      }
+      if (next < 0) {
+        break;
+      }
+      planned[next] += 1.0 / weights[next];
+      remaining[next]--;
+      plan.merge(next, 1, Integer::sum);
+    }
+    return plan;
+  }
+
+  /**
+   * 按各通道实际领取的任务数推进虚拟时间
+   *
+   * @param claimedByPriority 各通道实际领取的任务数
+   */
+  public synchronized void recordClaimed(Map<Integer, Integer> claimedByPriority) {
+    for (Map.Entry<Integer, Integer> entry : claimedByPriority.entrySet()) {
+      int lane = normalize(entry.getKey());
+      for (int i = 0; i < entry.getValue(); i++) {
+        virtualTime = Math.max(virtualTime, pass[lane]);
+        pass[lane] += 1.0 / weights[lane];
+        served[lane]++;
+      }
+    }
+  }
+
+  /**
+   * 获取通道调度统计
+   *
+   * @return 各通道的权重和已领取任务数
+   */
+  public synchronized Map<String, Object> getStats() {
+    Map<String, Object> stats = new HashMap<>();
+    for (int lane = 0; lane < LANES; lane++) {
+      stats.put(LANE_NAMES[lane], Map.of("weight", weights[lane], "served", served[lane]));
+    }
+    stats.put("interactiveMaxCost", interactiveMaxCost);
+    stats.put("normalMaxCost", normalMaxCost);
+    return stats;
+  }
+}
@@ -0,0 +1,153 @@
+package com.xxs3315.mbl.service;
+
+import com.xxs3315.mbl.repository.QueueItemRepository;
+import jakarta.annotation.PostConstruct;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 队列任务租约
+ *
+ * <p>节点领取任务时写入本节点ID和租约到期时间，任务交给执行线程后由本类登记，执行结束时注销。
+ * 心跳定期用一条 UPDATE 为本节点登记的全部任务续约；节点宕机后租约不再续约，到期后由队列处理器回收，
+ * 不会回收其他存活节点正在执行的任务。任务完成时只接受持有租约节点的结果。
+ */
+@Component
+public class QueueLeaseManager {
+
+  private static final Logger logger = LoggerFactory.getLogger(QueueLeaseManager.class);
+
+  @Value("${mbl.queue.lease.node-id:}")
+  private String configuredNodeId;
+
+  @Value("${mbl.queue.lease.duration:60s}")
+  private Duration leaseDuration;
+
+  @Value("${mbl.queue.lease.heartbeat-interval:15000}")
+  private long heartbeatInterval;
+
+  @Autowired private QueueItemRepository queueItemRepository;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  private final Set<String> heldTasks = ConcurrentHashMap.newKeySet();
+  private final AtomicLong renewals = new AtomicLong(0);
+  private final AtomicLong notRenewed = new AtomicLong(0);
+  private String nodeId;
+
+  @PostConstruct
+  public void init() {
+    if (configuredNodeId == null || configuredNodeId.isBlank()) {
+      nodeId = defaultNodeId();
+      logger.warn(
+          "未配置 mbl.queue.lease.node-id，使用默认节点ID: {}。"
+              + "多节点部署时请为每个节点配置唯一且重启后不变的节点ID",
+          nodeId);
+    } else {
+      nodeId = configuredNodeId.trim();
+    }
+    if (heartbeatInterval * 2 > leaseDuration.toMillis()) {
+      logger.warn(
+          "租约心跳间隔 {}ms 超过租约时长 {} 的一半，网络抖动时租约可能过期", heartbeatInterval, leaseDuration);
+    }
+    logger.info("队列节点ID: {}, 租约时长: {}", nodeId, leaseDuration);
+  }
+
+  /** 本节点ID，多节点部署时每个节点需唯一 */
+  public String getNodeId() {
+    return nodeId;
+  }
+
+  /** 从当前时间起算的租约到期时间 */
+  public LocalDateTime nextExpiry() {
+    return LocalDateTime.now().plus(leaseDuration);
+  }
+
+  /**
+   * 登记本节点正在执行的任务，心跳时为其续约
+   *
+   * @param taskId 任务ID
+   */
+  public void hold(String taskId) {
+    heldTasks.add(taskId);
+  }
+
+  /**
+   * 注销任务，不再续约
+   *
+   * @param taskId 任务ID
+   */
+  public void release(String taskId) {
+    heldTasks.remove(taskId);
+  }
+
+  /** 为本节点登记的任务续约，续约数少于登记数说明部分任务的租约已被回收 */
+  @Scheduled(fixedDelayString = "${mbl.queue.lease.heartbeat-interval:15000}")
+  public void renewLeases() {
+    if (heldTasks.isEmpty()) {
+      return;
+    }
+    List<String> taskIds = new ArrayList<>(heldTasks);
+    try {
+      Integer renewed =
+          transactionTemplate.execute(
+              status -> queueItemRepository.renewLeases(taskIds, nodeId, nextExpiry()));
+      renewals.incrementAndGet();
+      int lost = taskIds.size() - (renewed == null ? 0 : renewed);
+      if (lost > 0) {
+        // 刚结束或刚释放租约（等待分片）的任务也会计入，属正常情况
+        notRenewed.addAndGet(lost);
+        logger.debug("续约任务 {} 个，{} 个任务已不由本节点持有", taskIds.size(), lost);
+      }
+    } catch (Exception e) {
+      logger.error("任务租约续约失败: {} 个任务", taskIds.size(), e);
+    }
+  }
+
+  /**
+   * 获取租约状态
+   *
+   * @return 节点ID、租约时长和当前持有的任务数
+   */
+  public Map<String, Object> getStats() {
+    Map<String, Object> stats = new HashMap<>();
+    stats.put("nodeId", nodeId);
+    stats.put("leaseDurationSeconds", leaseDuration.toSeconds());
+    stats.put("heldTasks", heldTasks.size());
+    stats.put("renewals", renewals.get());
+    stats.put("notRenewed", notRenewed.get());
+    return stats;
+  }
+
+  /**
+   * 默认节点ID为主机名加进程号，只适合单节点部署
+   *
+   * <p>进程号在重启后通常会变化，容器重建后主机名也会变化，节点启动时无法按ID找回自己遗留的任务，
+   * 只能等租约过期后回收；多个容器主机名相同且进程号都为1时还会冲突。
+   */
+  private static String defaultNodeId() {
+    String host;
+    try {
+      host = InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException e) {
+      host = "node";
+    }
+    return host + "-" + ProcessHandle.current().pid();
+  }
+}
@@ -0,0 +1,243 @@
+package com.xxs3315.mbl.service;
+
+import com.xxs3315.mbl.entity.QueueItem;
+import com.xxs3315.mbl.pdf.properties.PdfMakerProperties;
+import com.xxs3315.mbl.repository.QueueItemRepository;
+import com.xxs3315.mbl.util.JsonUtil;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 队列任务保留策略
+ *
+ * <p>定期删除超过保留时间的已完成、失败和已取消任务：每批按ID查出最多 batch-size 个过期任务，
+ * 可选先归档为 gzip 压缩的 NDJSON，再用一条 DELETE 语句删除，并删除对应的PDF文件。
+ * 每批单独提交事务，不会长时间锁表，也不会一次加载全部任务。最后清理不再被引用的任务数据文件。
+ *
+ * <p>定时清理默认关闭，设置 mbl.queue.retention.enabled=true 后才会执行。
+ */
+@Service
+public class QueueRetentionService {
+
+  private static final Logger logger = LoggerFactory.getLogger(QueueRetentionService.class);
+
+  private static final DateTimeFormatter ARCHIVE_TIME_FORMAT =
+      DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+  // 数据文件修改后至少保留的时间，远长于入队事务的耗时，多个节点共享目录时避免清理刚入队任务复用的文件
+  private static final Duration PAYLOAD_GRACE = Duration.ofDays(1);
+
+  @Value("${mbl.queue.retention.enabled:false}")
+  private boolean enabled;
+
+  @Value("${mbl.queue.retention.completed-ttl:7d}")
+  private Duration completedTtl;
+
+  @Value("${mbl.queue.retention.failed-ttl:30d}")
+  private Duration failedTtl;
+
+  @Value("${mbl.queue.retention.cancelled-ttl:7d}")
+  private Duration cancelledTtl;
+
+  @Value("${mbl.queue.retention.batch-size:500}")
+  private int batchSize;
+
+  @Value("${mbl.queue.retention.delete-pdf-files:true}")
+  private boolean deletePdfFiles;
+
+  @Value("${mbl.queue.retention.archive-enabled:false}")
+  private boolean archiveEnabled;
+
+  @Value("${mbl.queue.retention.archive-dir:./data/archive}")
+  private String archiveDir;
+
+  @Autowired private QueueItemRepository queueItemRepository;
+
+  @Autowired private QueueStatsCounter statsCounter;
+
+  @Autowired private PayloadStore payloadStore;
+
+  @Autowired private PdfMakerProperties pdfMakerProperties;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  private final AtomicBoolean running = new AtomicBoolean(false);
+
+  @Scheduled(
+      initialDelayString = "${mbl.queue.retention.initial-delay:60000}",
+      fixedDelayString = "${mbl.queue.retention.interval:3600000}")
+  public void scheduledPurge() {
+    if (enabled) {
+      purge();
+    }
+  }
+
+  /**
+   * 执行一次清理
+   *
+   * @return 各状态删除的任务数和清理的数据文件数，已有清理在执行时返回空
+   */
+  public Map<String, Object> purge() {
+    if (!running.compareAndSet(false, true)) {
+      logger.info("队列清理正在执行，跳过本次");
+      return Map.of();
+    }
+    long start = System.currentTimeMillis();
+    try {
+      Map<String, Object> result = new LinkedHashMap<>();
+      result.put("completed", purgeStatus(QueueItem.TaskStatus.COMPLETED, completedTtl));
+      result.put("failed", purgeStatus(QueueItem.TaskStatus.FAILED, failedTtl));
+      result.put("cancelled", purgeStatus(QueueItem.TaskStatus.CANCELLED, cancelledTtl));
+      result.put(
+          "payloadFiles",
+          payloadStore.sweep(
+              Instant.now().minus(PAYLOAD_GRACE), queueItemRepository::findReferencedPayloads));
+      logger.info("队列清理完成: {}, 耗时: {}ms", result, System.currentTimeMillis() - start);
+      return result;
+    } finally {
+      running.set(false);
+    }
+  }
+
+  /** 分批删除指定状态的过期任务，保留时间为0或负数时不清理 */
+  private long purgeStatus(QueueItem.TaskStatus status, Duration ttl) {
+    if (ttl == null || ttl.isZero() || ttl.isNegative()) {
+      return 0;
+    }
+    LocalDateTime cutoff = LocalDateTime.now().minus(ttl);
+    int size = Math.max(1, batchSize);
+    long total = 0;
+    try (Archive archive = new Archive(status)) {
+      while (true) {
+        List<Long> ids =
+            queueItemRepository.findExpiredIds(status, cutoff, PageRequest.of(0, size));
+        if (ids.isEmpty()) {
+          break;
+        }
+        if (archiveEnabled) {
+          // 先归档并刷新到磁盘再删除，删除失败时下次重新归档
+          archive.write(queueItemRepository.findAllById(ids));
+        }
+        List<String> taskIds = queueItemRepository.findTaskIdsByIds(ids);
+        Integer deleted =
+            transactionTemplate.execute(
+                tx -> {
+                  int count = queueItemRepository.deleteByIds(ids);
+                  statsCounter.recordTransition(status, null, count);
+                  return count;
+                });
+        if (deletePdfFiles) {
+          deletePdfFiles(taskIds);
+        }
+        total += deleted == null ? 0 : deleted;
+        if (ids.size() < size) {
+          break;
+        }
+      }
+    } catch (IOException e) {
+      logger.error("归档队列任务失败，停止清理: {}", status, e);
+    }
+    if (total > 0) {
+      logger.info("已清理过期任务: {}, 数量: {}, 截止时间: {}", status, total, cutoff);
+    }
+    return total;
+  }
+
+  private void deletePdfFiles(List<String> taskIds) {
+    for (String taskId : taskIds) {
+      File file = new File(pdfMakerProperties.getOutputDir() + taskId + ".pdf");
+      try {
+        Files.deleteIfExists(file.toPath());
+      } catch (IOException e) {
+        logger.warn("删除PDF文件失败: {}", file, e);
+      }
+    }
+  }
+
+  /** 归档文件，第一次写入时才创建，每次清理每个状态一个文件 */
+  private class Archive implements Closeable {
+
+    private final QueueItem.TaskStatus status;
+    private BufferedWriter writer;
+
+    Archive(QueueItem.TaskStatus status) {
+      this.status = status;
+    }
+
+    void write(List<QueueItem> items) throws IOException {
+      if (writer == null) {
+        Path dir = Path.of(archiveDir);
+        Files.createDirectories(dir);
+        Path file =
+            dir.resolve(
+                "queue_items-"
+                    + status.name().toLowerCase()
+                    + "-"
+                    + LocalDateTime.now().format(ARCHIVE_TIME_FORMAT)
+                    + ".ndjson.gz");
+        writer =
+            new BufferedWriter(
+                new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(file), true),
+                    StandardCharsets.UTF_8));
+        logger.info("归档队列任务到: {}", file);
+      }
+      for (QueueItem item : items) {
+        writer.write(JsonUtil.write(toRecord(item)));
+        writer.newLine();
+      }
+      writer.flush();
+    }
+
+    private Map<String, Object> toRecord(QueueItem item) {
+      Map<String, Object> record = new LinkedHashMap<>();
+      record.put("id", item.getId());
+      record.put("taskId", item.getTaskId());
+      record.put("taskType", item.getTaskType());
+      record.put("status", item.getStatus().name());
+      record.put("priority", item.getPriority());
+      record.put("estimatedCost", item.getEstimatedCost());
+      record.put("createTime", String.valueOf(item.getCreateTime()));
+      record.put("startTime", String.valueOf(item.getStartTime()));
+      record.put("endTime", String.valueOf(item.getEndTime()));
+      record.put("errorMessage", item.getErrorMessage());
+      try {
+        record.put("data", payloadStore.loadData(item));
+        record.put("result", payloadStore.loadResult(item));
+      } catch (RuntimeException e) {
+        logger.warn("归档时读取任务数据失败: {}", item.getTaskId(), e);
+      }
+      return record;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (writer != null) {
+        writer.close();
+      }
+    }
+  }
+}
@@ -1,6 +1,8 @@
 package com.xxs3315.mbl.service;
 
 import com.xxs3315.mbl.entity.QueueItem;
+import com.xxs3315.mbl.repository.QueueItemSummary;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -17,6 +19,22 @@ public interface QueueService {
    */
   QueueItem addToQueue(String taskType, String data);
 
+  /**
+   * 添加已构造的任务项到队列，可指定任务ID、优先级和预估成本
+   *
+   * @param item 任务项，任务ID需唯一
+   * @return 创建的任务项
+   */
+  QueueItem addToQueue(QueueItem item);
+
+  /**
+   * 在一个事务中批量添加任务项到队列，插入语句按JDBC批量执行
+   *
+   * @param items 任务项，任务ID需唯一；任一任务插入失败时全部回滚
+   * @return 创建的任务项，顺序与参数一致
+   */
+  List<QueueItem> addAllToQueue(List<QueueItem> items);
+
   /**
    * 获取下一个待处理任务
    *
@@ -24,6 +42,14 @@ public interface QueueService {
    */
   Optional<QueueItem> getNextTask();
 
+  /**
+   * 批量领取待处理任务，领取到的任务已置为处理中状态
+   *
+   * @param maxTasks 最多领取的任务数
+   * @return 按创建时间排序的任务列表，没有则返回空列表
+   */
+  List<QueueItem> claimTasks(int maxTasks);
+
   /**
    * 完成任务
    *
@@ -58,25 +84,30 @@ public interface QueueService {
   Map<String, Object> getQueueStats();
 
   /**
-   * 获取待处理任务列表
+   * 获取待处理任务列表（摘要，不含任务数据）
    *
    * @return 待处理任务列表
    */
-  List<QueueItem> getPendingTasks();
+  List<QueueItemSummary> getPendingTasks();
 
   /**
-   * 获取处理中任务列表
+   * 获取处理中任务列表（摘要，不含任务数据）
    *
    * @return 处理中任务列表
    */
-  List<QueueItem> getProcessingTasks();
+  List<QueueItemSummary> getProcessingTasks();
 
   /**
-   * 获取已完成任务列表
+   * 按状态分页获取任务摘要，按创建时间和ID排序（键集分页）
    *
-   * @return 已完成任务列表
+   * @param status 任务状态
+   * @param afterCreateTime 上一页最后一个任务的创建时间，第一页为null
+   * @param afterId 上一页最后一个任务的ID，第一页为null
+   * @param size 每页数量
+   * @return 任务摘要列表
    */
-  List<QueueItem> getCompletedTasks();
+  List<QueueItemSummary> listTasks(
+      QueueItem.TaskStatus status, LocalDateTime afterCreateTime, Long afterId, int size);
 
   /** 清空队列 */
   void clearQueue();
@@ -97,6 +128,14 @@ public interface QueueService {
    */
   boolean resetProcessingTaskToPending(String taskId);
 
+  /**
+   * 回收处理中任务的租约，将任务重置为待处理
+   *
+   * @param leaseOwner 为null时回收所有租约已过期的任务；否则回收该节点持有的全部任务（节点启动时）
+   * @return 回收的任务数
+   */
+  int reclaimLeases(String leaseOwner);
+
   /**
    * 获取数据库路径信息
    *
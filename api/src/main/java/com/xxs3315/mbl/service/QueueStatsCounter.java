@@ -0,0 +1,143 @@
+package com.xxs3315.mbl.service;
+
+import com.xxs3315.mbl.entity.QueueItem;
+import com.xxs3315.mbl.repository.QueueItemRepository;
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 队列状态计数器
+ *
+ * <p>在内存中维护各状态的任务数，由队列服务在每次状态变更提交后更新，查询统计时无需访问数据库。
+ * 启动时和定期从数据库重新同步，以纠正其他节点的变更或异常导致的偏差。
+ */
+@Component
+public class QueueStatsCounter {
+
+  private static final Logger logger = LoggerFactory.getLogger(QueueStatsCounter.class);
+
+  private final Map<QueueItem.TaskStatus, AtomicLong> counters =
+      new EnumMap<>(QueueItem.TaskStatus.class);
+  private volatile LocalDateTime lastReconcileTime;
+
+  @Autowired private QueueItemRepository queueItemRepository;
+
+  public QueueStatsCounter() {
+    for (QueueItem.TaskStatus status : QueueItem.TaskStatus.values()) {
+      counters.put(status, new AtomicLong(0));
+    }
+  }
+
+  @PostConstruct
+  public void init() {
+    reconcile();
+  }
+
+  /**
+   * 记录状态变更，事务提交后生效
+   *
+   * @param from 原状态，新建任务为null
+   * @param to 新状态
+   * @param count 变更的任务数
+   */
+  public void recordTransition(QueueItem.TaskStatus from, QueueItem.TaskStatus to, long count) {
+    if (count <= 0) {
+      return;
+    }
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              applyTransition(from, to, count);
+            }
+          });
+    } else {
+      applyTransition(from, to, count);
+    }
+  }
+
+  /** 记录单个任务的状态变更 */
+  public void recordTransition(QueueItem.TaskStatus from, QueueItem.TaskStatus to) {
+    recordTransition(from, to, 1);
+  }
+
+  private void applyTransition(QueueItem.TaskStatus from, QueueItem.TaskStatus to, long count) {
+    if (from != null) {
+      counters.get(from).addAndGet(-count);
+    }
+    if (to != null) {
+      counters.get(to).addAndGet(count);
+    }
+  }
+
+  /** 清零所有计数，事务提交后生效 */
+  public void recordClear() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              counters.values().forEach(counter -> counter.set(0));
+            }
+          });
+    } else {
+      counters.values().forEach(counter -> counter.set(0));
+    }
+  }
+
+  /** 从数据库重新同步各状态计数 */
+  @Scheduled(fixedDelayString = "${mbl.queue.stats-reconcile-interval:60000}")
+  public void reconcile() {
+    try {
+      Map<QueueItem.TaskStatus, Long> dbCounts = new EnumMap<>(QueueItem.TaskStatus.class);
+      List<Object[]> rows = queueItemRepository.countGroupByStatus();
+      for (Object[] row : rows) {
+        dbCounts.put((QueueItem.TaskStatus) row[0], (Long) row[1]);
+      }
+      for (QueueItem.TaskStatus status : QueueItem.TaskStatus.values()) {
+        long dbCount = dbCounts.getOrDefault(status, 0L);
+        long previous = counters.get(status).getAndSet(dbCount);
+        if (previous != dbCount) {
+          logger.debug("队列计数已校正: {} {} -> {}", status, previous, dbCount);
+        }
+      }
+      lastReconcileTime = LocalDateTime.now();
+    } catch (Exception e) {
+      logger.warn("同步队列计数失败: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * 获取当前计数快照
+   *
+   * @return 统计信息
+   */
+  public Map<String, Object> snapshot() {
+    Map<String, Object> stats = new HashMap<>();
+    long total = 0;
+    for (QueueItem.TaskStatus status : QueueItem.TaskStatus.values()) {
+      long count = Math.max(0, counters.get(status).get());
+      stats.put(status.name().toLowerCase(), count);
+      total += count;
+    }
+    stats.put("total", total);
+    stats.put("timestamp", LocalDateTime.now().toString());
+    if (lastReconcileTime != null) {
+      stats.put("lastReconcileTime", lastReconcileTime.toString());
+    }
+    return stats;
+  }
+}
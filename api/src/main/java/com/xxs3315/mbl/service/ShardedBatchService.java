@@ -0,0 +1,359 @@
+package com.xxs3315.mbl.service;
+
+import com.xxs3315.mbl.entity.QueueItem;
+import com.xxs3315.mbl.pdf.config.ShardConfig;
+import com.xxs3315.mbl.pdf.properties.PdfMakerProperties;
+import com.xxs3315.mbl.pdf.services.JobCostEstimator;
+import com.xxs3315.mbl.pdf.services.PdfMakerService;
+import com.xxs3315.mbl.repository.QueueItemRepository;
+import com.xxs3315.mbl.util.JsonUtil;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 批量任务分片服务
+ *
+ * <p>页面数超过 pdf.shard.page-threshold 的批量任务按 pages-per-shard 拆分为分片任务放回共享队列，
+ * 由任意线程或节点领取生成，分片文件写入输出目录下的 shards/{父任务ID}/（多节点部署时需共享该目录）。
+ * 最后一个完成的分片在父任务行锁内判断是否进入下一步，保证只推进一次：
+ *
+ * <ul>
+ *   <li>第1轮：各分片按自身页码生成并记录页数；
+ *   <li>第2轮：模板包含页码时，按前面分片的页数设置页码偏移和总页数重新生成各分片；
+ *   <li>合并：按顺序用 PDFBox 合并为父任务的PDF文件并完成父任务。
+ * </ul>
+ *
+ * <p>分片任务ID由父任务ID、轮次和序号组成，父任务重启后重新执行时不会重复拆分，只继续推进。
+ * 父任务等待分片期间不持有租约，不会被回收；合并期间由合并节点持有租约，节点宕机后父任务重新执行并继续推进。
+ */
+@Service
+public class ShardedBatchService {
+
+  private static final Logger logger = LoggerFactory.getLogger(ShardedBatchService.class);
+
+  /** 分片任务类型 */
+  public static final String SHARD_TYPE = "shard";
+
+  // 父任务进入合并阶段的标记，防止重复合并
+  private static final String MERGE_MARKER = "分片合并中";
+
+  @Autowired private ShardConfig shardConfig;
+
+  @Autowired private QueueService queueService;
+
+  @Autowired private QueueItemRepository queueItemRepository;
+
+  @Autowired private PdfMakerService pdfMakerService;
+
+  @Autowired private PdfMakerProperties pdfMakerProperties;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @Autowired private JobCostEstimator jobCostEstimator;
+
+  @Autowired private PayloadStore payloadStore;
+
+  @Autowired private QueueLeaseManager leaseManager;
+
+  /**
+   * 批量任务是否需要拆分
+   *
+   * @param pageList 页面列表
+   * @return 是否拆分
+   */
+  public boolean shouldShard(List pageList) {
+    return shardConfig.isEnabled()
+        && pageList != null
+        && pageList.size() > Math.max(1, shardConfig.getPageThreshold());
+  }
+
+  /**
+   * 拆分批量任务，父任务保持处理中状态，由分片全部完成后合并时完成
+   *
+   * @param parentTaskId 父任务ID
+   * @param pageList 页面列表
+   * @param configMap 全局配置
+   * @param parallelism 分片内并行构建页面集的并行度
+   */
+  public void split(String parentTaskId, List pageList, Map configMap, int parallelism) {
+    Boolean resumed =
+        transactionTemplate.execute(
+            status -> {
+              // 父任务转为等待分片，不再续约；租约已不属于本节点时由持有者处理，不拆分
+              if (queueItemRepository.releaseLease(parentTaskId, leaseManager.getNodeId()) == 0) {
+                logger.warn("批量任务租约已不属于本节点，放弃拆分: {}", parentTaskId);
+                return false;
+              }
+              if (!findShards(parentTaskId, 1).isEmpty()) {
+                return true;
+              }
+              int shardSize = Math.max(1, shardConfig.getPagesPerShard());
+              int shardCount = (pageList.size() + shardSize - 1) / shardSize;
+              boolean pageNumbers = containsPageNumber(pageList);
+              List<QueueItem> shards = new ArrayList<>(shardCount);
+              for (int i = 0; i < shardCount; i++) {
+                int end = Math.min(pageList.size(), (i + 1) * shardSize);
+                Map<String, Object> data = new LinkedHashMap<>();
+                data.put("pages", pageList.subList(i * shardSize, end));
+                data.put("config", configMap);
+
+                Map<String, Object> envelope = new LinkedHashMap<>();
+                envelope.put("type", SHARD_TYPE);
+                envelope.put("parentTaskId", parentTaskId);
+                envelope.put("phase", 1);
+                envelope.put("shardIndex", i);
+                envelope.put("shardCount", shardCount);
+                envelope.put("pageNumbers", pageNumbers);
+                envelope.put("parallelism", parallelism);
+                envelope.put("data", data);
+                shards.add(newShard(shardTaskId(parentTaskId, 1, i), envelope));
+              }
+              queueService.addAllToQueue(shards);
+              logger.info(
+                  "批量任务已拆分: {}, 页面数: {}, 分片数: {}, 包含页码: {}",
+                  parentTaskId,
+                  pageList.size(),
+                  shardCount,
+                  pageNumbers);
+              return false;
+            });
+
+    if (Boolean.TRUE.equals(resumed)) {
+      logger.info("批量任务已拆分过，继续推进: {}", parentTaskId);
+      advance(parentTaskId);
+    }
+  }
+
+  /**
+   * 生成一个分片
+   *
+   * @param taskId 分片任务ID
+   * @param envelope 分片任务数据
+   * @return 分片结果（JSON，包含页数和拆分时记录的页码标记）
+   */
+  public String renderShard(String taskId, Map envelope) throws Exception {
+    String parentTaskId = (String) envelope.get("parentTaskId");
+    int phase = intValue(envelope.get("phase"));
+    int shardIndex = intValue(envelope.get("shardIndex"));
+    Map data = (Map) envelope.get("data");
+
+    File output = shardFile(parentTaskId, phase, shardIndex);
+    Files.createDirectories(output.getParentFile().toPath());
+    int pages =
+        pdfMakerService.createShard(
+            taskId,
+            output,
+            (List) data.get("pages"),
+            (Map) data.get("config"),
+            intValue(envelope.get("parallelism")),
+            intValue(envelope.get("pageOffset")),
+            intValue(envelope.get("totalPages")));
+
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("pages", pages);
+    result.put("file", output.getName());
+    result.put("pageNumbers", Boolean.TRUE.equals(envelope.get("pageNumbers")));
+    return JsonUtil.write(result);
+  }
+
+  /**
+   * 分片完成或失败后推进父任务：进入下一轮、合并，或在分片失败时使父任务失败
+   *
+   * @param parentTaskId 父任务ID
+   */
+  public void advance(String parentTaskId) {
+    List<File> shardFiles = transactionTemplate.execute(status -> prepareMerge(parentTaskId));
+    if (shardFiles == null) {
+      return;
+    }
+
+    File output = new File(pdfMakerProperties.getOutputDir() + parentTaskId + ".pdf");
+    leaseManager.hold(parentTaskId);
+    try {
+      pdfMakerService.mergeShards(shardFiles, output);
+      queueService.completeTask(
+          parentTaskId, "PDF文件生成成功: " + output.getName() + ", 分片数: " + shardFiles.size());
+      deleteShardDirectory(parentTaskId);
+    } catch (Exception e) {
+      logger.error("合并分片失败: {}", parentTaskId, e);
+      queueService.failTask(parentTaskId, "合并分片失败: " + e.getMessage());
+    } finally {
+      leaseManager.release(parentTaskId);
+    }
+  }
+
+  /**
+   * 定期推进等待分片的父任务
+   *
+   * <p>通常由最后完成的分片推进；分片完成后、推进前节点宕机时，父任务由此继续推进。
+   */
+  @Scheduled(
+      initialDelayString = "${mbl.queue.lease.reap-interval:15000}",
+      fixedDelayString = "${mbl.queue.lease.reap-interval:15000}")
+  public void advanceWaitingParents() {
+    try {
+      for (String parentTaskId : queueItemRepository.findWaitingParentTaskIds()) {
+        advance(parentTaskId);
+      }
+    } catch (Exception e) {
+      logger.error("推进等待分片的父任务时发生错误", e);
+    }
+  }
+
+  /** 在父任务行锁内判断各轮分片状态，可以合并时标记父任务并返回待合并的分片文件 */
+  private List<File> prepareMerge(String parentTaskId) {
+    QueueItem parent = queueItemRepository.findByTaskIdForUpdate(parentTaskId).orElse(null);
+    if (parent == null
+        || parent.getStatus() != QueueItem.TaskStatus.PROCESSING
+        || MERGE_MARKER.equals(parent.getResult())) {
+      return null;
+    }
+
+    List<QueueItem> firstPhase = findShards(parentTaskId, 1);
+    if (firstPhase.isEmpty() || !allCompleted(parentTaskId, firstPhase)) {
+      return null;
+    }
+
+    int phase = 1;
+    // 页码标记在拆分时写入分片任务，分片完成时随结果返回，无需重新解析分片数据
+    Map firstResult = JsonUtil.parseMap(payloadStore.loadResult(firstPhase.get(0)));
+    if (Boolean.TRUE.equals(firstResult.get("pageNumbers"))) {
+      List<QueueItem> secondPhase = findShards(parentTaskId, 2);
+      if (secondPhase.isEmpty()) {
+        enqueueRenumbering(parentTaskId, firstPhase);
+        return null;
+      }
+      if (!allCompleted(parentTaskId, secondPhase)) {
+        return null;
+      }
+      phase = 2;
+    }
+
+    // 合并期间持有租约，合并节点宕机时父任务被回收后重新执行
+    parent.setResult(MERGE_MARKER);
+    parent.setLeaseOwner(leaseManager.getNodeId());
+    parent.setLeaseExpiresAt(leaseManager.nextExpiry());
+    queueItemRepository.save(parent);
+
+    List<File> shardFiles = new ArrayList<>(firstPhase.size());
+    for (int i = 0; i < firstPhase.size(); i++) {
+      shardFiles.add(shardFile(parentTaskId, phase, i));
+    }
+    return shardFiles;
+  }
+
+  /** 按第1轮各分片页数计算页码偏移和总页数，发起第2轮分片任务 */
+  private void enqueueRenumbering(String parentTaskId, List<QueueItem> firstPhase) {
+    int[] pageCounts = new int[firstPhase.size()];
+    int totalPages = 0;
+    for (int i = 0; i < firstPhase.size(); i++) {
+      Map result = JsonUtil.parseMap(payloadStore.loadResult(firstPhase.get(i)));
+      pageCounts[i] = intValue(result.get("pages"));
+      totalPages += pageCounts[i];
+    }
+
+    int pageOffset = 0;
+    List<QueueItem> shards = new ArrayList<>(firstPhase.size());
+    for (int i = 0; i < firstPhase.size(); i++) {
+      Map envelope = JsonUtil.parseMap(payloadStore.loadData(firstPhase.get(i)));
+      envelope.put("phase", 2);
+      envelope.put("pageOffset", pageOffset);
+      envelope.put("totalPages", totalPages);
+      shards.add(newShard(shardTaskId(parentTaskId, 2, i), envelope));
+      pageOffset += pageCounts[i];
+    }
+    queueService.addAllToQueue(shards);
+    logger.info("分片页数统计完成，重新生成带页码的分片: {}, 总页数: {}", parentTaskId, totalPages);
+  }
+
+  /** 分片属于大批量任务，进入批量通道 */
+  private QueueItem newShard(String taskId, Map envelope) {
+    QueueItem item = new QueueItem(SHARD_TYPE, JsonUtil.write(envelope));
+    item.setTaskId(taskId);
+    item.setPriority(QueueItem.PRIORITY_BULK);
+    Map data = (Map) envelope.get("data");
+    item.setEstimatedCost(jobCostEstimator.estimatePages((List) data.get("pages")));
+    return item;
+  }
+
+  /** 所有分片是否都已完成，有分片失败或取消时父任务失败 */
+  private boolean allCompleted(String parentTaskId, List<QueueItem> shards) {
+    for (QueueItem shard : shards) {
+      if (shard.getStatus() == QueueItem.TaskStatus.FAILED
+          || shard.getStatus() == QueueItem.TaskStatus.CANCELLED) {
+        queueService.failTask(
+            parentTaskId, "分片失败: " + shard.getTaskId() + " - " + shard.getErrorMessage());
+        return false;
+      }
+    }
+    return shards.stream().allMatch(shard -> shard.getStatus() == QueueItem.TaskStatus.COMPLETED);
+  }
+
+  private List<QueueItem> findShards(String parentTaskId, int phase) {
+    return queueItemRepository.findByTaskIdStartingWithOrderByTaskIdAsc(
+        parentTaskId + "-s" + phase + "-");
+  }
+
+  private String shardTaskId(String parentTaskId, int phase, int index) {
+    return String.format("%s-s%d-%05d", parentTaskId, phase, index);
+  }
+
+  private File shardFile(String parentTaskId, int phase, int index) {
+    return shardDirectory(parentTaskId)
+        .resolve(String.format("p%d-%05d.pdf", phase, index))
+        .toFile();
+  }
+
+  private Path shardDirectory(String parentTaskId) {
+    return Path.of(pdfMakerProperties.getOutputDir(), "shards", parentTaskId);
+  }
+
+  private void deleteShardDirectory(String parentTaskId) {
+    Path directory = shardDirectory(parentTaskId);
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    } catch (IOException e) {
+      logger.warn("删除分片文件失败: {}", directory, e);
+    }
+  }
+
+  /** 页面中是否包含页码元素 */
+  private boolean containsPageNumber(Object node) {
+    if (node instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) node;
+      if ("page-number".equals(map.get("cat"))) {
+        return true;
+      }
+      for (Object child : map.values()) {
+        if (containsPageNumber(child)) {
+          return true;
+        }
+      }
+    } else if (node instanceof List) {
+      for (Object child : (List<?>) node) {
+        if (containsPageNumber(child)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private int intValue(Object value) {
+    return value instanceof Number ? ((Number) value).intValue() : 0;
+  }
+}
@@ -0,0 +1,200 @@
+package com.xxs3315.mbl.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON工具类
+ *
+ * <p>使用 Jackson 流式解析器一次性将宽松格式的JSON（注释、单引号、无引号字段名、尾逗号等）解析为
+ * Map/List 结构。数字统一解析为 Double，与此前 Gson 解析为 Map 时的类型一致，构建器中的 (Double) 转换无需修改。
+ */
+public class JsonUtil {
+
+  private static final JsonFactory FACTORY =
+      JsonFactory.builder()
+          .enable(JsonReadFeature.ALLOW_JAVA_COMMENTS)
+          .enable(JsonReadFeature.ALLOW_YAML_COMMENTS)
+          .enable(JsonReadFeature.ALLOW_SINGLE_QUOTES)
+          .enable(JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES)
+          .enable(JsonReadFeature.ALLOW_TRAILING_COMMA)
+          .enable(JsonReadFeature.ALLOW_UNESCAPED_CONTROL_CHARS)
+          .enable(JsonReadFeature.ALLOW_NON_NUMERIC_NUMBERS)
+          .enable(JsonReadFeature.ALLOW_LEADING_DECIMAL_POINT_FOR_NUMBERS)
+          .build();
+
+  private static final ObjectMapper MAPPER = new ObjectMapper(FACTORY);
+
+  private JsonUtil() {}
+
+  /**
+   * 解析JSON
+   *
+   * @param json JSON字符串，允许宽松格式
+   * @return Map、List、String、Double、Boolean，空字符串或null时返回null
+   * @throws IllegalArgumentException JSON格式错误
+   */
+  public static Object parse(String json) {
+    if (json == null || json.isBlank()) {
+      return null;
+    }
+    try (JsonParser parser = FACTORY.createParser(json)) {
+      return readValue(parser, parser.nextToken());
+    } catch (IOException e) {
+      throw new IllegalArgumentException("JSON解析失败: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * 解析JSON对象
+   *
+   * @param json JSON字符串
+   * @return Map，空字符串或null时返回空Map
+   * @throws IllegalArgumentException JSON格式错误或不是对象
+   */
+  public static Map parseMap(String json) {
+    Object value = parse(json);
+    if (value == null) {
+      return new LinkedHashMap<>();
+    }
+    if (!(value instanceof Map)) {
+      throw new IllegalArgumentException("JSON不是对象");
+    }
+    return (Map) value;
+  }
+
+  /**
+   * 解析JSON数组
+   *
+   * @param json JSON字符串
+   * @return List，空字符串或null时返回空List
+   * @throws IllegalArgumentException JSON格式错误或不是数组
+   */
+  public static List<Map> parseList(String json) {
+    Object value = parse(json);
+    if (value == null) {
+      return new ArrayList<>();
+    }
+    if (!(value instanceof List)) {
+      throw new IllegalArgumentException("JSON不是数组");
+    }
+    return (List<Map>) value;
+  }
+
+  /**
+   * 序列化为标准JSON
+   *
+   * @param value Map、List或基本类型
+   * @return JSON字符串
+   */
+  public static String write(Object value) {
+    try {
+      return MAPPER.writeValueAsString(value);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("JSON序列化失败: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * 流式读取JSON数组
+   *
+   * @param reader JSON数组字符流，读取器关闭时一并关闭
+   * @return 数组读取器，每次读取一个元素
+   * @throws IOException 读取失败或内容不是数组
+   */
+  public static ArrayReader openArray(Reader reader) throws IOException {
+    return new ArrayReader(FACTORY.createParser(reader));
+  }
+
+  /** JSON数组读取器，逐个解析数组中的对象，已读取的元素不被保留 */
+  public static class ArrayReader implements Closeable {
+    private final JsonParser parser;
+    private boolean finished;
+
+    private ArrayReader(JsonParser parser) throws IOException {
+      this.parser = parser;
+      JsonToken token = parser.nextToken();
+      if (token == null) {
+        // 空内容视为空数组
+        finished = true;
+      } else if (token != JsonToken.START_ARRAY) {
+        parser.close();
+        throw new JsonParseException(parser, "JSON不是数组");
+      }
+    }
+
+    /**
+     * 读取下一个元素
+     *
+     * @return 下一个对象，数组结束时返回null
+     * @throws IOException 读取失败或元素不是对象
+     */
+    public Map next() throws IOException {
+      if (finished) {
+        return null;
+      }
+      JsonToken token = parser.nextToken();
+      if (token == null || token == JsonToken.END_ARRAY) {
+        finished = true;
+        return null;
+      }
+      Object value = readValue(parser, token);
+      if (!(value instanceof Map)) {
+        throw new JsonParseException(parser, "数组元素不是对象");
+      }
+      return (Map) value;
+    }
+
+    @Override
+    public void close() throws IOException {
+      parser.close();
+    }
+  }
+
+  private static Object readValue(JsonParser parser, JsonToken token) throws IOException {
+    if (token == null) {
+      return null;
+    }
+    switch (token) {
+      case START_OBJECT:
+        Map<String, Object> map = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String name = parser.currentName();
+          map.put(name, readValue(parser, parser.nextToken()));
+        }
+        return map;
+      case START_ARRAY:
+        List<Object> list = new ArrayList<>();
+        JsonToken next;
+        while ((next = parser.nextToken()) != JsonToken.END_ARRAY && next != null) {
+          list.add(readValue(parser, next));
+        }
+        return list;
+      case VALUE_STRING:
+        return parser.getText();
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        return parser.getDoubleValue();
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      case VALUE_NULL:
+        return null;
+      default:
+        throw new JsonParseException(parser, "不支持的JSON内容: " + token);
+    }
+  }
+}
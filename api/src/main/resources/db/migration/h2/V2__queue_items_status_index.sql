@@ -0,0 +1,2 @@
+-- 轮询 WHERE status = 'PENDING' ORDER BY create_time 以及 countByStatus 统计使用的复合索引
+CREATE INDEX IF NOT EXISTS idx_queue_items_status_create_time ON queue_items (status, create_time);
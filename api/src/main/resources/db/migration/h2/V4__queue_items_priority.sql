@@ -0,0 +1,6 @@
+-- 优先级通道和预估成本：领取任务时按通道加权公平选择，同一通道内按创建时间先进先出
+ALTER TABLE queue_items ADD COLUMN IF NOT EXISTS priority INT DEFAULT 1 NOT NULL;
+ALTER TABLE queue_items ADD COLUMN IF NOT EXISTS estimated_cost BIGINT DEFAULT 0 NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_queue_items_status_priority_create_time
+    ON queue_items (status, priority, create_time);
@@ -0,0 +1,5 @@
+-- 任务数据外置：超过内联上限的数据和结果写入文件存储，表中只保存引用（SHA-256）和大小
+ALTER TABLE queue_items ALTER COLUMN data DROP NOT NULL;
+ALTER TABLE queue_items ADD COLUMN IF NOT EXISTS data_ref VARCHAR(64);
+ALTER TABLE queue_items ADD COLUMN IF NOT EXISTS data_size BIGINT;
+ALTER TABLE queue_items ADD COLUMN IF NOT EXISTS result_ref VARCHAR(64);
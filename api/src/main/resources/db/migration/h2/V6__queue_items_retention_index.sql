@@ -0,0 +1,4 @@
+-- 保留策略按状态和结束时间分批清理过期任务，清理数据文件时按引用查询是否仍被使用
+CREATE INDEX IF NOT EXISTS idx_queue_items_status_end_time ON queue_items (status, end_time);
+CREATE INDEX IF NOT EXISTS idx_queue_items_data_ref ON queue_items (data_ref);
+CREATE INDEX IF NOT EXISTS idx_queue_items_result_ref ON queue_items (result_ref);
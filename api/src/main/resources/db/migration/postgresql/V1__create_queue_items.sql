@@ -0,0 +1,15 @@
+-- 队列任务表（已由 ddl-auto=update 创建过的数据库会在 baseline 时跳过本脚本）
+CREATE TABLE IF NOT EXISTS queue_items (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    task_id       VARCHAR(255)  NOT NULL,
+    task_type     VARCHAR(255)  NOT NULL,
+    data          TEXT          NOT NULL,
+    status        VARCHAR(255)  NOT NULL,
+    create_time   TIMESTAMP(6)  NOT NULL,
+    start_time    TIMESTAMP(6),
+    end_time      TIMESTAMP(6),
+    result        TEXT,
+    error_message VARCHAR(1000),
+    version       BIGINT,
+    CONSTRAINT uk_queue_items_task_id UNIQUE (task_id)
+);
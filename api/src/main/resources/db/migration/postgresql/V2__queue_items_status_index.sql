@@ -0,0 +1,6 @@
+-- 轮询 WHERE status = 'PENDING' ORDER BY create_time 以及 countByStatus 统计使用的复合索引
+CREATE INDEX IF NOT EXISTS idx_queue_items_status_create_time ON queue_items (status, create_time);
+
+-- 只包含待处理任务的部分索引：已完成历史再多，领取任务时扫描的索引大小也只与积压量有关
+CREATE INDEX IF NOT EXISTS idx_queue_items_pending_create_time ON queue_items (create_time)
+    WHERE status = 'PENDING';
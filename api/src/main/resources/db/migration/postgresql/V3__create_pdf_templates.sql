@@ -0,0 +1,8 @@
+-- 模板注册表：版式JSON只上传一次，以内容的SHA-256作为模板ID
+CREATE TABLE IF NOT EXISTS pdf_templates (
+    template_id   VARCHAR(64)   NOT NULL PRIMARY KEY,
+    name          VARCHAR(255),
+    content       TEXT          NOT NULL,
+    content_size  BIGINT        NOT NULL,
+    create_time   TIMESTAMP(6)  NOT NULL
+);
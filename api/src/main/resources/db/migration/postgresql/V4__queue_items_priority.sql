@@ -0,0 +1,11 @@
+-- 优先级通道和预估成本：领取任务时按通道加权公平选择，同一通道内按创建时间先进先出
+ALTER TABLE queue_items ADD COLUMN IF NOT EXISTS priority INT NOT NULL DEFAULT 1;
+ALTER TABLE queue_items ADD COLUMN IF NOT EXISTS estimated_cost BIGINT NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS idx_queue_items_status_priority_create_time
+    ON queue_items (status, priority, create_time);
+
+-- 只包含待处理任务的部分索引，按通道领取时使用
+CREATE INDEX IF NOT EXISTS idx_queue_items_pending_priority_create_time
+    ON queue_items (priority, create_time)
+    WHERE status = 'PENDING';
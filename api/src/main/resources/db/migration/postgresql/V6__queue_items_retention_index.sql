@@ -0,0 +1,10 @@
+-- 保留策略按状态和结束时间分批清理过期任务，清理数据文件时按引用查询是否仍被使用
+CREATE INDEX IF NOT EXISTS idx_queue_items_status_end_time ON queue_items (status, end_time);
+
+-- 大多数任务的数据和结果内联存储，只索引有引用的行
+CREATE INDEX IF NOT EXISTS idx_queue_items_data_ref
+    ON queue_items (data_ref)
+    WHERE data_ref IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_queue_items_result_ref
+    ON queue_items (result_ref)
+    WHERE result_ref IS NOT NULL;
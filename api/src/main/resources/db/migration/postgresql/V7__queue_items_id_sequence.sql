@@ -0,0 +1,4 @@
+-- 任务ID改为序列生成（Hibernate pooled 优化器，每次取号分配50个ID），批量入队时可以使用JDBC批量插入
+-- 序列值为已分配号段的上界，起始值从现有最大ID加上步长开始，避免与已有ID冲突
+CREATE SEQUENCE IF NOT EXISTS queue_items_seq START WITH 50 INCREMENT BY 50;
+SELECT setval('queue_items_seq', COALESCE((SELECT MAX(id) FROM queue_items), 0) + 50, false);
@@ -0,0 +1,9 @@
+-- 任务租约：领取时记录持有节点和到期时间，持有节点定期续约，只回收租约已过期的任务
+ALTER TABLE queue_items ADD COLUMN IF NOT EXISTS lease_owner VARCHAR(255);
+ALTER TABLE queue_items ADD COLUMN IF NOT EXISTS lease_expires_at TIMESTAMP(6);
+
+CREATE INDEX IF NOT EXISTS idx_queue_items_status_lease_expires_at
+    ON queue_items (status, lease_expires_at);
+
+-- 升级前处理中的任务没有租约，置为已过期，由回收任务重新入队（与原来启动时重置的行为一致）
+UPDATE queue_items SET lease_expires_at = CURRENT_TIMESTAMP WHERE status = 'PROCESSING';
@@ -0,0 +1,115 @@
+package com.xxs3315.mbl.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.xxs3315.mbl.entity.QueueItem.TaskStatus;
+import com.xxs3315.mbl.repository.QueueItemSummary;
+import com.xxs3315.mbl.service.QueueService;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class QueueControllerTest {
+
+  private static final LocalDateTime TIME = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123456000);
+
+  private QueueService queueService;
+  private QueueController controller;
+
+  @BeforeEach
+  void setUp() {
+    queueService = mock(QueueService.class);
+    controller = new QueueController();
+    ReflectionTestUtils.setField(controller, "queueService", queueService);
+  }
+
+  @Test
+  void fullPageReturnsCursorOfLastRow() {
+    List<QueueItemSummary> page = List.of(summary(1L, TIME.minusSeconds(1)), summary(2L, TIME));
+    when(queueService.listTasks(TaskStatus.PENDING, null, null, 2)).thenReturn(page);
+
+    String cursor = nextCursor(controller.getPendingTasks(null, 2));
+
+    assertThat(cursor).isNotNull().doesNotContain("=");
+    assertThat(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8))
+        .isEqualTo(TIME + "_2");
+  }
+
+  @Test
+  void cursorResumesAfterEncodedPosition() {
+    List<QueueItemSummary> page = List.of(summary(1L, TIME.minusSeconds(1)), summary(2L, TIME));
+    when(queueService.listTasks(eq(TaskStatus.COMPLETED), any(), any(), eq(2))).thenReturn(page);
+    String cursor = nextCursor(controller.getCompletedTasks(null, 2));
+
+    controller.getCompletedTasks(cursor, 2);
+
+    verify(queueService).listTasks(TaskStatus.COMPLETED, TIME, 2L, 2);
+  }
+
+  @Test
+  void partialPageHasNoNextCursor() {
+    List<QueueItemSummary> page = List.of(summary(1L, TIME));
+    when(queueService.listTasks(TaskStatus.PROCESSING, null, null, 5)).thenReturn(page);
+
+    assertThat(nextCursor(controller.getProcessingTasks(null, 5))).isNull();
+  }
+
+  @Test
+  void pageSizeIsClamped() {
+    controller.getPendingTasks(null, 10000);
+    controller.getPendingTasks(null, 0);
+
+    verify(queueService).listTasks(TaskStatus.PENDING, null, null, 500);
+    verify(queueService).listTasks(TaskStatus.PENDING, null, null, 1);
+  }
+
+  @Test
+  void invalidCursorIsRejected() {
+    String noSeparator = encode("2024-05-01T12:30:15");
+    String badId = encode(TIME + "_x");
+
+    for (String cursor : List.of("!!", noSeparator, badId)) {
+      ResponseEntity<?> response = controller.getPendingTasks(cursor, 10);
+      assertThat(response.getStatusCode().is4xxClientError()).isTrue();
+    }
+    verify(queueService, never()).listTasks(any(), any(), any(), anyInt());
+  }
+
+  @Test
+  void blankCursorStartsFromFirstPage() {
+    controller.getPendingTasks(" ", 10);
+
+    verify(queueService).listTasks(eq(TaskStatus.PENDING), isNull(), isNull(), eq(10));
+  }
+
+  private static String nextCursor(ResponseEntity<?> response) {
+    return (String) ((Map<?, ?>) response.getBody()).get("nextCursor");
+  }
+
+  private static String encode(String position) {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static QueueItemSummary summary(Long id, LocalDateTime createTime) {
+    QueueItemSummary summary = mock(QueueItemSummary.class);
+    when(summary.getId()).thenReturn(id);
+    when(summary.getCreateTime()).thenReturn(createTime);
+    return summary;
+  }
+}
@@ -0,0 +1,67 @@
+package com.xxs3315.mbl.pdf.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.xxs3315.mbl.pdf.config.ImageCacheConfig;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ImageCacheServiceTest {
+
+  private ImageCacheConfig config;
+  private ImageCacheService cacheService;
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @BeforeEach
+  void setUp() {
+    config = new ImageCacheConfig();
+    cacheService = new ImageCacheService(config);
+  }
+
+  @Test
+  void urlImageIsCachedWithinTtl() throws IOException {
+    String key = ImageCacheService.urlKey("http://img.example/a.png");
+
+    BufferedImage first = cacheService.getImage(key, this::load);
+    BufferedImage second = cacheService.getImage(key, this::load);
+
+    assertThat(second).isSameAs(first);
+    assertThat(loads).hasValue(1);
+  }
+
+  @Test
+  void expiredUrlImageIsReloaded() throws IOException {
+    config.setUrlTtl(0);
+    String key = ImageCacheService.urlKey("http://img.example/a.png");
+
+    BufferedImage first = cacheService.getImage(key, this::load);
+    BufferedImage second = cacheService.getImage(key, this::load);
+
+    assertThat(second).isNotSameAs(first);
+    assertThat(loads).hasValue(2);
+    assertThat(cacheService.getCacheStats())
+        .containsEntry("cachedImages", 1)
+        .containsEntry("cachedBytes", 4L * 4 * 4)
+        .containsEntry("expirations", 1L);
+  }
+
+  @Test
+  void contentKeysDoNotExpire() throws IOException {
+    config.setUrlTtl(0);
+    String key = ImageCacheService.base64Key("aGVsbG8=");
+
+    cacheService.getImage(key, this::load);
+    cacheService.getScaledToHeight(key, 2, this::load);
+    cacheService.getScaledToHeight(key, 2, this::load);
+
+    assertThat(loads).hasValue(2);
+  }
+
+  private BufferedImage load() {
+    loads.incrementAndGet();
+    return new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+  }
+}
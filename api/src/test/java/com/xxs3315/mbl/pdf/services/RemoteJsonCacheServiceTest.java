@@ -0,0 +1,83 @@
+package com.xxs3315.mbl.pdf.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.xxs3315.mbl.pdf.config.RemoteFetchConfig;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RemoteJsonCacheServiceTest {
+
+  private static final String URL = "http://data.example/rows";
+
+  private RemoteFetchConfig config;
+  private RemoteFetchService fetchService;
+  private RemoteJsonCacheService cacheService;
+
+  @BeforeEach
+  void setUp() {
+    config = new RemoteFetchConfig();
+    // 使用真实的 await 等待结果，只替换网络请求
+    fetchService = spy(new RemoteFetchService(config));
+    cacheService = new RemoteJsonCacheService(config, fetchService);
+  }
+
+  @Test
+  void freshEntryIsServedFromCache() throws IOException {
+    respond(null, null, new RemoteFetchService.RemoteResponse(200, "[1]", "v1", null));
+
+    assertThat(cacheService.getJson(URL)).isEqualTo("[1]");
+    assertThat(cacheService.getJson(URL)).isEqualTo("[1]");
+    verify(fetchService, times(1)).fetchConditionalAsync(URL, null, null);
+  }
+
+  @Test
+  void staleEntryIsRevalidatedWithItsEtag() throws IOException {
+    config.setCacheTtl(0);
+    respond(null, null, new RemoteFetchService.RemoteResponse(200, "[1]", "v1", null));
+    respond("v1", null, new RemoteFetchService.RemoteResponse(304, null, "v1", null));
+
+    assertThat(cacheService.getJson(URL)).isEqualTo("[1]");
+    assertThat(cacheService.getJson(URL)).isEqualTo("[1]");
+    assertThat(cacheService.getCacheStats()).containsEntry("notModified", 1L);
+  }
+
+  @Test
+  void unexpectedNotModifiedFailsAndDoesNotBlockLaterLoads() throws IOException {
+    respond(null, null, new RemoteFetchService.RemoteResponse(304, null, null, null));
+
+    assertThatThrownBy(() -> cacheService.getJson(URL))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("304");
+    assertThat(cacheService.getCacheStats())
+        .containsEntry("inflightLoads", 0)
+        .containsEntry("loadFailures", 1L);
+
+    respond(null, null, new RemoteFetchService.RemoteResponse(200, "[2]", null, null));
+    assertThat(cacheService.getJson(URL)).isEqualTo("[2]");
+  }
+
+  @Test
+  void failedLoadClearsInflightEntry() {
+    doReturn(CompletableFuture.failedFuture(new IOException("HTTP 500")))
+        .when(fetchService)
+        .fetchConditionalAsync(URL, null, null);
+
+    assertThatThrownBy(() -> cacheService.getJson(URL)).isInstanceOf(IOException.class);
+    assertThat(cacheService.getCacheStats()).containsEntry("inflightLoads", 0);
+  }
+
+  private void respond(
+      String etag, String lastModified, RemoteFetchService.RemoteResponse response) {
+    doReturn(CompletableFuture.completedFuture(response))
+        .when(fetchService)
+        .fetchConditionalAsync(URL, etag, lastModified);
+  }
+}
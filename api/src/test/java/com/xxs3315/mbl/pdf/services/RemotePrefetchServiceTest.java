@@ -0,0 +1,147 @@
+package com.xxs3315.mbl.pdf.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import com.xxs3315.mbl.pdf.config.RemoteFetchConfig;
+import com.xxs3315.mbl.pdf.properties.PdfMakerProperties;
+import com.xxs3315.mbl.pdf.template.BindingData;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class RemotePrefetchServiceTest {
+
+  private static final String ROWS_URL = "http://data.example/rows";
+  private static final String IMAGE_URL = "http://img.example/a.png";
+  private static final String IMAGE_ROW =
+      "{\"pic\":{\"imageType\":\"url\",\"value\":\"" + IMAGE_URL + "\"}}";
+
+  private RemoteFetchService fetchService;
+  private RemotePrefetchService prefetchService;
+  private final Map<String, String> responses = new HashMap<>();
+  private final List<Path> downloaded = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    fetchService = spy(new RemoteFetchService(new RemoteFetchConfig()));
+    doAnswer(
+            invocation -> {
+              String url = invocation.getArgument(0);
+              Path file = invocation.getArgument(1);
+              Files.writeString(file, responses.getOrDefault(url, "[]"));
+              downloaded.add(file);
+              return CompletableFuture.completedFuture(file);
+            })
+        .when(fetchService)
+        .fetchToFileAsync(anyString(), any(Path.class));
+    doReturn(CompletableFuture.completedFuture(new byte[] {1}))
+        .when(fetchService)
+        .fetchBytesAsync(anyString());
+
+    PdfMakerProperties properties = new PdfMakerProperties();
+    properties.setTableMaxRecords(100);
+    prefetchService = new RemotePrefetchService();
+    ReflectionTestUtils.setField(prefetchService, "remoteFetchService", fetchService);
+    ReflectionTestUtils.setField(
+        prefetchService, "remoteJsonCacheService", mock(RemoteJsonCacheService.class));
+    ReflectionTestUtils.setField(prefetchService, "pdfMakerProperties", properties);
+  }
+
+  @Test
+  void pagedTableIsDownloadedBeforeLayoutUntilAShortPage() throws IOException {
+    responses.put(pageUrl(0), "[{\"n\":1}," + IMAGE_ROW + "]");
+    responses.put(pageUrl(1), "[{\"n\":3}]");
+
+    try (RemotePrefetchService.PrefetchScope scope =
+        prefetchService.prefetch(List.of(page(binding(Map.of("pageSize", 2)))))) {
+      assertThat(scope.getSpoolCount()).isEqualTo(2);
+      assertThat(readLine(pageUrl(1)))
+          .isEqualTo("[{\"n\":3}]");
+    }
+
+    verify(fetchService, never()).fetchToFileAsync(eq(pageUrl(2)), any());
+    verify(fetchService, never()).fetchStream(anyString(), any());
+    verify(fetchService).fetchBytesAsync(IMAGE_URL);
+    assertThat(downloaded).hasSize(2).noneMatch(Files::exists);
+  }
+
+  @Test
+  void streamedTableIsReadFromTheDownloadedFile() throws IOException {
+    responses.put(ROWS_URL, "[" + IMAGE_ROW + "]");
+
+    try (RemotePrefetchService.PrefetchScope scope =
+        prefetchService.prefetch(List.of(page(binding(Map.of("stream", true)))))) {
+      assertThat(readLine(ROWS_URL))
+          .isEqualTo("[" + IMAGE_ROW + "]");
+      assertThat(scope.getImageCount()).isEqualTo(1);
+    }
+
+    verify(fetchService, never()).fetchStream(anyString(), any());
+    assertThat(downloaded).hasSize(1).noneMatch(Files::exists);
+  }
+
+  @Test
+  void boundBindingIsNotFetchedButItsImagesAre() {
+    BindingData data = BindingData.of(Map.of("rows", "[" + IMAGE_ROW + "]"));
+
+    try (RemotePrefetchService.PrefetchScope scope =
+        prefetchService.prefetch(List.of(page(binding(Map.of("stream", true)))), data)) {
+      assertThat(scope.getSpoolCount()).isZero();
+      assertThat(scope.getImageCount()).isEqualTo(1);
+      assertThat(prefetchService.currentBindingData()).isSameAs(data);
+    }
+
+    assertThat(prefetchService.currentBindingData()).isSameAs(BindingData.EMPTY);
+  }
+
+  @Test
+  void sharedScopeDoesNotDeleteTheOwnersFiles() throws IOException {
+    responses.put(ROWS_URL, "[]");
+
+    try (RemotePrefetchService.PrefetchScope scope =
+        prefetchService.prefetch(List.of(page(binding(Map.of("stream", true)))))) {
+      prefetchService.share(scope).close();
+      assertThat(downloaded).allMatch(Files::exists);
+    }
+    assertThat(downloaded).noneMatch(Files::exists);
+  }
+
+  private String readLine(String url) throws IOException {
+    return prefetchService.readStream(url, reader -> new BufferedReader(reader).readLine());
+  }
+
+  private static Map<String, Object> binding(Map<String, Object> extra) {
+    Map<String, Object> binding = new HashMap<>(extra);
+    binding.put("id", "rows");
+    binding.put("shape", "list");
+    binding.put("request", "url");
+    binding.put("value", ROWS_URL);
+    return binding;
+  }
+
+  private static Map<String, Object> page(Map<String, Object> binding) {
+    return Map.of("bindings", Map.of("table-root", binding));
+  }
+
+  private static String pageUrl(int page) throws IOException {
+    return RemotePrefetchService.buildPageUrl(ROWS_URL, "page", page, "size", 2);
+  }
+}
@@ -0,0 +1,107 @@
+package com.xxs3315.mbl.pdf.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.xxs3315.mbl.entity.PdfTemplate;
+import com.xxs3315.mbl.pdf.config.TemplateRegistryConfig;
+import com.xxs3315.mbl.pdf.template.CompiledTemplate;
+import com.xxs3315.mbl.pdf.template.TemplateNode;
+import com.xxs3315.mbl.repository.PdfTemplateRepository;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class TemplateRegistryServiceTest {
+
+  private static final String TEMPLATE_ID = "t1";
+
+  private static final String ORDERS_URL = "http://data.example/orders";
+
+  private static final String LAYOUT =
+      "{\"config\":{},\"currentPageIndex\":1,\"pages\":[{\"pageBodyContent\":[]},"
+          + "{\"pageBodyContent\":[[\"page-body-root\",{\"cat\":\"container\","
+          + "\"bindings\":[{\"id\":\"orders\",\"request\":\"url\","
+          + "\"value\":\"http://data.example/orders\"}]}]]}]}";
+
+  private PdfTemplateRepository repository;
+  private TemplateCompiler compiler;
+  private TemplateRegistryService service;
+
+  @BeforeEach
+  void setUp() {
+    repository = mock(PdfTemplateRepository.class);
+    compiler = mock(TemplateCompiler.class);
+    when(compiler.compile(any())).thenAnswer(invocation -> compiled());
+    when(repository.findById(TEMPLATE_ID))
+        .thenReturn(Optional.of(new PdfTemplate(TEMPLATE_ID, null, LAYOUT)));
+
+    service = new TemplateRegistryService();
+    TemplateRegistryConfig config = new TemplateRegistryConfig();
+    ReflectionTestUtils.setField(service, "pdfTemplateRepository", repository);
+    ReflectionTestUtils.setField(service, "config", config);
+    ReflectionTestUtils.setField(service, "templateCompiler", compiler);
+  }
+
+  @Test
+  void compiledPagesAreSharedAcrossRequests() {
+    TemplateRegistryService.ResolvedRequest first = service.resolve(TEMPLATE_ID, "{}");
+    TemplateRegistryService.ResolvedRequest second =
+        service.resolve(TEMPLATE_ID, Map.of("orders", List.of()));
+
+    assertThat(first.getTemplates()).hasSize(2).isSameAs(second.getTemplates());
+    assertThat(first.getPages()).isSameAs(second.getPages());
+    verify(compiler, times(2)).compile(any());
+    verify(repository, times(1)).findById(TEMPLATE_ID);
+  }
+
+  @Test
+  void requestDataIsBoundByIdWithoutTouchingTheCachedLayout() {
+    TemplateRegistryService.ResolvedRequest request =
+        service.resolve(TEMPLATE_ID, Map.of("orders", List.of(Map.of("no", 1))));
+
+    TemplateNode.TextBinding binding =
+        new TemplateNode.TextBinding("orders", "order", "object", "url", ORDERS_URL);
+    TemplateNode.TextBinding bound = binding.bind(request.getBindingData());
+    assertThat(bound.getRequest()).isEqualTo("data");
+    assertThat(bound.getValue()).isEqualTo("[{\"no\":1}]");
+    assertThat(binding.bind(service.resolve(TEMPLATE_ID, "{}").getBindingData()))
+        .isSameAs(binding);
+
+    assertThat(request.materializePages().toString()).contains("request=data", "[{\"no\":1}]");
+    assertThat(request.getPages().toString())
+        .contains("request=url")
+        .doesNotContain("\"no\"");
+  }
+
+  @Test
+  void singlePageRequestKeepsItsCompiledTemplate() {
+    TemplateRegistryService.ResolvedRequest request = service.resolve(TEMPLATE_ID, null);
+
+    TemplateRegistryService.ResolvedRequest page = request.page(request.getCurrentPageIndex());
+
+    assertThat(page.getPages()).containsExactly(request.getPages().get(1));
+    assertThat(page.getTemplates()).containsExactly(request.getTemplates().get(1));
+  }
+
+  @Test
+  void inlineLayoutIsCompiledAtRenderTime() {
+    TemplateRegistryService.ResolvedRequest request =
+        service.resolve(null, "{\"config\":{},\"pages\":[{}]}");
+
+    assertThat(request.getPages()).hasSize(1);
+    assertThat(request.getTemplates()).isNull();
+    assertThat(request.getBindingData().isEmpty()).isTrue();
+  }
+
+  private static CompiledTemplate compiled() {
+    return new CompiledTemplate(null, null, null, null);
+  }
+}
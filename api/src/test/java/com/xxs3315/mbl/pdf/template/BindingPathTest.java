@@ -0,0 +1,100 @@
+package com.xxs3315.mbl.pdf.template;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class BindingPathTest {
+
+  private final CellValue cell = new CellValue();
+
+  @Test
+  void resolveFollowsNestedKeys() {
+    BindingPath path = BindingPath.compile("a.b.c");
+
+    assertThat(path.resolve(Map.of("a", Map.of("b", Map.of("c", "v"))))).isEqualTo("v");
+    assertThat(path.resolve(Map.of("a", Map.of("b", "not a map")))).isNull();
+    assertThat(path.resolve(Map.of("a", Map.of()))).isNull();
+    assertThat(path.resolve(null)).isNull();
+  }
+
+  @Test
+  void emptyPathNeverResolves() {
+    assertThat(BindingPath.compile("").resolve(Map.of("", "v"))).isNull();
+    assertThat(BindingPath.compile(null).resolve(Map.of("a", "v"))).isNull();
+  }
+
+  @Test
+  void scalarResolvesToText() {
+    BindingPath.compile("n").resolveCell(Map.of("n", 12.5), cell);
+
+    assertThat(cell.getType()).isEqualTo(CellValue.CellType.TEXT);
+    assertThat(cell.getValue()).isEqualTo("12.5");
+    assertThat(cell.getColspan()).isEqualTo(1);
+  }
+
+  @Test
+  void missingValueResetsToEmptyText() {
+    BindingPath.compile("n").resolveCell(Map.of("n", List.of("x")), cell);
+    BindingPath.compile("n").resolveCell(Map.of(), cell);
+
+    assertThat(cell.getType()).isEqualTo(CellValue.CellType.TEXT);
+    assertThat(cell.getValue()).isEqualTo("");
+  }
+
+  @Test
+  void listResolvesToList() {
+    BindingPath.compile("items").resolveCell(Map.of("items", List.of("a", "b")), cell);
+
+    assertThat(cell.getType()).isEqualTo(CellValue.CellType.LIST);
+    assertThat(cell.getValue()).isEqualTo(List.of("a", "b"));
+  }
+
+  @Test
+  void imageCellReadsHeightAndSource() {
+    Map<String, Object> image =
+        Map.of("type", "image", "value", "u", "height", 30.0, "imageType", "URL");
+    BindingPath.compile("img").resolveCell(Map.of("img", image), cell);
+
+    assertThat(cell.getType()).isEqualTo(CellValue.CellType.IMAGE);
+    assertThat(cell.getValue()).isEqualTo("u");
+    assertThat(cell.getImageHeight()).isEqualTo(30f);
+    assertThat(cell.isUrlImage()).isTrue();
+  }
+
+  @Test
+  void imageCellWithoutValidHeightUsesDefault() {
+    BindingPath.compile("img")
+        .resolveCell(Map.of("img", Map.of("type", "image", "value", "b64", "height", 0)), cell);
+
+    assertThat(cell.getImageHeight()).isEqualTo(16f);
+    assertThat(cell.isUrlImage()).isFalse();
+  }
+
+  @Test
+  void colspanCellsCarryTheirSpan() {
+    BindingPath path = BindingPath.compile("c");
+
+    path.resolveCell(Map.of("c", Map.of("value", "t", "colspan", 2.0)), cell);
+    assertThat(cell.getType()).isEqualTo(CellValue.CellType.COLSPAN_TEXT);
+    assertThat(cell.getColspan()).isEqualTo(2);
+
+    path.resolveCell(Map.of("c", Map.of("value", List.of("a"), "colspan", "3")), cell);
+    assertThat(cell.getType()).isEqualTo(CellValue.CellType.COLSPAN_LIST);
+    assertThat(cell.getColspan()).isEqualTo(3);
+
+    path.resolveCell(Map.of("c", Map.of("type", "image", "value", "b64", "colspan", 4.0)), cell);
+    assertThat(cell.getType()).isEqualTo(CellValue.CellType.COLSPAN_IMAGE);
+    assertThat(cell.getColspan()).isEqualTo(4);
+  }
+
+  @Test
+  void mapWithoutColspanResolvesToEmptyText() {
+    BindingPath.compile("c").resolveCell(Map.of("c", Map.of("value", "t")), cell);
+
+    assertThat(cell.getType()).isEqualTo(CellValue.CellType.TEXT);
+    assertThat(cell.getValue()).isEqualTo("");
+  }
+}
@@ -0,0 +1,111 @@
+package com.xxs3315.mbl.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class AdaptiveConcurrencyLimiterTest {
+
+  private AdaptiveConcurrencyLimiter limiter;
+
+  @BeforeEach
+  void setUp() {
+    limiter = new AdaptiveConcurrencyLimiter();
+    ReflectionTestUtils.setField(limiter, "minLimit", 1);
+    ReflectionTestUtils.setField(limiter, "maxLimit", 20);
+    ReflectionTestUtils.setField(limiter, "latencyTolerance", 2.0);
+    ReflectionTestUtils.setField(limiter, "backoffRatio", 0.75);
+    // JVM指标阈值放到最大，只由耗时和并发占用决定调整方向
+    ReflectionTestUtils.setField(limiter, "maxGcRatio", Double.MAX_VALUE);
+    ReflectionTestUtils.setField(limiter, "maxHeapUsage", Double.MAX_VALUE);
+    ReflectionTestUtils.setField(limiter, "maxCpuLoad", Double.MAX_VALUE);
+  }
+
+  @Test
+  void increasesByOneWhenHealthyAndSaturated() {
+    limiter.recordLatency(100, 1);
+    limiter.recordInFlight(4);
+
+    assertThat(limiter.adjust(4)).isEqualTo(5);
+    assertThat(lastDecision()).containsEntry("reason", "指标正常且并发已占满");
+    assertThat(limiter.getStats()).containsEntry("increases", 1L);
+  }
+
+  @Test
+  void holdsWhenSlotsAreNotSaturated() {
+    limiter.recordLatency(100, 1);
+    limiter.recordInFlight(2);
+
+    assertThat(limiter.adjust(4)).isEqualTo(4);
+    assertThat(lastDecision()).containsEntry("reason", "保持");
+  }
+
+  @Test
+  void holdsWithoutSamples() {
+    limiter.recordInFlight(4);
+
+    assertThat(limiter.adjust(4)).isEqualTo(4);
+    assertThat(lastDecision()).containsEntry("reason", "无完成任务样本");
+  }
+
+  @Test
+  void backsOffWhenPerPageLatencyRisesAboveBaseline() {
+    limiter.recordLatency(1000, 100);
+    limiter.adjust(8);
+
+    // 每页耗时从10ms升到100ms，超过基线的2倍
+    limiter.recordLatency(10000, 100);
+    limiter.recordInFlight(8);
+
+    assertThat(limiter.adjust(8)).isEqualTo(6);
+    assertThat(lastDecision()).containsEntry("reason", "任务耗时上升");
+    assertThat(limiter.getStats()).containsEntry("decreases", 1L);
+  }
+
+  @Test
+  void samplesAreNormalizedByPageCount() {
+    limiter.recordLatency(1000, 100);
+    limiter.adjust(8);
+
+    // 任务更大但每页耗时不变，不降低并发数
+    limiter.recordLatency(5000, 500);
+    limiter.recordInFlight(8);
+
+    assertThat(limiter.adjust(8)).isEqualTo(9);
+  }
+
+  @Test
+  void backsOffOnGcAndHeapPressure() {
+    ReflectionTestUtils.setField(limiter, "maxGcRatio", -1.0);
+    assertThat(limiter.adjust(8)).isEqualTo(6);
+    assertThat(lastDecision()).containsEntry("reason", "GC耗时占比过高");
+
+    ReflectionTestUtils.setField(limiter, "maxGcRatio", Double.MAX_VALUE);
+    ReflectionTestUtils.setField(limiter, "maxHeapUsage", -1.0);
+    assertThat(limiter.adjust(6)).isEqualTo(4);
+    assertThat(lastDecision()).containsEntry("reason", "堆内存占用过高");
+  }
+
+  @Test
+  void clampsToConfiguredRange() {
+    ReflectionTestUtils.setField(limiter, "maxLimit", 5);
+    limiter.recordLatency(100, 1);
+    limiter.recordInFlight(5);
+    assertThat(limiter.adjust(5)).isEqualTo(5);
+
+    ReflectionTestUtils.setField(limiter, "minLimit", 2);
+    ReflectionTestUtils.setField(limiter, "maxGcRatio", -1.0);
+    assertThat(limiter.adjust(2)).isEqualTo(2);
+
+    ReflectionTestUtils.setField(limiter, "minLimit", 0);
+    assertThat(limiter.adjust(1)).isEqualTo(1);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> lastDecision() {
+    return (Map<String, Object>) limiter.getStats().get("lastDecision");
+  }
+}
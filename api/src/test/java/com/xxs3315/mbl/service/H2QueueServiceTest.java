@@ -0,0 +1,178 @@
+package com.xxs3315.mbl.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.xxs3315.mbl.entity.QueueItem;
+import com.xxs3315.mbl.repository.QueueItemRepository;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+@DataJpaTest(
+    properties = {
+      "spring.jpa.properties.hibernate.generate_statistics=true",
+      "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+    })
+@ActiveProfiles("h2")
+@Import({
+  H2QueueService.class,
+  QueueDispatchSignal.class,
+  QueueStatsCounter.class,
+  QueueLaneScheduler.class,
+  PayloadStore.class,
+  QueueLeaseManager.class
+})
+class H2QueueServiceTest {
+
+  @Autowired private H2QueueService queueService;
+
+  @Autowired private QueueItemRepository queueItemRepository;
+
+  @Autowired private QueueLeaseManager leaseManager;
+
+  @Autowired private EntityManagerFactory entityManagerFactory;
+
+  @Test
+  void claimTasksTakesOldestPendingTasksAndHoldsLease() {
+    QueueItem first = enqueue("first", QueueItem.PRIORITY_NORMAL, 1);
+    QueueItem second = enqueue("second", QueueItem.PRIORITY_NORMAL, 2);
+    enqueue("third", QueueItem.PRIORITY_NORMAL, 3);
+
+    LocalDateTime before = LocalDateTime.now();
+    List<QueueItem> claimed = queueService.claimTasks(2);
+
+    assertThat(claimed)
+        .extracting(QueueItem::getTaskId)
+        .containsExactly(first.getTaskId(), second.getTaskId());
+    for (QueueItem task : claimed) {
+      assertThat(task.getStatus()).isEqualTo(QueueItem.TaskStatus.PROCESSING);
+      assertThat(task.getStartTime()).isNotNull();
+      assertThat(task.getLeaseOwner()).isEqualTo(leaseManager.getNodeId());
+      assertThat(task.getLeaseExpiresAt()).isAfter(before);
+    }
+    assertThat(queueItemRepository.countByStatus(QueueItem.TaskStatus.PENDING)).isEqualTo(1);
+  }
+
+  @Test
+  void claimTasksNeverReturnsTheSameTaskTwice() {
+    enqueue("a", QueueItem.PRIORITY_NORMAL, 1);
+    enqueue("b", QueueItem.PRIORITY_NORMAL, 2);
+    enqueue("c", QueueItem.PRIORITY_NORMAL, 3);
+
+    List<QueueItem> firstBatch = queueService.claimTasks(2);
+    List<QueueItem> secondBatch = queueService.claimTasks(2);
+
+    assertThat(firstBatch).hasSize(2);
+    assertThat(secondBatch).hasSize(1);
+    assertThat(secondBatch.get(0).getTaskId())
+        .isNotIn(firstBatch.stream().map(QueueItem::getTaskId).toList());
+    assertThat(queueService.claimTasks(2)).isEmpty();
+  }
+
+  @Test
+  void claimTasksSharesSlotsAcrossLanesAndOrdersByPriority() {
+    for (int i = 0; i < 4; i++) {
+      enqueue("bulk-" + i, QueueItem.PRIORITY_BULK, i);
+    }
+    enqueue("interactive", QueueItem.PRIORITY_INTERACTIVE, 10);
+
+    List<QueueItem> claimed = queueService.claimTasks(3);
+
+    assertThat(claimed).hasSize(3);
+    assertThat(claimed.get(0).getPriority()).isEqualTo(QueueItem.PRIORITY_INTERACTIVE);
+    assertThat(claimed.subList(1, 3))
+        .extracting(QueueItem::getPriority)
+        .containsOnly(QueueItem.PRIORITY_BULK);
+  }
+
+  @Test
+  void claimTasksWithoutFreeSlotsClaimsNothing() {
+    enqueue("a", QueueItem.PRIORITY_NORMAL, 1);
+
+    assertThat(queueService.claimTasks(0)).isEmpty();
+    assertThat(queueItemRepository.countByStatus(QueueItem.TaskStatus.PENDING)).isEqualTo(1);
+  }
+
+  @Test
+  void reclaimExpiredLeasesOnlyResetsExpiredTasks() {
+    enqueue("expired", QueueItem.PRIORITY_NORMAL, 1);
+    enqueue("alive", QueueItem.PRIORITY_NORMAL, 2);
+    List<QueueItem> claimed = queueService.claimTasks(2);
+    QueueItem expired = claimed.get(0);
+    QueueItem alive = claimed.get(1);
+    expired.setLeaseExpiresAt(LocalDateTime.now().minusSeconds(1));
+    queueItemRepository.saveAndFlush(expired);
+
+    assertThat(queueService.reclaimLeases(null)).isEqualTo(1);
+
+    QueueItem reclaimed = queueItemRepository.findByTaskId(expired.getTaskId()).orElseThrow();
+    assertThat(reclaimed.getStatus()).isEqualTo(QueueItem.TaskStatus.PENDING);
+    assertThat(reclaimed.getStartTime()).isNull();
+    assertThat(reclaimed.getLeaseOwner()).isNull();
+    assertThat(reclaimed.getLeaseExpiresAt()).isNull();
+    assertThat(queueItemRepository.findByTaskId(alive.getTaskId()).orElseThrow().getStatus())
+        .isEqualTo(QueueItem.TaskStatus.PROCESSING);
+
+    // 回收后的任务可以被重新领取
+    assertThat(queueService.claimTasks(2))
+        .extracting(QueueItem::getTaskId)
+        .containsExactly(expired.getTaskId());
+  }
+
+  @Test
+  void releaseLeaseOnlyClearsTheOwnersLease() {
+    enqueue("a", QueueItem.PRIORITY_NORMAL, 1);
+    String taskId = queueService.claimTasks(1).get(0).getTaskId();
+
+    assertThat(queueItemRepository.releaseLease(taskId, "other-node")).isZero();
+    assertThat(queueItemRepository.findByTaskId(taskId).orElseThrow().getLeaseOwner())
+        .isEqualTo(leaseManager.getNodeId());
+    assertThat(queueItemRepository.releaseLease(taskId, leaseManager.getNodeId())).isEqualTo(1);
+    assertThat(queueItemRepository.findByTaskId(taskId).orElseThrow().getLeaseOwner()).isNull();
+  }
+
+  @Test
+  void reclaimLeasesOwnedByNodeIgnoresExpiry() {
+    enqueue("a", QueueItem.PRIORITY_NORMAL, 1);
+    queueService.claimTasks(1);
+
+    assertThat(queueService.reclaimLeases("other-node")).isZero();
+    assertThat(queueService.reclaimLeases(leaseManager.getNodeId())).isEqualTo(1);
+    assertThat(queueItemRepository.countByStatus(QueueItem.TaskStatus.PENDING)).isEqualTo(1);
+  }
+
+  @Test
+  void addAllToQueueInsertsInJdbcBatches() {
+    List<QueueItem> items = new ArrayList<>();
+    for (int i = 0; i < 120; i++) {
+      items.add(new QueueItem("single", "{\"n\":" + i + "}"));
+    }
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+
+    List<QueueItem> saved = queueService.addAllToQueue(items);
+    queueItemRepository.flush();
+
+    assertThat(saved).extracting(QueueItem::getId).doesNotContainNull().isSorted();
+    assertThat(statistics.getEntityInsertCount()).isEqualTo(120);
+    // 插入按 batch_size 合并为少量批次，ID按序列号段分配，语句数不随行数增长
+    assertThat(statistics.getPrepareStatementCount()).isLessThan(10);
+    assertThat(queueItemRepository.countByStatus(QueueItem.TaskStatus.PENDING)).isEqualTo(120);
+  }
+
+  private QueueItem enqueue(String name, int priority, int order) {
+    QueueItem item = new QueueItem("single", "{\"name\":\"" + name + "\"}");
+    item.setTaskId(name + "_" + System.nanoTime());
+    item.setPriority(priority);
+    item.setCreateTime(LocalDateTime.now().minusMinutes(1).plusSeconds(order));
+    return queueService.addToQueue(item);
+  }
+}
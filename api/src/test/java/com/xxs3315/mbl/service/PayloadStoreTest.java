@@ -0,0 +1,78 @@
+package com.xxs3315.mbl.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.xxs3315.mbl.entity.QueueItem;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class PayloadStoreTest {
+
+  private static final String DATA = "x".repeat(64);
+
+  @TempDir Path dir;
+
+  private PayloadStore store;
+
+  @BeforeEach
+  void setUp() {
+    store = new PayloadStore();
+    ReflectionTestUtils.setField(store, "payloadDir", dir.toString());
+    ReflectionTestUtils.setField(store, "inlineMaxBytes", 16);
+  }
+
+  @Test
+  void unreferencedOldFileIsDeleted() throws IOException {
+    Path file = store(DATA);
+    age(file);
+
+    assertThat(store.sweep(Instant.now().minus(Duration.ofHours(1)), refs -> List.of()))
+        .isEqualTo(1);
+    assertThat(file).doesNotExist();
+  }
+
+  @Test
+  void fileReusedAfterReferencesWereQueriedIsKept() throws IOException {
+    Path file = store(DATA);
+    age(file);
+
+    // 查询引用时复用该文件的任务还未提交，查询结果中没有它
+    int deleted =
+        store.sweep(
+            Instant.now().minus(Duration.ofHours(1)),
+            refs -> {
+              store.storeData(item(DATA));
+              return List.of();
+            });
+
+    assertThat(deleted).isZero();
+    assertThat(file).exists();
+  }
+
+  private Path store(String data) throws IOException {
+    store.storeData(item(data));
+    try (Stream<Path> paths = Files.walk(dir)) {
+      return paths.filter(Files::isRegularFile).findFirst().orElseThrow();
+    }
+  }
+
+  private static QueueItem item(String data) {
+    QueueItem item = new QueueItem();
+    item.setData(data);
+    return item;
+  }
+
+  private static void age(Path file) throws IOException {
+    Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+  }
+}
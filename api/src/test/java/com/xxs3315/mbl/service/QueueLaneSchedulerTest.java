@@ -0,0 +1,106 @@
+package com.xxs3315.mbl.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.xxs3315.mbl.entity.QueueItem;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class QueueLaneSchedulerTest {
+
+  private QueueLaneScheduler scheduler;
+
+  @BeforeEach
+  void setUp() {
+    scheduler = new QueueLaneScheduler();
+    ReflectionTestUtils.setField(scheduler, "weights", new int[] {8, 3, 1});
+    ReflectionTestUtils.setField(scheduler, "interactiveMaxCost", 200L);
+    ReflectionTestUtils.setField(scheduler, "normalMaxCost", 5000L);
+    scheduler.init();
+  }
+
+  @Test
+  void priorityFollowsCostThresholds() {
+    assertThat(scheduler.priorityOf(200)).isEqualTo(QueueItem.PRIORITY_INTERACTIVE);
+    assertThat(scheduler.priorityOf(201)).isEqualTo(QueueItem.PRIORITY_NORMAL);
+    assertThat(scheduler.priorityOf(5000)).isEqualTo(QueueItem.PRIORITY_NORMAL);
+    assertThat(scheduler.priorityOf(5001)).isEqualTo(QueueItem.PRIORITY_BULK);
+  }
+
+  @Test
+  void busyLanesShareSlotsByWeight() {
+    Map<Integer, Integer> plan = scheduler.allocate(Map.of(0, 100L, 1, 100L, 2, 100L), 12);
+
+    assertThat(plan).isEqualTo(Map.of(0, 8, 1, 3, 2, 1));
+    assertThat(plan.keySet()).containsExactly(0, 1, 2);
+  }
+
+  @Test
+  void shareIsKeptAcrossCalls() {
+    int[] served = new int[3];
+    for (int i = 0; i < 12; i++) {
+      claim(Map.of(0, 100L, 1, 100L, 2, 100L), 1)
+          .forEach((lane, count) -> served[lane] += count);
+    }
+
+    assertThat(served).containsExactly(8, 3, 1);
+  }
+
+  @Test
+  void allocationStopsWhenNothingIsPending() {
+    assertThat(scheduler.allocate(Map.of(1, 2L), 5)).isEqualTo(Map.of(1, 2));
+    assertThat(scheduler.allocate(Map.of(), 5)).isEmpty();
+    assertThat(scheduler.allocate(Map.of(0, 0L), 5)).isEmpty();
+  }
+
+  @Test
+  void outOfRangePrioritiesAreNormalized() {
+    assertThat(scheduler.allocate(Map.of(7, 1L, -3, 1L), 5)).isEqualTo(Map.of(0, 1, 2, 1));
+  }
+
+  @Test
+  void idleLaneRestartsAtCurrentVirtualTime() {
+    claim(Map.of(0, 100L), 16);
+    claim(Map.of(0, 100L), 16);
+
+    // 批量通道空闲期间不积累份额，重新有任务后只按权重领取，不会占满槽位
+    Map<Integer, Integer> plan = scheduler.allocate(Map.of(0, 100L, 2, 100L), 8);
+
+    assertThat(plan).isEqualTo(Map.of(0, 7, 2, 1));
+  }
+
+  @Test
+  void planningAloneDoesNotConsumeShare() {
+    Map<Integer, Long> pending = Map.of(0, 100L, 1, 100L, 2, 100L);
+
+    assertThat(scheduler.allocate(pending, 12)).isEqualTo(scheduler.allocate(pending, 12));
+    assertThat(scheduler.getStats()).containsEntry("bulk", Map.of("weight", 1, "served", 0L));
+  }
+
+  @Test
+  void shortClaimOnlyAdvancesByClaimedRows() {
+    assertThat(scheduler.allocate(Map.of(0, 100L, 2, 100L), 9)).isEqualTo(Map.of(0, 8, 2, 1));
+
+    // 批量通道的行被其他节点锁定，本轮一个也没领到，下一轮仍优先分给它
+    scheduler.recordClaimed(Map.of(0, 8, 2, 0));
+
+    assertThat(scheduler.allocate(Map.of(0, 100L, 2, 100L), 1)).isEqualTo(Map.of(2, 1));
+    assertThat(scheduler.getStats()).containsEntry("bulk", Map.of("weight", 1, "served", 0L));
+  }
+
+  @Test
+  void invalidWeightsFallBackToDefaults() {
+    ReflectionTestUtils.setField(scheduler, "weights", new int[] {1, 0, 1});
+    scheduler.init();
+
+    assertThat(scheduler.getStats()).containsEntry("normal", Map.of("weight", 3, "served", 0L));
+  }
+
+  private Map<Integer, Integer> claim(Map<Integer, Long> pending, int slots) {
+    Map<Integer, Integer> plan = scheduler.allocate(pending, slots);
+    scheduler.recordClaimed(plan);
+    return plan;
+  }
+}
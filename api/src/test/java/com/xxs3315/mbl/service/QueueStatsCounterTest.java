@@ -0,0 +1,134 @@
+package com.xxs3315.mbl.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.xxs3315.mbl.entity.QueueItem.TaskStatus;
+import com.xxs3315.mbl.repository.QueueItemRepository;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class QueueStatsCounterTest {
+
+  private QueueItemRepository repository;
+  private QueueStatsCounter counter;
+
+  @BeforeEach
+  void setUp() {
+    repository = mock(QueueItemRepository.class);
+    counter = new QueueStatsCounter();
+    ReflectionTestUtils.setField(counter, "queueItemRepository", repository);
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void transitionsMoveCountsBetweenStatuses() {
+    counter.recordTransition(null, TaskStatus.PENDING, 3);
+    counter.recordTransition(TaskStatus.PENDING, TaskStatus.PROCESSING, 2);
+    counter.recordTransition(TaskStatus.PROCESSING, TaskStatus.COMPLETED);
+    counter.recordTransition(TaskStatus.COMPLETED, null);
+
+    Map<String, Object> stats = counter.snapshot();
+    assertThat(stats)
+        .containsEntry("pending", 1L)
+        .containsEntry("processing", 1L)
+        .containsEntry("completed", 0L)
+        .containsEntry("total", 2L);
+  }
+
+  @Test
+  void nonPositiveCountIsIgnored() {
+    counter.recordTransition(null, TaskStatus.PENDING, 0);
+    counter.recordTransition(null, TaskStatus.PENDING, -5);
+
+    assertThat(counter.snapshot()).containsEntry("pending", 0L);
+  }
+
+  @Test
+  void snapshotNeverReportsNegativeCounts() {
+    counter.recordTransition(TaskStatus.PROCESSING, TaskStatus.FAILED, 2);
+
+    assertThat(counter.snapshot())
+        .containsEntry("processing", 0L)
+        .containsEntry("failed", 2L)
+        .containsEntry("total", 2L);
+  }
+
+  @Test
+  void transitionInTransactionAppliesOnlyAfterCommit() {
+    TransactionSynchronizationManager.initSynchronization();
+    counter.recordTransition(null, TaskStatus.PENDING, 4);
+
+    assertThat(counter.snapshot()).containsEntry("pending", 0L);
+
+    List<TransactionSynchronization> synchronizations =
+        TransactionSynchronizationManager.getSynchronizations();
+    synchronizations.forEach(TransactionSynchronization::afterCommit);
+    assertThat(counter.snapshot()).containsEntry("pending", 4L);
+  }
+
+  @Test
+  void rolledBackTransitionIsNotApplied() {
+    TransactionSynchronizationManager.initSynchronization();
+    counter.recordTransition(null, TaskStatus.PENDING, 4);
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+    assertThat(counter.snapshot()).containsEntry("pending", 0L);
+  }
+
+  @Test
+  void clearResetsAllCounts() {
+    counter.recordTransition(null, TaskStatus.PENDING, 3);
+    counter.recordTransition(null, TaskStatus.FAILED, 1);
+
+    counter.recordClear();
+
+    assertThat(counter.snapshot()).containsEntry("pending", 0L).containsEntry("total", 0L);
+  }
+
+  @Test
+  void reconcileReplacesCountsWithDatabaseValues() {
+    counter.recordTransition(null, TaskStatus.PENDING, 10);
+    counter.recordTransition(null, TaskStatus.CANCELLED, 2);
+    when(repository.countGroupByStatus())
+        .thenReturn(
+            List.of(
+                new Object[] {TaskStatus.PENDING, 7L}, new Object[] {TaskStatus.COMPLETED, 5L}));
+
+    counter.reconcile();
+
+    Map<String, Object> stats = counter.snapshot();
+    assertThat(stats)
+        .containsEntry("pending", 7L)
+        .containsEntry("completed", 5L)
+        .containsEntry("cancelled", 0L)
+        .containsEntry("total", 12L)
+        .containsKey("lastReconcileTime");
+  }
+
+  @Test
+  void failedReconcileKeepsCurrentCounts() {
+    counter.recordTransition(null, TaskStatus.PENDING, 3);
+    when(repository.countGroupByStatus()).thenThrow(new IllegalStateException("db down"));
+
+    counter.reconcile();
+
+    assertThat(counter.snapshot())
+        .containsEntry("pending", 3L)
+        .doesNotContainKey("lastReconcileTime");
+  }
+}
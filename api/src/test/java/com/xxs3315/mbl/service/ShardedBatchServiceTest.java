@@ -0,0 +1,81 @@
+package com.xxs3315.mbl.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.xxs3315.mbl.entity.QueueItem;
+import com.xxs3315.mbl.pdf.config.ShardConfig;
+import com.xxs3315.mbl.pdf.services.JobCostEstimator;
+import com.xxs3315.mbl.repository.QueueItemRepository;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class ShardedBatchServiceTest {
+
+  private static final String PARENT = "parent";
+
+  private QueueService queueService;
+  private QueueItemRepository repository;
+  private ShardedBatchService service;
+
+  @BeforeEach
+  void setUp() {
+    queueService = mock(QueueService.class);
+    repository = mock(QueueItemRepository.class);
+    QueueLeaseManager leaseManager = mock(QueueLeaseManager.class);
+    when(leaseManager.getNodeId()).thenReturn("node-a");
+    TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    when(transactionTemplate.execute(any()))
+        .thenAnswer(
+            invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    ShardConfig shardConfig = new ShardConfig();
+    shardConfig.setPagesPerShard(2);
+
+    service = new ShardedBatchService();
+    ReflectionTestUtils.setField(service, "shardConfig", shardConfig);
+    ReflectionTestUtils.setField(service, "queueService", queueService);
+    ReflectionTestUtils.setField(service, "queueItemRepository", repository);
+    ReflectionTestUtils.setField(service, "leaseManager", leaseManager);
+    ReflectionTestUtils.setField(service, "transactionTemplate", transactionTemplate);
+    ReflectionTestUtils.setField(service, "jobCostEstimator", mock(JobCostEstimator.class));
+  }
+
+  @Test
+  void splitInsertsShardsWhileHoldingTheLease() {
+    when(repository.releaseLease(PARENT, "node-a")).thenReturn(1);
+
+    service.split(PARENT, pages(3), Map.of(), 1);
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<QueueItem>> shards = ArgumentCaptor.forClass(List.class);
+    verify(queueService).addAllToQueue(shards.capture());
+    assertThat(shards.getValue()).hasSize(2);
+  }
+
+  @Test
+  void splitIsAbandonedWhenTheLeaseWasLost() {
+    when(repository.releaseLease(PARENT, "node-a")).thenReturn(0);
+
+    service.split(PARENT, pages(3), Map.of(), 1);
+
+    verify(queueService, never()).addAllToQueue(anyList());
+    verify(repository, never()).findByTaskIdStartingWithOrderByTaskIdAsc(anyString());
+  }
+
+  private static List<Map<String, Object>> pages(int count) {
+    return Collections.nCopies(count, Map.of());
+  }
+}
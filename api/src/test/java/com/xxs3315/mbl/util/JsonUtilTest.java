@@ -0,0 +1,98 @@
+package com.xxs3315.mbl.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class JsonUtilTest {
+
+  @Test
+  void parseAcceptsLenientJson() {
+    Map map =
+        JsonUtil.parseMap(
+            "{ // 注释\n name: 'a', list: [1, 2,], # yaml\n nested: {flag: true, none: null}, }");
+
+    assertThat(map).containsEntry("name", "a").containsEntry("list", List.of(1.0, 2.0));
+    assertThat((Map<String, Object>) map.get("nested"))
+        .containsEntry("flag", true)
+        .containsEntry("none", null);
+  }
+
+  @Test
+  void parseReadsAllNumbersAsDouble() {
+    Map map = JsonUtil.parseMap("{\"i\": 3, \"f\": .5}");
+
+    assertThat(map.get("i")).isEqualTo(3.0);
+    assertThat(map.get("f")).isEqualTo(0.5);
+  }
+
+  @Test
+  void blankInputParsesToEmptyResult() {
+    assertThat(JsonUtil.parse(" ")).isNull();
+    assertThat(JsonUtil.parseMap(null)).isEmpty();
+    assertThat(JsonUtil.parseList("")).isEmpty();
+  }
+
+  @Test
+  void parseRejectsWrongTopLevelType() {
+    assertThatThrownBy(() -> JsonUtil.parseMap("[1]"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> JsonUtil.parseList("{}"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> JsonUtil.parse("{a:"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void writeProducesStandardJson() {
+    assertThat(JsonUtil.write(Map.of("a", List.of(1, "b")))).isEqualTo("{\"a\":[1,\"b\"]}");
+  }
+
+  @Test
+  void arrayReaderReturnsElementsInOrderThenNull() throws IOException {
+    try (JsonUtil.ArrayReader rows =
+        JsonUtil.openArray(new StringReader("[{a: 1}, {'a': 2, b: ['x']},]"))) {
+      assertThat(rows.next()).containsEntry("a", 1.0);
+      assertThat(rows.next()).containsEntry("a", 2.0).containsKey("b");
+      assertThat(rows.next()).isNull();
+      assertThat(rows.next()).isNull();
+    }
+  }
+
+  @Test
+  void arrayReaderTreatsEmptyInputAsEmptyArray() throws IOException {
+    try (JsonUtil.ArrayReader rows = JsonUtil.openArray(new StringReader(""))) {
+      assertThat(rows.next()).isNull();
+    }
+    try (JsonUtil.ArrayReader rows = JsonUtil.openArray(new StringReader("[]"))) {
+      assertThat(rows.next()).isNull();
+    }
+  }
+
+  @Test
+  void arrayReaderRejectsNonArrayContent() {
+    assertThatThrownBy(() -> JsonUtil.openArray(new StringReader("{\"a\": 1}")))
+        .isInstanceOf(IOException.class);
+  }
+
+  @Test
+  void arrayReaderRejectsNonObjectElements() throws IOException {
+    try (JsonUtil.ArrayReader rows = JsonUtil.openArray(new StringReader("[{a: 1}, 2]"))) {
+      assertThat(rows.next()).containsEntry("a", 1.0);
+      assertThatThrownBy(rows::next).isInstanceOf(IOException.class);
+    }
+  }
+
+  @Test
+  void arrayReaderFailsOnTruncatedInput() throws IOException {
+    try (JsonUtil.ArrayReader rows = JsonUtil.openArray(new StringReader("[{a: 1}, {a:"))) {
+      assertThat(rows.next()).containsEntry("a", 1.0);
+      assertThatThrownBy(rows::next).isInstanceOf(IOException.class);
+    }
+  }
+}